@@ -0,0 +1,73 @@
+package com.eatery.benchmark;
+
+import com.eatery.entity.Eatery;
+import com.eatery.entity.EateryRating;
+import com.eatery.entity.Review;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures Eatery.getRating for eateries with different numbers of reviews.
+ * The average over the review list, as the rating was computed before the rating aggregate,
+ * is measured alongside as the baseline.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class EateryRatingBenchmark {
+    @Param({"10", "1000", "100000", "1000000"})
+    private int reviews;
+
+    private Eatery eatery;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(reviews);
+        EateryRating rating = new EateryRating(1L);
+        List<Review> reviewList = new ArrayList<>(reviews);
+        for (int i = 0; i < reviews; i++) {
+            int stars = EateryRating.MIN_RATING + random.nextInt(EateryRating.MAX_RATING);
+            reviewList.add(new Review(1L, 1L + i, "Review " + i, stars));
+            rating.add(stars, 1);
+        }
+        eatery = Fixtures.eateries(1).getFirst();
+        eatery.setReviews(reviewList);
+        eatery.setRatingAggregate(rating);
+    }
+
+    @Benchmark
+    public int getRating() {
+        return eatery.getRating();
+    }
+
+    @Benchmark
+    public int averageOfReviews() {
+        List<Review> reviewList = eatery.getReviews();
+        if (reviewList.isEmpty()) {
+            return 0;
+        }
+        long sum = 0;
+        for (Review review : reviewList) {
+            sum += review.getRating();
+        }
+        return (int) (sum / reviewList.size());
+    }
+}
@@ -0,0 +1,101 @@
+package com.eatery.benchmark;
+
+import com.eatery.entity.Eatery;
+import com.eatery.index.EaterySearchIndex;
+import com.eatery.repository.EateryRepository;
+import com.eatery.service.EateryService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Measures EateryService.search over search indexes of different sizes.
+ * The repository is replaced by an in-memory map, standing in for the second-level cache,
+ * so the results show the cost of the index and the ranking rather than of the database.
+ * The index keeps every word prefix, so the largest size is limited to 100000 eateries.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class EaterySearchBenchmark {
+    @Param({"10", "1000", "100000"})
+    private int eateries;
+
+    private EateryService eateryService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<Eatery> all = Fixtures.eateries(eateries);
+        Map<Long, Eatery> byId = all.stream().collect(Collectors.toMap(Eatery::getId, Function.identity()));
+
+        EaterySearchIndex searchIndex = new EaterySearchIndex();
+        all.forEach(searchIndex::index);
+        eateryService = new EateryService();
+        ReflectionTestUtils.setField(eateryService, "searchIndex", searchIndex);
+        ReflectionTestUtils.setField(eateryService, "eateryRepository", repository(byId));
+    }
+
+    @Benchmark
+    public List<Eatery> searchByText() {
+        return eateryService.search(null, null, null, "bella", 0, 20);
+    }
+
+    @Benchmark
+    public List<Eatery> searchByNamePrefix() {
+        return eateryService.search("tratt vis", null, null, null, 0, 20);
+    }
+
+    @Benchmark
+    public List<Eatery> searchByAddressAndType() {
+        return eateryService.search(null, "münchen", "restaurant", null, 0, 20);
+    }
+
+    @Benchmark
+    public List<Eatery> searchDeepPage() {
+        return eateryService.search(null, null, null, "straße", 10, 20);
+    }
+
+    /**
+     * Implements the only repository method used by the search.
+     */
+    private static EateryRepository repository(Map<Long, Eatery> eateries) {
+        return (EateryRepository) Proxy.newProxyInstance(
+                EateryRepository.class.getClassLoader(),
+                new Class<?>[]{EateryRepository.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("findAllById")) {
+                        List<Eatery> found = new ArrayList<>();
+                        for (Object id : (Iterable<?>) args[0]) {
+                            Eatery eatery = eateries.get((Long) id);
+                            if (eatery != null) {
+                                found.add(eatery);
+                            }
+                        }
+                        return found;
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                }
+        );
+    }
+}
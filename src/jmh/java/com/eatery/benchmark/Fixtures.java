@@ -0,0 +1,105 @@
+package com.eatery.benchmark;
+
+import com.eatery.entity.BusinessDayTime;
+import com.eatery.entity.Eatery;
+import com.eatery.entity.Reservation;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.stream.Collectors;
+
+/**
+ * Deterministic synthetic eateries and reservations shared by the benchmarks.
+ * The same size always produces the same data, so results are comparable across commits.
+ */
+final class Fixtures {
+    static final int RESERVATIONS_PER_EATERY = 1000;
+    static final int DAYS = 365;
+
+    private static final String[] NAME_WORDS = {
+            "Trattoria", "Bella", "Vista", "Goldener", "Hirsch", "Café", "Anna", "Blume", "Sushi", "Garden",
+            "Brauhaus", "Zum", "Löwen", "Bistro", "Marché", "Taverna", "Olympia", "Curry", "Corner", "Bäckerei"
+    };
+    private static final String[] STREETS = {
+            "Marienplatz", "Leopoldstraße", "Sendlinger Straße", "Kaufingerstraße", "Maximilianstraße",
+            "Schellingstraße", "Türkenstraße", "Rosenheimer Straße", "Lindwurmstraße", "Dachauer Straße"
+    };
+    private static final String[] CITIES = {"80331 München", "10115 Berlin", "20095 Hamburg", "50667 Köln", "60311 Frankfurt"};
+
+    private Fixtures() {
+    }
+
+    /**
+     * Business day times of an eatery open daily from 11:00 to 23:00.
+     */
+    static Set<BusinessDayTime> businessDayTimes() {
+        return Arrays.stream(DayOfWeek.values())
+                .map(day -> new BusinessDayTime(day, LocalTime.of(11, 0), LocalTime.of(23, 0)))
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * Creates eateries with ids from 1, names and addresses drawn from small word lists.
+     * @param count number of eateries
+     * @return eateries
+     */
+    static List<Eatery> eateries(int count) {
+        SplittableRandom random = new SplittableRandom(count);
+        Set<BusinessDayTime> businessDayTimes = businessDayTimes();
+        List<Eatery> eateries = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Eatery eatery = new Eatery(
+                    Eatery.Type.values()[i % Eatery.Type.values().length],
+                    NAME_WORDS[random.nextInt(NAME_WORDS.length)] + " " + NAME_WORDS[random.nextInt(NAME_WORDS.length)] + " " + i,
+                    STREETS[random.nextInt(STREETS.length)] + " " + (1 + random.nextInt(200)) + ", " + CITIES[random.nextInt(CITIES.length)],
+                    businessDayTimes,
+                    40 + random.nextInt(160),
+                    "eatery" + i + "@example.com",
+                    "+49 89 " + (1000000 + i)
+            );
+            eatery.setId((long) i + 1);
+            eatery.setVersion(0L);
+            eateries.add(eatery);
+        }
+        return eateries;
+    }
+
+    /**
+     * Creates confirmed reservations over the next year, one eatery per {@link #RESERVATIONS_PER_EATERY} reservations.
+     * @param count number of reservations
+     * @param start first day of the reservations
+     * @return reservations
+     */
+    static List<Reservation> reservations(int count, LocalDate start) {
+        SplittableRandom random = new SplittableRandom(count);
+        int eateries = eateryCount(count);
+        List<Reservation> reservations = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            LocalDateTime reservationDateTime = start.plusDays(random.nextInt(DAYS))
+                    .atTime(11, 0)
+                    .plusMinutes(15L * random.nextInt(40));
+            Reservation reservation = new Reservation(
+                    1L + random.nextInt(100_000), 1L + i % eateries, reservationDateTime, 1 + random.nextInt(6)
+            );
+            reservation.setId((long) i + 1);
+            reservation.setStatus(Reservation.Status.CONFIRMED);
+            reservation.setVersion(0L);
+            reservations.add(reservation);
+        }
+        return reservations;
+    }
+
+    /**
+     * @return number of eateries the given number of reservations is spread over
+     */
+    static int eateryCount(int reservations) {
+        return Math.max(1, reservations / RESERVATIONS_PER_EATERY);
+    }
+}
@@ -0,0 +1,87 @@
+package com.eatery.benchmark;
+
+import com.eatery.entity.Eatery;
+import com.eatery.entity.Reservation;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures JSON serialization and deserialization of reservation lists and of a page of eateries,
+ * with an object mapper configured like the one of Spring Boot.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class JsonBenchmark {
+    private static final ObjectMapper MAPPER = Jackson2ObjectMapperBuilder.json().build();
+    private static final int EATERY_PAGE_SIZE = 20;
+
+    @State(Scope.Benchmark)
+    public static class Reservations {
+        @Param({"10", "1000", "100000", "1000000"})
+        private int reservations;
+
+        private List<Reservation> list;
+        private byte[] json;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            list = Fixtures.reservations(reservations, LocalDate.of(2030, 1, 1));
+            json = MAPPER.writeValueAsBytes(list);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Eateries {
+        private List<Eatery> list;
+        private byte[] json;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            list = Fixtures.eateries(EATERY_PAGE_SIZE);
+            json = MAPPER.writeValueAsBytes(list);
+        }
+    }
+
+    @Benchmark
+    public byte[] serializeReservations(Reservations state) throws IOException {
+        return MAPPER.writeValueAsBytes(state.list);
+    }
+
+    @Benchmark
+    public List<Reservation> deserializeReservations(Reservations state) throws IOException {
+        return MAPPER.readValue(state.json, new TypeReference<>() {
+        });
+    }
+
+    @Benchmark
+    public byte[] serializeEateries(Eateries state) throws IOException {
+        return MAPPER.writeValueAsBytes(state.list);
+    }
+
+    @Benchmark
+    public List<Eatery> deserializeEateries(Eateries state) throws IOException {
+        return MAPPER.readValue(state.json, new TypeReference<>() {
+        });
+    }
+}
@@ -0,0 +1,96 @@
+package com.eatery.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Measures the serialization of a page of eateries and of a reservation list in each response format.
+ * JSON is measured plain, gzipped at the default level of the servlet container and gzipped at the best level,
+ * which is the closest to brotli available in the JDK.
+ * The payload size of every combination is logged once per trial, the serialized bytes are the same every time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class PayloadBenchmark {
+    private static final Logger logger = LoggerFactory.getLogger(PayloadBenchmark.class);
+    private static final int EATERIES = 100;
+    private static final int RESERVATIONS = 1000;
+
+    @Param({"eateries", "reservations"})
+    private String payload;
+
+    @Param({"json", "json+gzip", "json+gzip-9", "cbor", "smile"})
+    private String format;
+
+    private Object value;
+    private Encoder encoder;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        value = switch (payload) {
+            case "eateries" -> Fixtures.eateries(EATERIES);
+            case "reservations" -> Fixtures.reservations(RESERVATIONS, LocalDate.of(2030, 1, 1));
+            default -> throw new IllegalArgumentException("Unknown payload " + payload);
+        };
+        ObjectMapper json = Jackson2ObjectMapperBuilder.json().build();
+        encoder = switch (format) {
+            case "json" -> json::writeValue;
+            case "json+gzip" -> (out, written) -> gzip(json, out, written, Deflater.DEFAULT_COMPRESSION);
+            case "json+gzip-9" -> (out, written) -> gzip(json, out, written, Deflater.BEST_COMPRESSION);
+            case "cbor" -> Jackson2ObjectMapperBuilder.json().factory(new CBORFactory()).build()::writeValue;
+            case "smile" -> Jackson2ObjectMapperBuilder.json().factory(new SmileFactory()).build()::writeValue;
+            default -> throw new IllegalArgumentException("Unknown format " + format);
+        };
+        logger.info("{} as {}: {} bytes", payload, format, encode().length);
+    }
+
+    @Benchmark
+    public byte[] encode() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64 * 1024);
+        encoder.encode(out, value);
+        return out.toByteArray();
+    }
+
+    private static void gzip(ObjectMapper mapper, OutputStream out, Object value, int level) throws IOException {
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out) {
+            {
+                def.setLevel(level);
+            }
+        }) {
+            mapper.writeValue(gzip, value);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Encoder {
+        void encode(OutputStream out, Object value) throws IOException;
+    }
+}
@@ -0,0 +1,92 @@
+package com.eatery.benchmark;
+
+import com.eatery.entity.Eatery;
+import com.eatery.entity.Reservation;
+import com.eatery.index.OccupancyIndex;
+import com.eatery.validator.EateryBusinessTimeStrategy;
+import com.eatery.validator.EateryCapacityStrategy;
+import com.eatery.validator.ReservationStrategy;
+import com.eatery.validator.TimeBoundaryStrategy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a single evaluation of each reservation strategy, the checks run for every booking.
+ * The capacity strategy reads an occupancy index holding the given number of confirmed reservations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ReservationStrategyBenchmark {
+    private static final int PROBES = 1024;
+
+    @Param({"10", "1000", "100000", "1000000"})
+    private int reservations;
+
+    private final ReservationStrategy businessTimeStrategy = new EateryBusinessTimeStrategy();
+    private final ReservationStrategy timeBoundaryStrategy = new TimeBoundaryStrategy();
+    private ReservationStrategy capacityStrategy;
+    private Eatery[] eateries;
+    private LocalDateTime[] times;
+    private int probe;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        LocalDate start = LocalDate.now().plusDays(2);
+        OccupancyIndex occupancyIndex = new OccupancyIndex();
+        List<Reservation> confirmed = Fixtures.reservations(reservations, start);
+        confirmed.forEach(occupancyIndex::add);
+        capacityStrategy = new EateryCapacityStrategy(occupancyIndex);
+
+        // probe the booked eateries at existing reservation times, so the day trees are populated
+        List<Eatery> all = Fixtures.eateries(Fixtures.eateryCount(reservations));
+        eateries = new Eatery[PROBES];
+        times = new LocalDateTime[PROBES];
+        for (int i = 0; i < PROBES; i++) {
+            Reservation reservation = confirmed.get(i * 7919 % confirmed.size());
+            eateries[i] = all.get((int) (reservation.getEateryId() - 1));
+            times[i] = reservation.getReservationDateTime();
+        }
+    }
+
+    @Benchmark
+    public boolean capacity() {
+        int i = next();
+        return capacityStrategy.isReservable(eateries[i], times[i], 4);
+    }
+
+    @Benchmark
+    public boolean businessTime() {
+        int i = next();
+        return businessTimeStrategy.isReservable(eateries[i], times[i], 4);
+    }
+
+    @Benchmark
+    public boolean timeBoundary() {
+        int i = next();
+        return timeBoundaryStrategy.isReservable(eateries[i], times[i], 4);
+    }
+
+    private int next() {
+        probe = (probe + 1) & (PROBES - 1);
+        return probe;
+    }
+}
@@ -1,5 +1,6 @@
 package com.eatery.api.controller;
 
+import com.eatery.api.dto.CustomerSummary;
 import com.eatery.api.dto.UpdateCustomerRequest;
 import com.eatery.exception.CustomerBadRequestException;
 import com.eatery.exception.CustomerNotFoundException;
@@ -8,11 +9,16 @@ import com.eatery.entity.Customer;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * Controller for handling customer-related operations, including
@@ -20,30 +26,58 @@ import java.util.List;
  * retrieving a customer by ID, and deleting a customer.
  */
 @RestController
-@CrossOrigin(origins = "http://localhost:4200")
-@RequestMapping(path = "/customers")
+@CrossOrigin(origins = "http://localhost:4200", exposedHeaders = {Pagination.NEXT_CURSOR_HEADER, Pagination.TOTAL_COUNT_HEADER})
+@RequestMapping(
+        path = "/customers",
+        produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, MediaTypes.APPLICATION_SMILE_VALUE}
+)
 public class CustomerController {
+    private static final int MAX_PAGE_SIZE = 100;
+
     @Autowired
     private CustomerService customerService;
 
     /**
-     * Fetches all customers from the database.
-     * @return A list of all customers.
+     * Fetches one page of the customers from the database, newest first.
+     * If another page follows, its cursor is returned in the X-Next-Cursor header.
+     * @param after Cursor returned with the previous page.
+     * @param limit Maximum number of customers.
+     * @param count Whether to return the number of all customers in the X-Total-Count header.
+     * @param view summary (id, names and username) or detail (default, with reservations and reviews).
+     * @param fields Comma separated fields to return instead of a view (optional), see {@link CustomerService#FIELDS}.
+     * @return A page of the customers.
      */
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Successfully returned"),
+            @ApiResponse(responseCode = "400", description = "Invalid request parameters"),
             @ApiResponse(responseCode = "404", description = "Customers not found"),
             @ApiResponse(responseCode = "500", description = "Customers could not be fetched")
     })
-    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
-    List<Customer> getAll() {
-        return customerService.getAll();
+    @GetMapping
+    ResponseEntity<? extends List<?>> getAll(
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "20") int limit,
+            @RequestParam(defaultValue = "false") boolean count,
+            @RequestParam(defaultValue = View.DEFAULT) String view,
+            @RequestParam(required = false) String fields
+    ) {
+        int pageLimit = Math.min(limit, MAX_PAGE_SIZE);
+        if (fields != null) {
+            Slice<Map<String, Object>> rows = customerService.getAllFields(fields, after, pageLimit);
+            return Pagination.response(rows, row -> String.valueOf(row.get("id")), count, customerService::count);
+        }
+        if (View.parse(view, () -> new CustomerBadRequestException("Invalid request parameter view")) == View.SUMMARY) {
+            Slice<CustomerSummary> summaries = customerService.getAllSummaries(after, pageLimit);
+            return Pagination.response(summaries, summary -> String.valueOf(summary.getId()), count, customerService::count);
+        }
+        Slice<Customer> customers = customerService.getAll(after, pageLimit);
+        return Pagination.response(customers, customer -> String.valueOf(customer.getId()), count, customerService::count);
     }
 
     /**
      * Creates a new customer based on the provided details.
      * @param newCustomer The customer data to create a new customer.
-     * @return The created customer.
+     * @return The created customer, completed when the password is hashed.
      */
     @ApiResponses(value = {
             @ApiResponse(responseCode = "201", description = "Successfully created"),
@@ -51,8 +85,8 @@ public class CustomerController {
             @ApiResponse(responseCode = "500", description = "Customer could not be created")
     })
     @ResponseStatus(value = HttpStatus.CREATED)
-    @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
-    Customer create(@RequestBody UpdateCustomerRequest newCustomer) {
+    @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE)
+    CompletableFuture<Customer> create(@RequestBody UpdateCustomerRequest newCustomer) {
         return customerService.create(newCustomer);
     }
 
@@ -66,7 +100,7 @@ public class CustomerController {
             @ApiResponse(responseCode = "404", description = "Customer not found"),
             @ApiResponse(responseCode = "500", description = "Customer could not be fetched")
     })
-    @GetMapping(path = "/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
+    @GetMapping(path = "/{id}")
     Customer get(@PathVariable Long id) {
         return customerService.get(id);
     }
@@ -75,7 +109,7 @@ public class CustomerController {
      * Updates an existing customer with the provided new customer details.
      * @param newCustomer The new details for the customer.
      * @param id The ID of the customer to update.
-     * @return The updated customer.
+     * @return The updated customer, completed when the password is hashed.
      */
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Successfully modified"),
@@ -83,8 +117,8 @@ public class CustomerController {
             @ApiResponse(responseCode = "404", description = "Customer not found"),
             @ApiResponse(responseCode = "500", description = "Customer could not be updated")
     })
-    @PutMapping(path = "/{id}", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
-    Customer replace(@RequestBody UpdateCustomerRequest newCustomer, @PathVariable Long id) {
+    @PutMapping(path = "/{id}", consumes = MediaType.APPLICATION_JSON_VALUE)
+    CompletableFuture<Customer> replace(@RequestBody UpdateCustomerRequest newCustomer, @PathVariable Long id) {
         return customerService.replace(newCustomer, id);
     }
 
@@ -98,7 +132,7 @@ public class CustomerController {
             @ApiResponse(responseCode = "500", description = "Customer could not be deleted")
     })
     @ResponseStatus(value = HttpStatus.NO_CONTENT)
-    @DeleteMapping(path = "/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
+    @DeleteMapping(path = "/{id}")
     void delete(@PathVariable Long id) {
         customerService.delete(id);
     }
@@ -107,15 +141,16 @@ public class CustomerController {
      * Fetches a customer by their username and password.
      * @param username The username of the customer to retrieve.
      * @param password The password of the customer to retrieve.
-     * @return The customer with the specified username and password.
+     * @return The customer with the specified username and password, completed when the password is checked.
      */
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Successfully returned"),
             @ApiResponse(responseCode = "404", description = "Customer not found"),
-            @ApiResponse(responseCode = "500", description = "Customer could not be fetched")
+            @ApiResponse(responseCode = "500", description = "Customer could not be fetched"),
+            @ApiResponse(responseCode = "503", description = "Too many concurrent logins")
     })
-    @GetMapping(path = "/login", produces = MediaType.APPLICATION_JSON_VALUE)
-    Customer login(String username, String password) {
+    @GetMapping(path = "/login")
+    CompletableFuture<Customer> login(String username, String password) {
         return customerService.get(username, password);
     }
 
@@ -130,10 +165,17 @@ public class CustomerController {
     }
 
     @ExceptionHandler(CustomerBadRequestException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
     String handle(CustomerBadRequestException e) {
         return e.getMessage();
     }
 
+    @ExceptionHandler(RejectedExecutionException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    String handle(RejectedExecutionException e) {
+        return "Too many concurrent password checks, please try again later";
+    }
+
     @ExceptionHandler(RuntimeException.class)
     @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
     String handle(RuntimeException e) {
@@ -0,0 +1,157 @@
+package com.eatery.api.controller;
+
+import com.eatery.entity.Eatery;
+import com.eatery.entity.EateryRating;
+import com.eatery.entity.Review;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Strong entity tags of the cacheable reads shared by the controllers.
+ * A tag is computed from versions and counters of the entities, never from the serialized body,
+ * so a request whose If-None-Match header matches is answered with 304 before the body is serialized.
+ * The JSON, CBOR and Smile representations of the same entities differ, so the tag ends with the negotiated format
+ * and the responses vary by the Accept header.
+ */
+final class ETags {
+    /**
+     * Clients may store the responses, but must revalidate them with the entity tag before every use.
+     */
+    private static final CacheControl CACHE_CONTROL = CacheControl.noCache();
+
+    private static final int DIGEST_BYTES = 16;
+
+    /**
+     * Formats of the message converters, in the order Spring MVC prefers them for a wildcard Accept header.
+     */
+    private static final Map<String, MediaType> FORMATS = new LinkedHashMap<>();
+
+    static {
+        FORMATS.put("json", MediaType.APPLICATION_JSON);
+        FORMATS.put("smile", MediaType.parseMediaType("application/x-jackson-smile"));
+        FORMATS.put("cbor", MediaType.APPLICATION_CBOR);
+    }
+
+    private ETags() {
+    }
+
+    /**
+     * Tags an eatery by its version and the revision of its reviews, without loading the reviews.
+     * The open flag depends on the current time, so it is part of the tag as well.
+     * @param eatery eatery
+     * @return entity tag
+     */
+    static String of(Eatery eatery) {
+        EateryRating rating = eatery.getRatingAggregate();
+        return eatery.getId() + "." + eatery.getVersion() + "." + (rating != null ? rating.getRevision() : 0) +
+                (eatery.isOpen() ? ".open" : ".closed");
+    }
+
+    /**
+     * Tags a review by a digest of its content.
+     * @param review review
+     * @return entity tag
+     */
+    static String of(Review review) {
+        return digest(List.of(
+                String.valueOf(review.getId()),
+                String.valueOf(review.getEateryId()),
+                String.valueOf(review.getCustomerId()),
+                String.valueOf(review.getRating()),
+                String.valueOf(review.getMessage())
+        ));
+    }
+
+    /**
+     * Tags a list by a digest of the tags of its elements, in order.
+     * @param elements elements of the list
+     * @param tag entity tag of an element
+     * @return entity tag
+     */
+    static <T> String of(List<T> elements, Function<T, String> tag) {
+        return digest(elements.stream().map(tag).toList());
+    }
+
+    /**
+     * Builds the response of a single entity.
+     * @param body entity
+     * @param eTag entity tag of the entity
+     * @return response with the entity tag and cache control headers
+     */
+    static <T> ResponseEntity<T> response(T body, String eTag) {
+        return headers(ResponseEntity.ok(), eTag).body(body);
+    }
+
+    /**
+     * Adds the entity tag of the negotiated representation, the cache control and the Vary header to a response.
+     * @param response response builder
+     * @param eTag entity tag of the entities
+     * @return the response builder
+     */
+    static <B extends ResponseEntity.HeadersBuilder<B>> B headers(B response, String eTag) {
+        return response
+                .eTag(eTag + "." + format())
+                .cacheControl(CACHE_CONTROL)
+                .varyBy(HttpHeaders.ACCEPT);
+    }
+
+    /**
+     * Returns the format the response of the current request is written in,
+     * the first format accepted with the highest quality, JSON if the Accept header is missing or invalid.
+     */
+    private static String format() {
+        HttpServletRequest request = ((ServletRequestAttributes) RequestContextHolder.currentRequestAttributes()).getRequest();
+        List<MediaType> accepted;
+        try {
+            accepted = new ArrayList<>(MediaType.parseMediaTypes(request.getHeader(HttpHeaders.ACCEPT)));
+        } catch (InvalidMediaTypeException e) {
+            return "json";
+        }
+        // media types compare by quality before specificity, like in the content negotiation of Spring MVC
+        MimeTypeUtils.sortBySpecificity(accepted);
+        for (MediaType mediaType : accepted) {
+            if (mediaType.getQualityValue() == 0) {
+                continue;
+            }
+            for (Map.Entry<String, MediaType> format : FORMATS.entrySet()) {
+                if (mediaType.isCompatibleWith(format.getValue())) {
+                    return format.getKey();
+                }
+            }
+        }
+        return "json";
+    }
+
+    private static String digest(List<String> parts) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        for (String part : parts) {
+            // the length prefix keeps the concatenation of the parts unambiguous
+            digest.update((part.length() + ":" + part).getBytes(StandardCharsets.UTF_8));
+        }
+        byte[] hash = digest.digest();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(hash, DIGEST_BYTES));
+    }
+}
@@ -1,42 +1,85 @@
 package com.eatery.api.controller;
 
+import com.eatery.api.dto.AvailableSlot;
 import com.eatery.api.dto.CreateEateryRequest;
+import com.eatery.api.dto.EateryAvailability;
+import com.eatery.api.dto.EaterySummary;
 import com.eatery.api.dto.UpdateEateryRequest;
 import com.eatery.entity.Eatery;
 import com.eatery.exception.EateryBadRequestException;
+import com.eatery.exception.EateryConflictException;
 import com.eatery.exception.EateryNotFoundException;
 import com.eatery.service.EateryService;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Slice;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Eatery Controller
  */
 @RestController
-@CrossOrigin(origins = "http://localhost:4200")
-@RequestMapping(path = "/eateries")
+@CrossOrigin(origins = "http://localhost:4200", exposedHeaders = {Pagination.NEXT_CURSOR_HEADER, Pagination.TOTAL_COUNT_HEADER})
+@RequestMapping(
+        path = "/eateries",
+        produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, MediaTypes.APPLICATION_SMILE_VALUE}
+)
 public class EateryController {
+    private static final int MAX_PAGE_SIZE = 100;
+
     @Autowired
     private EateryService eateryService;
 
     /**
-     * Fetches all eateries from the database.
-     * @return A list of all eateries.
+     * Fetches one page of the eateries from the database, newest first.
+     * If another page follows, its cursor is returned in the X-Next-Cursor header.
+     * Answers 304 if a page of the detail view still matches the entity tag in the If-None-Match header.
+     * @param after Cursor returned with the previous page.
+     * @param limit Maximum number of eateries.
+     * @param count Whether to return the number of all eateries in the X-Total-Count header.
+     * @param view summary (id, type, name, address, location and rating) or detail (default).
+     * @param fields Comma separated fields to return instead of a view (optional), see {@link EateryService#FIELDS}.
+     * @return A page of the eateries.
      */
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Successfully returned"),
+            @ApiResponse(responseCode = "304", description = "Eateries not modified"),
+            @ApiResponse(responseCode = "400", description = "Invalid request parameters"),
             @ApiResponse(responseCode = "404", description = "Eateries not found"),
             @ApiResponse(responseCode = "500", description = "Eateries could not be fetched")
     })
-    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
-    List<Eatery> getAll() {
-        return eateryService.findAll();
+    @GetMapping
+    ResponseEntity<? extends List<?>> getAll(
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "20") int limit,
+            @RequestParam(defaultValue = "false") boolean count,
+            @RequestParam(defaultValue = View.DEFAULT) String view,
+            @RequestParam(required = false) String fields
+    ) {
+        int pageLimit = Math.min(limit, MAX_PAGE_SIZE);
+        if (fields != null) {
+            Slice<Map<String, Object>> rows = eateryService.findAllFields(fields, after, pageLimit);
+            return Pagination.response(rows, row -> String.valueOf(row.get("id")), count, eateryService::count);
+        }
+        if (View.parse(view, () -> new EateryBadRequestException("Invalid request parameter view")) == View.SUMMARY) {
+            Slice<EaterySummary> summaries = eateryService.findAllSummaries(after, pageLimit);
+            return Pagination.response(summaries, summary -> String.valueOf(summary.getId()), count, eateryService::count);
+        }
+        Slice<Eatery> eateries = eateryService.findAll(after, pageLimit);
+        return ETags.headers(
+                Pagination.headers(eateries, eatery -> String.valueOf(eatery.getId()), count, eateryService::count),
+                ETags.of(eateries.getContent(), ETags::of)
+        ).body(eateries.getContent());
     }
 
     /**
@@ -44,20 +87,101 @@ public class EateryController {
      * @param name The name of the eatery to search for (optional).
      * @param address The address of the eatery to search for (optional).
      * @param type The type of the eatery to search for (optional).
-     * @return A list of eateries that match the search criteria.
+     * @param q Words to search for in either name or address (optional).
+     * @param page The zero based page number.
+     * @param size The number of eateries per page.
+     * @return A ranked page of eateries that match the search criteria.
      */
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Successfully returned"),
+            @ApiResponse(responseCode = "400", description = "Invalid request parameters"),
             @ApiResponse(responseCode = "404", description = "Eateries not found"),
             @ApiResponse(responseCode = "500", description = "Eateries could not be fetched")
     })
-    @GetMapping(path = "/search", produces = MediaType.APPLICATION_JSON_VALUE)
+    @GetMapping(path = "/search")
     List<Eatery> search(
             @RequestParam(required = false) String name,
             @RequestParam(required = false) String address,
-            @RequestParam(required = false) String type
+            @RequestParam(required = false) String type,
+            @RequestParam(required = false) String q,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size
     ) {
-        return eateryService.search(name, address, type);
+        return eateryService.search(name, address, type, q, page, Math.min(size, MAX_PAGE_SIZE));
+    }
+
+    /**
+     * Finds the eateries nearest to a location.
+     * @param latitude The latitude of the location in degrees.
+     * @param longitude The longitude of the location in degrees.
+     * @param k The maximum number of eateries to return.
+     * @param type The type of the eatery to search for (optional).
+     * @param openNow Whether to return only eateries which are open now.
+     * @return A list of the nearest eateries, nearest first.
+     */
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully returned"),
+            @ApiResponse(responseCode = "400", description = "Invalid request parameters"),
+            @ApiResponse(responseCode = "500", description = "Eateries could not be fetched")
+    })
+    @GetMapping(path = "/nearby")
+    List<Eatery> nearby(
+            @RequestParam double latitude,
+            @RequestParam double longitude,
+            @RequestParam(defaultValue = "10") int k,
+            @RequestParam(required = false) String type,
+            @RequestParam(defaultValue = "false") boolean openNow
+    ) {
+        return eateryService.nearby(latitude, longitude, Math.min(k, MAX_PAGE_SIZE), type, openNow);
+    }
+
+    /**
+     * Finds eateries which can be reserved at a time, with the nearest alternative time of those which are full.
+     * @param type The type of the eateries (optional).
+     * @param dateTime The requested reservation time.
+     * @param guests The number of guests.
+     * @param page The zero based page number.
+     * @param size The number of eateries per page.
+     * @return A page of eateries in ascending ID order.
+     */
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully returned"),
+            @ApiResponse(responseCode = "400", description = "Invalid request parameters"),
+            @ApiResponse(responseCode = "500", description = "Availability could not be fetched")
+    })
+    @GetMapping(path = "/availability")
+    List<EateryAvailability> searchAvailability(
+            @RequestParam(required = false) String type,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime dateTime,
+            @RequestParam int guests,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size
+    ) {
+        return eateryService.searchAvailability(type, dateTime, guests, page, Math.min(size, MAX_PAGE_SIZE));
+    }
+
+    /**
+     * Lists all bookable reservation start times of an eatery.
+     * @param id The ID of the eatery.
+     * @param date The first day.
+     * @param endDate The last day (optional, defaults to the first day).
+     * @param guests The number of guests.
+     * @return The bookable start times in chronological order.
+     */
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully returned"),
+            @ApiResponse(responseCode = "400", description = "Invalid request parameters"),
+            @ApiResponse(responseCode = "404", description = "Eatery not found"),
+            @ApiResponse(responseCode = "500", description = "Availability could not be fetched")
+    })
+    @GetMapping(path = "/{id}/availability")
+    List<AvailableSlot> availability(
+            @PathVariable Long id,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam int guests
+    ) {
+        return eateryService.availability(id, date, endDate, guests);
     }
 
     /**
@@ -71,24 +195,28 @@ public class EateryController {
             @ApiResponse(responseCode = "500", description = "Eatery could not be created")
     })
     @ResponseStatus(HttpStatus.CREATED)
-    @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE)
     Eatery create(@RequestBody CreateEateryRequest newEatery) {
         return eateryService.create(newEatery);
     }
 
     /**
      * Fetches an eatery by its ID.
+     * Answers 304 if the eatery still matches the entity tag in the If-None-Match header,
+     * which is checked without loading its reviews or reservations.
      * @param id The ID of the eatery to retrieve.
      * @return The eatery with the specified ID.
      */
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Successfully returned"),
+            @ApiResponse(responseCode = "304", description = "Eatery not modified"),
             @ApiResponse(responseCode = "404", description = "Eatery not found"),
             @ApiResponse(responseCode = "500", description = "Eatery could not be fetched")
     })
-    @GetMapping(path = "/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
-    Eatery get(@PathVariable Long id) {
-        return eateryService.findById(id);
+    @GetMapping(path = "/{id}")
+    ResponseEntity<Eatery> get(@PathVariable Long id) {
+        Eatery eatery = eateryService.findById(id);
+        return ETags.response(eatery, ETags.of(eatery));
     }
 
     /**
@@ -101,9 +229,10 @@ public class EateryController {
             @ApiResponse(responseCode = "200", description = "Successfully modified"),
             @ApiResponse(responseCode = "400", description = "Invalid request parameters"),
             @ApiResponse(responseCode = "404", description = "Eatery not found"),
+            @ApiResponse(responseCode = "409", description = "Eatery was changed concurrently"),
             @ApiResponse(responseCode = "500", description = "Eatery could not be updated")
     })
-    @PutMapping(path = "/{id}", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    @PutMapping(path = "/{id}", consumes = MediaType.APPLICATION_JSON_VALUE)
     Eatery replace(@RequestBody UpdateEateryRequest newEatery, @PathVariable Long id) {
         return eateryService.replace(newEatery, id);
     }
@@ -118,7 +247,7 @@ public class EateryController {
             @ApiResponse(responseCode = "500", description = "Eatery could not be updated"), @ApiResponse(responseCode = "500", description = "Eatery could not be deleted")
     })
     @ResponseStatus(HttpStatus.NO_CONTENT)
-    @DeleteMapping(path = "/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
+    @DeleteMapping(path = "/{id}")
     void delete(@PathVariable Long id) {
         eateryService.delete(id);
     }
@@ -140,6 +269,12 @@ public class EateryController {
         return e.getMessage();
     }
 
+    @ExceptionHandler(EateryConflictException.class)
+    @ResponseStatus(HttpStatus.CONFLICT)
+    String handle(EateryConflictException e) {
+        return e.getMessage();
+    }
+
     @ExceptionHandler(RuntimeException.class)
     @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
     String handle(RuntimeException e) {
@@ -8,37 +8,56 @@ import com.eatery.service.EateryManagerService;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
-@CrossOrigin(origins = "http://localhost:4200")
-@RequestMapping(path = "/managers")
+@CrossOrigin(origins = "http://localhost:4200", exposedHeaders = {Pagination.NEXT_CURSOR_HEADER, Pagination.TOTAL_COUNT_HEADER})
+@RequestMapping(
+        path = "/managers",
+        produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, MediaTypes.APPLICATION_SMILE_VALUE}
+)
 public class EateryManagerController {
+    private static final int MAX_PAGE_SIZE = 100;
+
     @Autowired
     private EateryManagerService eateryManagerService;
 
     /**
-     * Fetches all eatery managers from the database.
-     * @return A list of all eatery managers.
+     * Fetches one page of the eatery managers from the database, newest first.
+     * If another page follows, its cursor is returned in the X-Next-Cursor header.
+     * @param after Cursor returned with the previous page.
+     * @param limit Maximum number of eatery managers.
+     * @param count Whether to return the number of all eatery managers in the X-Total-Count header.
+     * @return A page of the eatery managers.
      */
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Successfully returned"),
+            @ApiResponse(responseCode = "400", description = "Invalid request parameters"),
             @ApiResponse(responseCode = "404", description = "Eatery managers not found"),
             @ApiResponse(responseCode = "500", description = "Eatery managers could not be fetched")
     })
-    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
-    List<EateryManager> getAll() {
-        return eateryManagerService.getAll();
+    @GetMapping
+    ResponseEntity<List<EateryManager>> getAll(
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "20") int limit,
+            @RequestParam(defaultValue = "false") boolean count
+    ) {
+        Slice<EateryManager> managers = eateryManagerService.getAll(after, Math.min(limit, MAX_PAGE_SIZE));
+        return Pagination.response(managers, manager -> String.valueOf(manager.getId()), count, eateryManagerService::count);
     }
 
     /**
      * Creates a new eatery manager.
      * @param newManager The data for the new eatery manager to be created.
-     * @return The created eatery manager.
+     * @return The created eatery manager, completed when the password is hashed.
      */
     @ApiResponses(value = {
             @ApiResponse(responseCode = "201", description = "Successfully created"),
@@ -46,8 +65,8 @@ public class EateryManagerController {
             @ApiResponse(responseCode = "500", description = "Eatery manager could not be created")
     })
     @ResponseStatus(value = HttpStatus.CREATED)
-    @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
-    EateryManager create(@RequestBody UpdateManagerRequest newManager) {
+    @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE)
+    CompletableFuture<EateryManager> create(@RequestBody UpdateManagerRequest newManager) {
         return eateryManagerService.create(newManager);
     }
 
@@ -61,7 +80,7 @@ public class EateryManagerController {
             @ApiResponse(responseCode = "404", description = "Eatery manager not found"),
             @ApiResponse(responseCode = "500", description = "Eatery manager could not be fetched")
     })
-    @GetMapping(path = "/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
+    @GetMapping(path = "/{id}")
     EateryManager get(@PathVariable Long id) {
         return eateryManagerService.get(id);
     }
@@ -70,7 +89,7 @@ public class EateryManagerController {
      * Updates an existing eatery manager with the provided new details.
      * @param newManager The new details for the eatery manager.
      * @param id The ID of the eatery manager to update.
-     * @return The updated eatery manager.
+     * @return The updated eatery manager, completed when the password is hashed.
      */
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Successfully modified"),
@@ -78,8 +97,8 @@ public class EateryManagerController {
             @ApiResponse(responseCode = "404", description = "Eatery manager not found"),
             @ApiResponse(responseCode = "500", description = "Eatery manager could not be updated")
     })
-    @PutMapping(path = "/{id}", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
-    EateryManager replace(@RequestBody UpdateManagerRequest newManager, @PathVariable Long id) {
+    @PutMapping(path = "/{id}", consumes = MediaType.APPLICATION_JSON_VALUE)
+    CompletableFuture<EateryManager> replace(@RequestBody UpdateManagerRequest newManager, @PathVariable Long id) {
         return eateryManagerService.replace(newManager, id);
     }
 
@@ -93,7 +112,7 @@ public class EateryManagerController {
             @ApiResponse(responseCode = "500", description = "Eatery manager could not be deleted")
     })
     @ResponseStatus(value = HttpStatus.NO_CONTENT)
-    @DeleteMapping(path = "/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
+    @DeleteMapping(path = "/{id}")
     void delete(@PathVariable Long id) {
         eateryManagerService.delete(id);
     }
@@ -102,15 +121,16 @@ public class EateryManagerController {
      * Fetches an eatery manager by their username and password.
      * @param username The username of the eatery manager to retrieve.
      * @param password The password of the eatery manager to retrieve.
-     * @return The eatery manager with the specified username and password.
+     * @return The eatery manager with the specified username and password, completed when the password is checked.
      */
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Successfully returned"),
             @ApiResponse(responseCode = "404", description = "Eatery manager not found"),
-            @ApiResponse(responseCode = "500", description = "Eatery manager could not be fetched")
+            @ApiResponse(responseCode = "500", description = "Eatery manager could not be fetched"),
+            @ApiResponse(responseCode = "503", description = "Too many concurrent logins")
     })
-    @GetMapping(path = "/login", produces = MediaType.APPLICATION_JSON_VALUE)
-    EateryManager login(String username, String password) {
+    @GetMapping(path = "/login")
+    CompletableFuture<EateryManager> login(String username, String password) {
         return eateryManagerService.get(username, password);
     }
 
@@ -130,6 +150,12 @@ public class EateryManagerController {
         return e.getMessage();
     }
 
+    @ExceptionHandler(RejectedExecutionException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    String handle(RejectedExecutionException e) {
+        return "Too many concurrent password checks, please try again later";
+    }
+
     @ExceptionHandler(RuntimeException.class)
     @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
     String handle(RuntimeException e) {
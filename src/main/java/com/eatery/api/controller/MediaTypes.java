@@ -0,0 +1,15 @@
+package com.eatery.api.controller;
+
+/**
+ * Media types which all controllers produce, in order of preference if the client accepts any.
+ * The binary formats are encoded by the same Jackson annotations as JSON.
+ */
+final class MediaTypes {
+    /**
+     * Binary JSON of the Jackson Smile format, which has no constant in MediaType.
+     */
+    static final String APPLICATION_SMILE_VALUE = "application/x-jackson-smile";
+
+    private MediaTypes() {
+    }
+}
@@ -0,0 +1,80 @@
+package com.eatery.api.controller;
+
+import org.springframework.data.domain.Slice;
+import org.springframework.http.ResponseEntity;
+
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Keyset pagination contract shared by the controllers.
+ * A page is a plain JSON list. If the page is full, the cursor of its last element is returned
+ * in the X-Next-Cursor header and continues the list when passed as the after parameter.
+ * Counting all elements costs a full scan, so the X-Total-Count header is only returned on request.
+ */
+final class Pagination {
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    static final String TOTAL_COUNT_HEADER = "X-Total-Count";
+
+    private Pagination() {
+    }
+
+    /**
+     * Builds the response of one page.
+     * @param page elements of the page
+     * @param limit requested number of elements
+     * @param cursor cursor of an element
+     * @return response with the page and the cursor of the next page, if any
+     */
+    static <T> ResponseEntity<List<T>> response(List<T> page, int limit, Function<T, String> cursor) {
+        return headers(page, limit, cursor).body(page);
+    }
+
+    /**
+     * Starts the response of one page, so further headers can be added before the body.
+     * @param page elements of the page
+     * @param limit requested number of elements
+     * @param cursor cursor of an element
+     * @return response builder with the cursor of the next page, if any
+     */
+    static <T> ResponseEntity.BodyBuilder headers(List<T> page, int limit, Function<T, String> cursor) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (!page.isEmpty() && page.size() >= limit) {
+            response.header(NEXT_CURSOR_HEADER, cursor.apply(page.getLast()));
+        }
+        return response;
+    }
+
+    /**
+     * Builds the response of one slice.
+     * @param slice elements of the page
+     * @param cursor cursor of an element
+     * @param count whether the total number of elements was requested
+     * @param totalCount counts all elements, only called if requested
+     * @return response with the page, the cursor of the next page if any, and the total count if requested
+     */
+    static <T> ResponseEntity<List<T>> response(Slice<T> slice, Function<T, String> cursor, boolean count, LongSupplier totalCount) {
+        return headers(slice, cursor, count, totalCount).body(slice.getContent());
+    }
+
+    /**
+     * Starts the response of one slice, so further headers can be added before the body.
+     * Unlike a list, a slice knows whether a next page exists, so a full last page has no cursor.
+     * @param slice elements of the page
+     * @param cursor cursor of an element
+     * @param count whether the total number of elements was requested
+     * @param totalCount counts all elements, only called if requested
+     * @return response builder with the cursor of the next page if any, and the total count if requested
+     */
+    static <T> ResponseEntity.BodyBuilder headers(Slice<T> slice, Function<T, String> cursor, boolean count, LongSupplier totalCount) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (slice.hasNext()) {
+            response.header(NEXT_CURSOR_HEADER, cursor.apply(slice.getContent().getLast()));
+        }
+        if (count) {
+            response.header(TOTAL_COUNT_HEADER, String.valueOf(totalCount.getAsLong()));
+        }
+        return response;
+    }
+}
@@ -2,43 +2,77 @@ package com.eatery.api.controller;
 
 import com.eatery.api.dto.CreateReservationRequest;
 import com.eatery.api.dto.UpdateReservationRequest;
+import com.eatery.booking.BookingEngine;
 import com.eatery.entity.Reservation;
 import com.eatery.exception.ReservationBadRequestException;
+import com.eatery.exception.ReservationConflictException;
 import com.eatery.exception.ReservationNotFoundException;
+import com.eatery.service.ReservationHistoryExporter;
 import com.eatery.service.ReservationService;
 import com.eatery.entity.ReservationHistory;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Slice;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
-@CrossOrigin(origins = "http://localhost:4200")
-@RequestMapping(path = "/reservations")
+@CrossOrigin(origins = "http://localhost:4200", exposedHeaders = {Pagination.NEXT_CURSOR_HEADER, Pagination.TOTAL_COUNT_HEADER})
+@RequestMapping(
+        path = "/reservations",
+        produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, MediaTypes.APPLICATION_SMILE_VALUE}
+)
 public class ReservationController {
+    private static final int MAX_PAGE_SIZE = 100;
+
+    private static final int MAX_HISTORY_LIMIT = 1000;
+    private static final int EXPORT_BUFFER_SIZE = 64 * 1024;
+
     @Autowired
     private ReservationService reservationService;
+    @Autowired
+    private BookingEngine bookingEngine;
+    @Autowired
+    private ReservationHistoryExporter historyExporter;
 
     /**
-     * Fetches all reservations from the database.
-     * @return A list of all reservations.
+     * Fetches one page of the reservations from the database, newest first.
+     * If another page follows, its cursor is returned in the X-Next-Cursor header.
+     * @param after Cursor returned with the previous page.
+     * @param limit Maximum number of reservations.
+     * @param count Whether to return the number of all reservations in the X-Total-Count header.
+     * @return A page of the reservations.
      */
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Successfully returned"),
+            @ApiResponse(responseCode = "400", description = "Invalid request parameters"),
             @ApiResponse(responseCode = "404", description = "Reservations not found"),
             @ApiResponse(responseCode = "500", description = "Reservations could not be fetched")
     })
-    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
-    List<Reservation> getAll() {
-        return reservationService.getAll();
+    @GetMapping
+    ResponseEntity<List<Reservation>> getAll(
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "20") int limit,
+            @RequestParam(defaultValue = "false") boolean count
+    ) {
+        Slice<Reservation> reservations = reservationService.getAll(after, Math.min(limit, MAX_PAGE_SIZE));
+        return Pagination.response(reservations, reservation -> String.valueOf(reservation.getId()), count, reservationService::count);
     }
 
     /**
      * Creates a new reservation based on the provided request data.
+     * Runs through the booking engine if it is enabled and completes once the reservation is committed.
      * @param newReservation The data for the new reservation.
      * @return The created reservation.
      */
@@ -48,9 +82,12 @@ public class ReservationController {
             @ApiResponse(responseCode = "500", description = "Reservation could not be created")
     })
     @ResponseStatus(HttpStatus.CREATED)
-    @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
-    Reservation create(@RequestBody CreateReservationRequest newReservation) {
-        return reservationService.create(newReservation);
+    @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE)
+    CompletableFuture<Reservation> create(@RequestBody CreateReservationRequest newReservation) {
+        if (bookingEngine.isEnabled()) {
+            return bookingEngine.create(newReservation);
+        }
+        return CompletableFuture.completedFuture(reservationService.create(newReservation));
     }
 
     /**
@@ -63,13 +100,14 @@ public class ReservationController {
             @ApiResponse(responseCode = "404", description = "Reservation not found"),
             @ApiResponse(responseCode = "500", description = "Reservation could not be fetched")
     })
-    @GetMapping(path = "/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
+    @GetMapping(path = "/{id}")
     Reservation get(@PathVariable Long id) {
         return reservationService.get(id);
     }
 
     /**
      * Updates an existing reservation with the provided updated details.
+     * Runs through the booking engine if it is enabled and completes once the change is committed.
      * @param updateReservation The new details for the reservation.
      * @param id The ID of the reservation to update.
      * @return The updated reservation.
@@ -78,11 +116,15 @@ public class ReservationController {
             @ApiResponse(responseCode = "200", description = "Successfully modified"),
             @ApiResponse(responseCode = "400", description = "Invalid request parameters"),
             @ApiResponse(responseCode = "404", description = "Reservation not found"),
+            @ApiResponse(responseCode = "409", description = "Reservation was changed concurrently"),
             @ApiResponse(responseCode = "500", description = "Reservation could not be updated")
     })
-    @PutMapping(path = "/{id}", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
-    Reservation replace(@RequestBody UpdateReservationRequest updateReservation, @PathVariable Long id) {
-        return reservationService.replace(updateReservation, id);
+    @PutMapping(path = "/{id}", consumes = MediaType.APPLICATION_JSON_VALUE)
+    CompletableFuture<Reservation> replace(@RequestBody UpdateReservationRequest updateReservation, @PathVariable Long id) {
+        if (bookingEngine.isEnabled()) {
+            return bookingEngine.replace(updateReservation, id);
+        }
+        return CompletableFuture.completedFuture(reservationService.replace(updateReservation, id));
     }
 
     /**
@@ -93,26 +135,32 @@ public class ReservationController {
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Successfully modified"),
             @ApiResponse(responseCode = "404", description = "Reservation not found"),
+            @ApiResponse(responseCode = "409", description = "Reservation was changed concurrently"),
             @ApiResponse(responseCode = "500", description = "Reservation could not be set to complete")
     })
-    @PutMapping(path = "/{id}/complete", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    @PutMapping(path = "/{id}/complete", consumes = MediaType.APPLICATION_JSON_VALUE)
     Reservation complete(@PathVariable Long id) {
         return reservationService.complete(id);
     }
 
     /**
      * Cancels a reservation.
+     * Runs through the booking engine if it is enabled and completes once the cancellation is committed.
      * @param id The ID of the reservation to cancel.
      * @return The reservation that was canceled.
      */
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Successfully modified"),
             @ApiResponse(responseCode = "404", description = "Reservation not found"),
+            @ApiResponse(responseCode = "409", description = "Reservation was changed concurrently"),
             @ApiResponse(responseCode = "500", description = "Reservation could not be canceled")
     })
-    @PutMapping(path = "/{id}/cancel", produces = MediaType.APPLICATION_JSON_VALUE)
-    Reservation cancel(@PathVariable Long id) {
-        return reservationService.cancel(id);
+    @PutMapping(path = "/{id}/cancel")
+    CompletableFuture<Reservation> cancel(@PathVariable Long id) {
+        if (bookingEngine.isEnabled()) {
+            return bookingEngine.cancel(id);
+        }
+        return CompletableFuture.completedFuture(reservationService.cancel(id));
     }
 
     /**
@@ -125,18 +173,123 @@ public class ReservationController {
             @ApiResponse(responseCode = "500", description = "Reservation could not be deleted")
     })
     @ResponseStatus(HttpStatus.NO_CONTENT)
-    @DeleteMapping(path = "/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
+    @DeleteMapping(path = "/{id}")
     void delete(@PathVariable Long id) {
         reservationService.delete(id);
     }
 
+    /**
+     * Fetches one page of the reservation history of an eatery, ordered by the time of change.
+     * If the page is full, the cursor of the next page is returned in the X-Next-Cursor header.
+     * @param eateryId The ID of the eatery.
+     * @param status Only records with this status.
+     * @param from Only records changed at or after this time.
+     * @param to Only records changed before this time.
+     * @param after Cursor returned with the previous page.
+     * @param limit Maximum number of records.
+     * @return The records of the page.
+     */
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Successfully returned"),
+            @ApiResponse(responseCode = "400", description = "Invalid request parameters"),
             @ApiResponse(responseCode = "500", description = "Reservation history could not be fetched")
     })
-    @GetMapping(path = "/history", produces = MediaType.APPLICATION_JSON_VALUE)
-    List<ReservationHistory> getHistory(@RequestParam Long eateryId) {
-       return reservationService.history(eateryId);
+    @GetMapping(path = "/history")
+    ResponseEntity<List<ReservationHistory>> getHistory(
+            @RequestParam Long eateryId,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "100") int limit
+    ) {
+        int pageLimit = Math.min(limit, MAX_HISTORY_LIMIT);
+        List<ReservationHistory> history = reservationService.history(eateryId, status, from, to, after, pageLimit);
+        return Pagination.response(history, pageLimit, ReservationService::historyCursor);
+    }
+
+    /**
+     * Exports the reservation history ordered by the time of change, streamed while it is read from the database.
+     * The export is gzip compressed if the client accepts it.
+     * @param eateryId Only records of this eatery.
+     * @param format ndjson (default) or csv.
+     * @param from Only records changed at or after this time.
+     * @param to Only records changed before this time.
+     * @param acceptEncoding Accept-Encoding header of the request.
+     * @return The streamed export.
+     */
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully exported"),
+            @ApiResponse(responseCode = "400", description = "Invalid request parameters"),
+            @ApiResponse(responseCode = "500", description = "Reservation history could not be exported")
+    })
+    @GetMapping(path = "/history/export", produces = {"application/x-ndjson", "text/csv"})
+    ResponseEntity<StreamingResponseBody> exportHistory(
+            @RequestParam(required = false) Long eateryId,
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding
+    ) {
+        ReservationHistoryExporter.Format exportFormat = ReservationHistoryExporter.Format.parse(format);
+        boolean gzip = acceptsGzip(acceptEncoding);
+        StreamingResponseBody body = output -> {
+            if (gzip) {
+                GZIPOutputStream compressed = new GZIPOutputStream(output, EXPORT_BUFFER_SIZE);
+                historyExporter.export(eateryId, from, to, exportFormat, compressed);
+                compressed.finish();
+            } else {
+                historyExporter.export(eateryId, from, to, exportFormat, output);
+            }
+        };
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(exportFormat.getMediaType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"reservation-history." + exportFormat.name().toLowerCase() + "\"")
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(body);
+    }
+
+    /**
+     * Checks whether an Accept-Encoding header accepts gzip, weighing the codings by their quality values.
+     * An explicit gzip or x-gzip coding takes precedence over the * wildcard, and a quality of 0 rejects the coding.
+     * @param acceptEncoding Accept-Encoding header, null if the request has none.
+     * @return true if gzip is acceptable.
+     */
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Double gzipQuality = null;
+        Double wildcardQuality = null;
+        for (String element : acceptEncoding.split(",")) {
+            String[] parts = element.split(";");
+            String coding = parts[0].trim().toLowerCase();
+            double quality = 1;
+            for (int i = 1; i < parts.length; i++) {
+                String parameter = parts[i].trim();
+                if (parameter.regionMatches(true, 0, "q=", 0, 2)) {
+                    try {
+                        quality = Double.parseDouble(parameter.substring(2).trim());
+                    } catch (NumberFormatException e) {
+                        quality = 0;
+                    }
+                }
+            }
+            if (coding.equals("gzip") || coding.equals("x-gzip")) {
+                gzipQuality = gzipQuality == null ? quality : Math.max(gzipQuality, quality);
+            } else if (coding.equals("*")) {
+                wildcardQuality = quality;
+            }
+        }
+        if (gzipQuality != null) {
+            return gzipQuality > 0;
+        }
+        return wildcardQuality != null && wildcardQuality > 0;
     }
 
     /**
@@ -155,6 +308,12 @@ public class ReservationController {
         return e.getMessage();
     }
 
+    @ExceptionHandler(ReservationConflictException.class)
+    @ResponseStatus(HttpStatus.CONFLICT)
+    String handle(ReservationConflictException e) {
+        return e.getMessage();
+    }
+
     @ExceptionHandler(RuntimeException.class)
     @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
     String handle(RuntimeException e) {
@@ -9,8 +9,10 @@ import com.eatery.service.ReviewService;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
@@ -21,44 +23,104 @@ import java.util.List;
  * retrieving a review by ID, and deleting a review.
  */
 @RestController
-@CrossOrigin(origins = "http://localhost:4200")
-@RequestMapping(path = "/reviews")
+@CrossOrigin(origins = "http://localhost:4200", exposedHeaders = {Pagination.NEXT_CURSOR_HEADER, Pagination.TOTAL_COUNT_HEADER})
+@RequestMapping(
+        path = "/reviews",
+        produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, MediaTypes.APPLICATION_SMILE_VALUE}
+)
 public class ReviewController {
+    private static final int MAX_PAGE_SIZE = 100;
+
     @Autowired
     private ReviewService reviewService;
 
     /**
-     * Fetches all reviews from the database.
-     * @return A list of all reviews.
+     * Fetches one page of the reviews from the database, newest first.
+     * If another page follows, its cursor is returned in the X-Next-Cursor header.
+     * Answers 304 if the page still matches the entity tag in the If-None-Match header.
+     * @param after Cursor returned with the previous page.
+     * @param limit Maximum number of reviews.
+     * @param count Whether to return the number of all reviews in the X-Total-Count header.
+     * @return A page of the reviews.
      */
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Successfully returned"),
+            @ApiResponse(responseCode = "304", description = "Reviews not modified"),
+            @ApiResponse(responseCode = "400", description = "Invalid request parameters"),
             @ApiResponse(responseCode = "404", description = "Reviews not found"),
             @ApiResponse(responseCode = "500", description = "Reviews could not be fetched")
     })
-    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
-    List<Review> getAll() {
-        return reviewService.getAll();
+    @GetMapping
+    ResponseEntity<List<Review>> getAll(
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "20") int limit,
+            @RequestParam(defaultValue = "false") boolean count
+    ) {
+        Slice<Review> reviews = reviewService.getAll(after, Math.min(limit, MAX_PAGE_SIZE));
+        return ETags.headers(
+                Pagination.headers(reviews, review -> String.valueOf(review.getId()), count, reviewService::count),
+                ETags.of(reviews.getContent(), ETags::of)
+        ).body(reviews.getContent());
     }
 
     /**
-     * Fetches all reviews by eatery id.
-     * @return A list of all reviews with eatery id.
+     * Fetches one page of the reviews by eatery id.
+     * If the page is full, the cursor of the next page is returned in the X-Next-Cursor header.
+     * Answers 304 if the page still matches the entity tag in the If-None-Match header.
+     * @param id The ID of the eatery.
+     * @param sort recent (newest first, default) or rating (best first).
+     * @param after Cursor returned with the previous page.
+     * @param limit Maximum number of reviews.
+     * @return A page of the reviews with eatery id.
      */
-    @ApiResponses(value = {@ApiResponse(responseCode = "200", description = "Successfully returned")})
-    @GetMapping(path = "/eatery/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
-    List<Review> getAllByEateryId(@PathVariable Long id) {
-        return reviewService.getAllByEateryId(id);
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully returned"),
+            @ApiResponse(responseCode = "304", description = "Reviews not modified"),
+            @ApiResponse(responseCode = "400", description = "Invalid request parameters")
+    })
+    @GetMapping(path = "/eatery/{id}")
+    ResponseEntity<List<Review>> getAllByEateryId(
+            @PathVariable Long id,
+            @RequestParam(defaultValue = ReviewService.SORT_RECENT) String sort,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "20") int limit
+    ) {
+        int pageLimit = Math.min(limit, MAX_PAGE_SIZE);
+        List<Review> reviews = reviewService.getAllByEateryId(id, sort, after, pageLimit);
+        return ETags.headers(
+                Pagination.headers(reviews, pageLimit, review -> ReviewService.cursor(review, sort)),
+                ETags.of(reviews, ETags::of)
+        ).body(reviews);
     }
 
     /**
-     * Fetches all reviews by customer id.
-     * @return A list of all reviews with customer id.
+     * Fetches one page of the reviews by customer id.
+     * If the page is full, the cursor of the next page is returned in the X-Next-Cursor header.
+     * Answers 304 if the page still matches the entity tag in the If-None-Match header.
+     * @param id The ID of the customer.
+     * @param sort recent (newest first, default) or rating (best first).
+     * @param after Cursor returned with the previous page.
+     * @param limit Maximum number of reviews.
+     * @return A page of the reviews with customer id.
      */
-    @ApiResponses(value = {@ApiResponse(responseCode = "200", description = "Successfully returned")})
-    @GetMapping(path = "/customer/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
-    List<Review> getAllByCustomerId(@PathVariable Long id) {
-        return reviewService.getAllByCustomerId(id);
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully returned"),
+            @ApiResponse(responseCode = "304", description = "Reviews not modified"),
+            @ApiResponse(responseCode = "400", description = "Invalid request parameters")
+    })
+    @GetMapping(path = "/customer/{id}")
+    ResponseEntity<List<Review>> getAllByCustomerId(
+            @PathVariable Long id,
+            @RequestParam(defaultValue = ReviewService.SORT_RECENT) String sort,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "20") int limit
+    ) {
+        int pageLimit = Math.min(limit, MAX_PAGE_SIZE);
+        List<Review> reviews = reviewService.getAllByCustomerId(id, sort, after, pageLimit);
+        return ETags.headers(
+                Pagination.headers(reviews, pageLimit, review -> ReviewService.cursor(review, sort)),
+                ETags.of(reviews, ETags::of)
+        ).body(reviews);
     }
 
     /**
@@ -72,24 +134,27 @@ public class ReviewController {
             @ApiResponse(responseCode = "500", description = "Review could not be created")
     })
     @ResponseStatus(value = HttpStatus.CREATED)
-    @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE)
     Review create(@RequestBody CreateReviewRequest newReview) {
         return reviewService.create(newReview);
     }
 
     /**
      * Fetches a review by their ID.
+     * Answers 304 if the review still matches the entity tag in the If-None-Match header.
      * @param id The ID of the review to retrieve.
      * @return The review with the specified ID.
      */
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Successfully returned"),
+            @ApiResponse(responseCode = "304", description = "Review not modified"),
             @ApiResponse(responseCode = "404", description = "Review not found"),
             @ApiResponse(responseCode = "500", description = "Review could not be fetched")
     })
-    @GetMapping(path = "/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
-    Review get(@PathVariable Long id) {
-        return reviewService.get(id);
+    @GetMapping(path = "/{id}")
+    ResponseEntity<Review> get(@PathVariable Long id) {
+        Review review = reviewService.get(id);
+        return ETags.response(review, ETags.of(review));
     }
 
     /**
@@ -104,7 +169,7 @@ public class ReviewController {
             @ApiResponse(responseCode = "404", description = "Review not found"),
             @ApiResponse(responseCode = "500", description = "Review could not be updated")
     })
-    @PutMapping(path = "/{id}", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    @PutMapping(path = "/{id}", consumes = MediaType.APPLICATION_JSON_VALUE)
     Review replace(@RequestBody UpdateReviewRequest newReview, @PathVariable Long id) {
         return reviewService.replace(newReview, id);
     }
@@ -119,7 +184,7 @@ public class ReviewController {
             @ApiResponse(responseCode = "500", description = "Review could not be deleted")
     })
     @ResponseStatus(value = HttpStatus.NO_CONTENT)
-    @DeleteMapping(path = "/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
+    @DeleteMapping(path = "/{id}")
     void delete(@PathVariable Long id) {
         reviewService.delete(id);
     }
@@ -0,0 +1,29 @@
+package com.eatery.api.controller;
+
+import java.util.Locale;
+import java.util.function.Supplier;
+
+/**
+ * Predefined views of the list responses, selected with the view parameter.
+ * The summary view is a DTO projection of a few columns, the detail view is the full entity.
+ */
+enum View {
+    SUMMARY,
+    DETAIL;
+
+    static final String DEFAULT = "detail";
+
+    /**
+     * Parses the view parameter.
+     * @param view name of the view, case insensitive
+     * @param invalid creates the exception of an unknown view
+     * @return view
+     */
+    static View parse(String view, Supplier<? extends RuntimeException> invalid) {
+        try {
+            return valueOf(view.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw invalid.get();
+        }
+    }
+}
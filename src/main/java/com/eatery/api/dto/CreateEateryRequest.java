@@ -19,4 +19,6 @@ public class CreateEateryRequest {
     private int guestCapacity;
     private Set<BusinessDayTime> businessDayTimes;
     private long managerId;
+    private Double latitude;
+    private Double longitude;
 }
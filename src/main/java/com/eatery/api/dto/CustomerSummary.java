@@ -0,0 +1,19 @@
+package com.eatery.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Data Transfer Object (DTO) of the summary view of a customer, as shown in lists.
+ * It is projected from the customer table, so no reservations or reviews are loaded.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CustomerSummary {
+    private long id;
+    private String firstName;
+    private String lastName;
+    private String username;
+}
@@ -0,0 +1,27 @@
+package com.eatery.api.dto;
+
+import com.eatery.entity.Eatery;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Data Transfer Object (DTO) of the summary view of an eatery, as shown in lists.
+ * It is projected from the eatery and rating tables, so no reviews, reservations or business day times are loaded.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class EaterySummary {
+    private long id;
+    private Eatery.Type type;
+    private String name;
+    private String address;
+    private Double latitude;
+    private Double longitude;
+
+    /**
+     * Average rating rounded down, 0 without reviews.
+     */
+    private long rating;
+}
@@ -18,4 +18,6 @@ public class UpdateEateryRequest {
     private String phoneNumber;
     private int guestCapacity;
     private Set<BusinessDayTime> businessDayTimes;
+    private Double latitude;
+    private Double longitude;
 }
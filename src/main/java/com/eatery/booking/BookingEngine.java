@@ -0,0 +1,462 @@
+package com.eatery.booking;
+
+import com.eatery.api.dto.CreateReservationRequest;
+import com.eatery.api.dto.UpdateReservationRequest;
+import com.eatery.entity.Customer;
+import com.eatery.entity.Eatery;
+import com.eatery.entity.Reservation;
+import com.eatery.exception.ReservationBadRequestException;
+import com.eatery.exception.ReservationConflictException;
+import com.eatery.exception.ReservationNotFoundException;
+import com.eatery.index.OccupancyIndex;
+import com.eatery.repository.CustomerRepository;
+import com.eatery.repository.EateryRepository;
+import com.eatery.repository.ReservationRepository;
+import com.eatery.service.ReservationService;
+import com.eatery.service.SlotOccupancyService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.Getter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+import static com.eatery.entity.Reservation.Status.CANCELLED;
+import static com.eatery.entity.Reservation.Status.CONFIRMED;
+
+/**
+ * Optional booking engine with a single writer per eatery.
+ * Every eatery has a mailbox which runs its create, replace and cancel commands one after another against
+ * the in-memory occupancy, so commands are admitted without database locks.
+ * A mailbox exists only while the eatery has commands or uncommitted writes and is retired once it is idle.
+ * Admitted changes are written by one committer thread, which commits all changes waiting at that time
+ * in a single transaction (group commit) and completes their futures afterwards.
+ * If a batch fails, its changes are committed one by one, so only the offending change fails.
+ */
+@Component
+public class BookingEngine {
+    private static final Logger logger = LoggerFactory.getLogger(BookingEngine.class);
+
+    @Getter
+    private final boolean enabled;
+    private final int batchSize;
+
+    private final Map<Long, EateryMailbox> mailboxes = new ConcurrentHashMap<>();
+    private final BlockingQueue<Write> writes = new LinkedBlockingQueue<>();
+    private final ExecutorService mailboxExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private volatile boolean running;
+    private Thread committer;
+
+    @Autowired
+    private ReservationService reservationService;
+    @Autowired
+    private SlotOccupancyService slotOccupancyService;
+    @Autowired
+    private OccupancyIndex occupancyIndex;
+    @Autowired
+    private EateryRepository eateryRepository;
+    @Autowired
+    private CustomerRepository customerRepository;
+    @Autowired
+    private ReservationRepository reservationRepository;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    public BookingEngine(
+            @Value("${booking.engine.enabled:false}") boolean enabled,
+            @Value("${booking.engine.batch-size:64}") int batchSize
+    ) {
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+    }
+
+    @PostConstruct
+    void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        committer = Thread.ofPlatform().name("booking-committer").start(this::commitLoop);
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        if (committer != null) {
+            committer.join(TimeUnit.SECONDS.toMillis(10));
+        }
+        mailboxExecutor.shutdown();
+    }
+
+    /**
+     * Creates a reservation through the mailbox of its eatery.
+     * @param reservationRequest The reservation details provided by the customer.
+     * @return future completed with the reservation when its batch is committed
+     * @throws ReservationBadRequestException if the eatery does not exist.
+     */
+    public CompletableFuture<Reservation> create(CreateReservationRequest reservationRequest) {
+        Eatery eatery = eateryRepository.findById(reservationRequest.getEateryId())
+                .orElseThrow(() -> new ReservationBadRequestException("eateryId"));
+        CompletableFuture<Reservation> future = new CompletableFuture<>();
+        tell(eatery.getId(), future, mailbox -> mailbox.create(reservationRequest, future));
+        return future;
+    }
+
+    /**
+     * Replaces the time and guest number of a reservation through the mailbox of its eatery.
+     * @param updateReservation The updated reservation details.
+     * @param id The ID of the reservation to update.
+     * @return future completed with the reservation when its batch is committed
+     * @throws ReservationNotFoundException if the reservation with the specified ID does not exist.
+     */
+    public CompletableFuture<Reservation> replace(UpdateReservationRequest updateReservation, Long id) {
+        Reservation reservation = reservationRepository.findById(id).orElseThrow(ReservationNotFoundException::new);
+        CompletableFuture<Reservation> future = new CompletableFuture<>();
+        tell(reservation.getEateryId(), future, mailbox -> mailbox.replace(id, updateReservation, future));
+        return future;
+    }
+
+    /**
+     * Cancels a reservation through the mailbox of its eatery.
+     * @param id The ID of the reservation to cancel.
+     * @return future completed with the reservation when its batch is committed
+     * @throws ReservationNotFoundException if the reservation with the specified ID does not exist.
+     */
+    public CompletableFuture<Reservation> cancel(Long id) {
+        Reservation reservation = reservationRepository.findById(id).orElseThrow(ReservationNotFoundException::new);
+        CompletableFuture<Reservation> future = new CompletableFuture<>();
+        tell(reservation.getEateryId(), future, mailbox -> mailbox.cancel(id, future));
+        return future;
+    }
+
+    /**
+     * Drops the cached state of an eatery, e.g. after its capacity or business hours changed.
+     * @param eateryId eatery id
+     */
+    public void evict(Long eateryId) {
+        EateryMailbox mailbox = mailboxes.computeIfPresent(eateryId, (id, current) -> {
+            current.post(new CompletableFuture<>(), it -> it.eatery = null);
+            return current;
+        });
+        if (mailbox != null) {
+            mailbox.schedule();
+        }
+    }
+
+    /**
+     * Drops the mailbox of a deleted eatery. Commands already queued fail as the eatery no longer exists.
+     * @param eateryId eatery id
+     */
+    public void remove(Long eateryId) {
+        EateryMailbox mailbox = mailboxes.remove(eateryId);
+        if (mailbox != null) {
+            mailbox.tell(new CompletableFuture<>(), it -> it.eatery = null);
+        }
+    }
+
+    /**
+     * Number of eateries which currently have a mailbox.
+     */
+    int mailboxCount() {
+        return mailboxes.size();
+    }
+
+    /**
+     * Queues a command in the mailbox of an eatery, creating the mailbox if the eatery has none.
+     * The command is added within the map update, so it never lands in a mailbox which is retired concurrently.
+     */
+    private void tell(Long eateryId, CompletableFuture<Reservation> future, Consumer<EateryMailbox> command) {
+        EateryMailbox mailbox = mailboxes.compute(eateryId, (id, current) -> {
+            EateryMailbox target = current != null ? current : new EateryMailbox(id);
+            target.post(future, command);
+            return target;
+        });
+        mailbox.schedule();
+    }
+
+    private void commitLoop() {
+        List<Write> batch = new ArrayList<>(batchSize);
+        while (running || !writes.isEmpty()) {
+            try {
+                Write first = writes.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                writes.drainTo(batch, batchSize - 1);
+                commit(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                logger.error("Booking batch could not be committed", e);
+                batch.forEach(write -> write.fail(e));
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Commits a batch of writes in one transaction, falling back to one transaction per write if the batch fails.
+     */
+    private void commit(List<Write> batch) {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                List<Reservation> saved = transactionTemplate.execute(status -> batch.stream().map(Write::persist).toList());
+                for (int i = 0; i < batch.size(); i++) {
+                    batch.get(i).succeed(Objects.requireNonNull(saved).get(i));
+                }
+                return;
+            } catch (SlotOccupancyService.MissingSlotsException e) {
+                if (attempt >= batch.size()) {
+                    batch.forEach(write -> write.fail(e));
+                    return;
+                }
+                slotOccupancyService.prepare(e);
+            } catch (RuntimeException e) {
+                if (batch.size() == 1) {
+                    batch.getFirst().fail(e);
+                } else {
+                    batch.forEach(write -> commit(List.of(write)));
+                }
+                return;
+            }
+        }
+    }
+
+    private static Reservation copy(Reservation reservation) {
+        Reservation copy = new Reservation(
+                reservation.getCustomerId(),
+                reservation.getEateryId(),
+                reservation.getReservationDateTime(),
+                reservation.getGuestNumber()
+        );
+        copy.setId(reservation.getId());
+        copy.setStatus(reservation.getStatus());
+        copy.setVersion(reservation.getVersion());
+        return copy;
+    }
+
+    /**
+     * Mailbox and in-memory state of one eatery. Commands run one at a time on a virtual thread.
+     */
+    private class EateryMailbox {
+        private final Long eateryId;
+        private final Queue<Runnable> commands = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        // state below is only accessed by commands
+        private Eatery eatery;
+        private final Map<Long, Reservation> uncommitted = new HashMap<>();
+        private final Map<Long, Write> lastWrites = new HashMap<>();
+        private int pendingWrites;
+
+        EateryMailbox(Long eateryId) {
+            this.eateryId = eateryId;
+        }
+
+        /**
+         * Queues a command of a mailbox which cannot be retired meanwhile, as it has pending writes or is removed.
+         */
+        void tell(CompletableFuture<Reservation> future, Consumer<EateryMailbox> command) {
+            post(future, command);
+            schedule();
+        }
+
+        void post(CompletableFuture<Reservation> future, Consumer<EateryMailbox> command) {
+            commands.add(() -> {
+                try {
+                    command.accept(this);
+                } catch (RuntimeException e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        }
+
+        void schedule() {
+            if (scheduled.compareAndSet(false, true)) {
+                mailboxExecutor.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            Runnable command;
+            while ((command = commands.poll()) != null) {
+                command.run();
+            }
+            if (pendingWrites == 0) {
+                // commands are only added within the map update, so an empty queue stays empty once retired
+                mailboxes.computeIfPresent(eateryId, (id, current) -> current == this && commands.isEmpty() ? null : current);
+            }
+            scheduled.set(false);
+            if (!commands.isEmpty() && scheduled.compareAndSet(false, true)) {
+                mailboxExecutor.execute(this::drain);
+            }
+        }
+
+        void create(CreateReservationRequest reservationRequest, CompletableFuture<Reservation> future) {
+            Eatery reservationEatery = eatery();
+            Customer customer = customerRepository.findById(reservationRequest.getCustomerId())
+                    .orElseThrow(() -> new ReservationBadRequestException("customerId"));
+            reservationService.checkAvailability(
+                    reservationEatery, reservationRequest.getReservationDateTime(), reservationRequest.getGuestNumber()
+            );
+
+            Reservation reservation = new Reservation(
+                    customer.getId(),
+                    eateryId,
+                    reservationRequest.getReservationDateTime(),
+                    reservationRequest.getGuestNumber()
+            );
+            reservation.setStatus(CONFIRMED);
+            occupancyIndex.add(reservation);
+            enqueue(new Write(this, reservation, null, customer.getPhoneNumber(), reservationEatery.getGuestCapacity(), future));
+        }
+
+        void replace(Long id, UpdateReservationRequest updateReservation, CompletableFuture<Reservation> future) {
+            Eatery reservedEatery = eatery();
+            Reservation previous = current(id);
+            Customer customer = customerRepository.findById(previous.getCustomerId())
+                    .orElseThrow(() -> new ReservationBadRequestException("customerId"));
+
+            // the reservation must not compete with its own current time slot
+            boolean confirmed = CONFIRMED.equals(previous.getStatus());
+            if (confirmed) {
+                occupancyIndex.remove(previous);
+            }
+            try {
+                reservationService.checkAvailability(
+                        reservedEatery, updateReservation.getReservationDateTime(), updateReservation.getGuestNumber()
+                );
+            } catch (RuntimeException e) {
+                if (confirmed) {
+                    occupancyIndex.add(previous);
+                }
+                throw e;
+            }
+
+            Reservation reservation = copy(previous);
+            reservation.setReservationDateTime(updateReservation.getReservationDateTime());
+            reservation.setGuestNumber(updateReservation.getGuestNumber());
+            reservation.setStatus(CONFIRMED);
+            occupancyIndex.add(reservation);
+            enqueue(new Write(this, reservation, previous, customer.getPhoneNumber(), reservedEatery.getGuestCapacity(), future));
+        }
+
+        void cancel(Long id, CompletableFuture<Reservation> future) {
+            Eatery reservedEatery = eatery();
+            Reservation previous = current(id);
+            Customer customer = customerRepository.findById(previous.getCustomerId())
+                    .orElseThrow(() -> new ReservationBadRequestException("customerId"));
+            if (!CONFIRMED.equals(previous.getStatus())) {
+                throw new ReservationBadRequestException("status");
+            }
+
+            Reservation reservation = copy(previous);
+            reservation.setStatus(CANCELLED);
+            occupancyIndex.remove(previous);
+            enqueue(new Write(this, reservation, previous, customer.getPhoneNumber(), reservedEatery.getGuestCapacity(), future));
+        }
+
+        /**
+         * Returns the latest admitted state of a reservation, which may not be committed yet.
+         */
+        private Reservation current(Long id) {
+            Reservation reservation = uncommitted.get(id);
+            if (reservation != null) {
+                return reservation;
+            }
+            return reservationRepository.findById(id).orElseThrow(ReservationNotFoundException::new);
+        }
+
+        private Eatery eatery() {
+            if (eatery == null) {
+                eatery = eateryRepository.findById(eateryId)
+                        .orElseThrow(() -> new ReservationBadRequestException("eateryId"));
+            }
+            return eatery;
+        }
+
+        private void enqueue(Write write) {
+            Long id = write.reservation.getId();
+            if (id != null) {
+                // the state after the commit has the next version, so a following change of the same batch
+                // is based on it and a change after a failed write is rejected as a conflict
+                Reservation committed = copy(write.reservation);
+                committed.setVersion(write.reservation.getVersion() + 1);
+                uncommitted.put(id, committed);
+                lastWrites.put(id, write);
+            }
+            pendingWrites++;
+            writes.add(write);
+        }
+
+        /**
+         * Forgets the uncommitted state of a reservation once its last write is done,
+         * and reverts the in-memory occupancy of a failed write.
+         */
+        void done(Write write, boolean committed) {
+            pendingWrites--;
+            if (!committed) {
+                if (CONFIRMED.equals(write.reservation.getStatus())) {
+                    occupancyIndex.remove(write.reservation);
+                }
+                if (write.previous != null && CONFIRMED.equals(write.previous.getStatus())) {
+                    occupancyIndex.add(write.previous);
+                }
+            }
+            Long id = write.reservation.getId();
+            if (id != null && lastWrites.get(id) == write) {
+                lastWrites.remove(id);
+                uncommitted.remove(id);
+            }
+        }
+    }
+
+    /**
+     * Admitted reservation change waiting for the group commit.
+     */
+    private class Write {
+        private final EateryMailbox mailbox;
+        private final Reservation reservation;
+        private final Reservation previous;
+        private final String customerPhoneNumber;
+        private final int guestCapacity;
+        private final CompletableFuture<Reservation> future;
+
+        Write(EateryMailbox mailbox, Reservation reservation, Reservation previous, String customerPhoneNumber,
+              int guestCapacity, CompletableFuture<Reservation> future) {
+            this.mailbox = mailbox;
+            this.reservation = reservation;
+            this.previous = previous;
+            this.customerPhoneNumber = customerPhoneNumber;
+            this.guestCapacity = guestCapacity;
+            this.future = future;
+        }
+
+        Reservation persist() {
+            // a fresh copy per attempt, so a rolled back batch leaves no generated ID behind
+            return reservationService.persist(copy(reservation), previous, customerPhoneNumber, guestCapacity);
+        }
+
+        void succeed(Reservation saved) {
+            mailbox.tell(future, it -> it.done(this, true));
+            future.complete(saved);
+        }
+
+        void fail(Throwable e) {
+            mailbox.tell(future, it -> it.done(this, false));
+            future.completeExceptionally(e instanceof OptimisticLockingFailureException ? new ReservationConflictException() : e);
+        }
+    }
+}
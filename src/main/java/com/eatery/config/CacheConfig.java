@@ -0,0 +1,78 @@
+package com.eatery.config;
+
+import com.eatery.entity.Eatery;
+import com.eatery.entity.EateryManager;
+import com.eatery.entity.EateryRating;
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.UUID;
+
+/**
+ * Configuration of the Hibernate second-level cache.
+ * Eateries, managers and rating aggregates are cached in bounded Caffeine regions with a time to live.
+ * Writes through Hibernate invalidate their entries on commit, the time to live bounds how long a node
+ * may serve an entry changed by another node.
+ * Hit and miss counts are published as hibernate.second.level.cache.requests metrics.
+ */
+@Configuration
+public class CacheConfig {
+    static final String QUERY_RESULTS_REGION = "default-query-results-region";
+    static final String UPDATE_TIMESTAMPS_REGION = "default-update-timestamps-region";
+
+    /**
+     * Creates the cache regions of this application context.
+     * Each context gets its own cache manager, so regions are never shared between contexts of one JVM.
+     * @param maxSize maximum number of entries per region
+     * @param ttl time to live of an entry after it was written
+     * @return JCache cache manager used by Hibernate
+     */
+    @Bean(destroyMethod = "close")
+    CacheManager hibernateCacheManager(
+            @Value("${cache.entity.max-size:10000}") long maxSize,
+            @Value("${cache.entity.ttl:PT10M}") Duration ttl
+    ) {
+        CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+                .getCacheManager(URI.create("eatery-" + UUID.randomUUID()), getClass().getClassLoader());
+        for (String region : List.of(Eatery.class.getName(), EateryManager.class.getName(), EateryRating.class.getName(), QUERY_RESULTS_REGION)) {
+            CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+            configuration.setMaximumSize(OptionalLong.of(maxSize));
+            configuration.setExpireAfterWrite(OptionalLong.of(ttl.toNanos()));
+            cacheManager.createCache(region, configuration);
+        }
+        // cached query results are only valid while the update timestamps of their tables are known
+        cacheManager.createCache(UPDATE_TIMESTAMPS_REGION, new CaffeineConfiguration<>());
+        return cacheManager;
+    }
+
+    /**
+     * Enables the second-level and query cache of Hibernate on the cache manager of this context.
+     * @param hibernateCacheManager cache manager holding the regions
+     * @return customizer of the Hibernate properties
+     */
+    @Bean
+    HibernatePropertiesCustomizer hibernateCacheCustomizer(CacheManager hibernateCacheManager) {
+        return properties -> {
+            properties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, true);
+            properties.put(AvailableSettings.USE_QUERY_CACHE, true);
+            properties.put(AvailableSettings.CACHE_REGION_FACTORY, "jcache");
+            properties.put(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
+            properties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+            // statistics feed the cache metrics, without logging the metrics of every session
+            properties.put(AvailableSettings.GENERATE_STATISTICS, true);
+            properties.put(AvailableSettings.LOG_SESSION_METRICS, false);
+        };
+    }
+}
@@ -0,0 +1,38 @@
+package com.eatery.config;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+/**
+ * Configuration of the binary response formats CBOR and Smile.
+ * Both converters are built from the Jackson2ObjectMapperBuilder of Spring Boot, so they apply the same modules,
+ * features and entity annotations as the JSON converter and replace the default converters of Spring MVC.
+ * The entity tags of the cacheable reads name the negotiated format, and those responses vary by the Accept header.
+ */
+@Configuration
+public class ContentNegotiationConfig {
+    /**
+     * Converter of application/cbor.
+     * @param builder object mapper builder of Spring Boot, a new instance per injection point
+     * @return CBOR message converter
+     */
+    @Bean
+    MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+    }
+
+    /**
+     * Converter of application/x-jackson-smile.
+     * @param builder object mapper builder of Spring Boot, a new instance per injection point
+     * @return Smile message converter
+     */
+    @Bean
+    MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(builder.factory(new SmileFactory()).build());
+    }
+}
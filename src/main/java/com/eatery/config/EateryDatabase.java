@@ -5,6 +5,8 @@ import com.eatery.repository.EateryManagerRepository;
 import com.eatery.repository.CustomerRepository;
 import com.eatery.repository.EateryRepository;
 import com.eatery.repository.ReviewRepository;
+import com.eatery.security.PasswordHasher;
+import com.eatery.service.EateryRatingService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.CommandLineRunner;
@@ -29,17 +31,26 @@ public class EateryDatabase {
      * @param eateryRepository Repository to handle Eatery entities
      * @param customerRepository Repository to handle Customer entities
      * @param eateryManagerRepository Repository to handle EateryManager entities
+     * @param reviewRepository Repository to handle Review entities
+     * @param passwordHasher Hasher for the passwords of the preloaded users
+     * @param eateryRatingService Service computing the rating aggregates of the preloaded eateries
      * @return CommandLineRunner that initializes the database with predefined data
      */
     @Bean
-    CommandLineRunner initDatabase(EateryRepository eateryRepository, CustomerRepository customerRepository, EateryManagerRepository eateryManagerRepository, ReviewRepository reviewRepository) {
+    CommandLineRunner initDatabase(EateryRepository eateryRepository, CustomerRepository customerRepository, EateryManagerRepository eateryManagerRepository, ReviewRepository reviewRepository, PasswordHasher passwordHasher, EateryRatingService eateryRatingService) {
         return args -> {
+            // Usernames are unique, so data preloaded by an earlier start must not be preloaded again
+            if (eateryManagerRepository.count() > 0) {
+                logger.info("Skipping preloading, database is already initialized");
+                return;
+            }
+
             // Preload eatery manager entities into the database
             EateryManager managerRestaurant1 = new EateryManager(
                     "Erika",
                     "Müller",
                     "erikamüller",
-                    "13353Ber",
+                    passwordHasher.hash("13353Ber"),
                     1,
                     "Receptionist",
                     Set.of(
@@ -54,7 +65,7 @@ public class EateryDatabase {
                     "Tina",
                     "Lindner",
                     "lindner.tina",
-                    "12345Abc!",
+                    passwordHasher.hash("12345Abc!"),
                     2,
                     "Bar Manager",
                     Set.of(
@@ -70,7 +81,7 @@ public class EateryDatabase {
                     "Elisa",
                     "Köhler",
                     "kelisa",
-                    "k03h13r",
+                    passwordHasher.hash("k03h13r"),
                     3,
                     "Assistant",
                     Set.of(
@@ -100,6 +111,8 @@ public class EateryDatabase {
                     "info@jim-block.de",
                     "040 30382217"
             );
+            restaurant1.setLatitude(53.5523);
+            restaurant1.setLongitude(9.9925);
             restaurant1.setManagerId(managerRestaurant1.getId());
             logger.info("Preloading {}", eateryRepository.save(restaurant1));
 
@@ -118,6 +131,8 @@ public class EateryDatabase {
                     "cocktails@pussers.info",
                     "089 220500"
             );
+            bar1.setLatitude(48.1389);
+            bar1.setLongitude(11.5795);
             bar1.setManagerId(managerBar1.getId());
             logger.info("Preloading {}", eateryRepository.save(bar1));
 
@@ -135,6 +150,8 @@ public class EateryDatabase {
                     "info@cafe-anna-blume.de",
                     "030 44048749"
             );
+            cafe1.setLatitude(52.5369);
+            cafe1.setLongitude(13.4177);
             cafe1.setManagerId(managerCafe1.getId());
             logger.info("Preloading {}", eateryRepository.save(cafe1));
 
@@ -144,7 +161,7 @@ public class EateryDatabase {
                             "Max",
                             "Mustermann",
                             "maxMustermann",
-                            "max1985",
+                            passwordHasher.hash("max1985"),
                             "+4915212345678"
                     )
             ));
@@ -153,7 +170,7 @@ public class EateryDatabase {
                             "Alexandra",
                             "Ullrich",
                             "ullrich-A",
-                            "p455w0rd",
+                            passwordHasher.hash("p455w0rd"),
                             "+4915312345678"
                     )
             ));
@@ -165,6 +182,9 @@ public class EateryDatabase {
             logger.info("Preloading {}", reviewRepository.save(
                     new Review(2, 2, "the cocktails taste average", 3)
             ));
+
+            // The preloaded eateries and reviews are saved without their rating aggregates
+            eateryRatingService.repairAll();
         };
     }
 }
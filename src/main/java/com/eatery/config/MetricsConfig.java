@@ -0,0 +1,45 @@
+package com.eatery.config;
+
+import com.eatery.metrics.RepositoryCallsFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+
+/**
+ * Configuration of the application metrics which are not bound to a single service.
+ * Percentile histograms of the timers are enabled in the management.metrics properties.
+ */
+@Configuration
+public class MetricsConfig {
+    /**
+     * Adds the repository call counter to every repository, next to the invocation timers of Spring Boot.
+     * Static, so the post processor is created before the repository factory beans.
+     * @return post processor of the repository factory beans
+     */
+    @Bean
+    static BeanPostProcessor repositoryCallCounter() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof RepositoryFactoryBeanSupport<?, ?, ?> repositoryFactoryBean) {
+                    repositoryFactoryBean.addRepositoryFactoryCustomizer(
+                            repositoryFactory -> repositoryFactory.addInvocationListener(RepositoryCallsFilter.listener())
+                    );
+                }
+                return bean;
+            }
+        };
+    }
+
+    /**
+     * Records the repository calls per request.
+     * @param meterRegistry registry of the application
+     * @return servlet filter around every request
+     */
+    @Bean
+    RepositoryCallsFilter repositoryCallsFilter(MeterRegistry meterRegistry) {
+        return new RepositoryCallsFilter(meterRegistry);
+    }
+}
@@ -0,0 +1,27 @@
+package com.eatery.config;
+
+import com.twilio.http.TwilioRestClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration of the Twilio client shared by the notification commands.
+ * Twilio.init replaces a static client under a class lock, so commands initializing it per message
+ * serialize all senders and rebuild the HTTP connection pool every time.
+ */
+@Configuration
+public class TwilioConfig {
+    /**
+     * Twilio REST client, which is thread safe and keeps its connections between messages.
+     * Find your Account SID and Auth Token at twilio.com/console and set the environment variables.
+     * See http://twil.io/secure
+     * @param accountSid Twilio account SID
+     * @param authToken Twilio auth token
+     * @return REST client
+     */
+    @Bean
+    TwilioRestClient twilioRestClient(@Value("${twilio.account.id}") String accountSid, @Value("${twilio.auth.token}") String authToken) {
+        return new TwilioRestClient.Builder(accountSid, authToken).build();
+    }
+}
@@ -1,21 +1,29 @@
 package com.eatery.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.annotations.Mutability;
+import org.hibernate.annotations.NotFound;
+import org.hibernate.annotations.NotFoundAction;
 import org.hibernate.type.SqlTypes;
+import org.hibernate.type.descriptor.java.Immutability;
 
 import java.time.LocalDateTime;
-import java.time.LocalTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 import java.util.Set;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Getter
 @Setter
 @NoArgsConstructor
@@ -37,14 +45,37 @@ public class Eatery {
     private String phoneNumber;
     private int guestCapacity;
 
-    // ensures the collection is fetched when the parent entity is loaded,
-    // to access the collection without encountering LazyInitializationException.
-    @OneToMany(mappedBy = "eateryId", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.EAGER)
+    /**
+     * WGS 84 coordinates of the eatery in degrees, used for the nearby search.
+     * Both are null if the location of the eatery is unknown.
+     */
+    private Double latitude;
+    private Double longitude;
+
+    /**
+     * List of reservations associated with the eatery.
+     * The collection grows with the reservation history of the eatery, so it is loaded lazily and never serialized.
+     * Capacity checks use the OccupancyIndex instead of this collection.
+     */
+    @JsonIgnore
+    @OneToMany(mappedBy = "eateryId", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<Reservation> reservationList;
 
+    /**
+     * Business day times of the eatery, only ever replaced as a whole.
+     * Being immutable, cache hits share the set instead of deserializing the JSON column again.
+     */
     @JdbcTypeCode(SqlTypes.JSON)
+    @Mutability(Immutability.class)
     private Set<BusinessDayTime> businessDayTimes = Set.of();
 
+    /**
+     * Business day times compiled into a weekly schedule, created on first use.
+     */
+    @Transient
+    @JsonIgnore
+    private WeeklySchedule weeklySchedule;
+
     /**
      * List of reviews associated with the eatery.
      * This is a one-to-many relationship where the `Review` entity contains a `eateryId` field
@@ -53,10 +84,25 @@ public class Eatery {
     @OneToMany(mappedBy = "eateryId", cascade = CascadeType.ALL)
     private List<Review> reviews;
 
-    private Integer rating;
+    /**
+     * Running rating aggregate of the eatery, so the rating is read without loading the reviews.
+     * Maintained by EateryRatingService, never written through the eatery.
+     */
+    @JsonIgnore
+    @OneToOne
+    @NotFound(action = NotFoundAction.IGNORE)
+    @JoinColumn(name = "id", referencedColumnName = "eateryId", insertable = false, updatable = false,
+            foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT))
+    private EateryRating ratingAggregate;
 
     private long managerId;
 
+    /**
+     * Version for optimistic locking, incremented by every update.
+     */
+    @Version
+    private Long version;
+
     public Eatery(Type type, String name, String address, Set<BusinessDayTime> businessDayTimes, int guestCapacity, String email, String phoneNumber) {
         this.type = type;
         this.name = name;
@@ -66,7 +112,6 @@ public class Eatery {
         this.email = email;
         this.phoneNumber = phoneNumber;
         this.reviews = new ArrayList<>();
-        this.rating = 0;
     }
 
     private Eatery(Type type, String name, String address) {
@@ -87,19 +132,36 @@ public class Eatery {
         return new Eatery(type, name, address);
     }
 
+    public void setBusinessDayTimes(Set<BusinessDayTime> businessDayTimes) {
+        this.businessDayTimes = businessDayTimes;
+        this.weeklySchedule = null;
+    }
+
+    public WeeklySchedule getWeeklySchedule() {
+        if (this.weeklySchedule == null) {
+            this.weeklySchedule = WeeklySchedule.of(this.businessDayTimes);
+        }
+        return this.weeklySchedule;
+    }
+
     public boolean isOpen() {
-        return this.businessDayTimes.stream()
-                .anyMatch(it ->
-                        it.day().equals(LocalDateTime.now().getDayOfWeek()) &&
-                        LocalTime.now().isAfter(it.startTime()) && LocalTime.now().isBefore(it.endTime())
-                );
+        return getWeeklySchedule().isOpenAt(LocalDateTime.now());
     }
 
     public int getRating() {
-        if (this.reviews == null || this.reviews.isEmpty()) {
-            return 0;
-        }
-        return this.reviews.stream().mapToInt(Review::getRating).sum() / reviews.size();
+        return this.ratingAggregate != null ? this.ratingAggregate.average() : 0;
+    }
+
+    public long getRatingCount() {
+        return this.ratingAggregate != null ? this.ratingAggregate.getRatingCount() : 0;
+    }
+
+    /**
+     * Returns the number of reviews per rating.
+     * @return element 0 is the number of one star reviews
+     */
+    public long[] getRatingHistogram() {
+        return this.ratingAggregate != null ? this.ratingAggregate.histogram() : new long[EateryRating.MAX_RATING];
     }
 
     @Override
@@ -127,12 +189,13 @@ public class Eatery {
                 ", email='" + email + '\'' +
                 ", phoneNumber='" + phoneNumber + '\'' +
                 ", guestCapacity=" + guestCapacity +
-                ", reservationList=" + reservationList +
+                ", latitude=" + latitude +
+                ", longitude=" + longitude +
                 ", businessDayTimes=" + businessDayTimes +
                 ", reviews=" + reviews +
                 ", eateryManagerId=" + managerId +
                 ", managerId=" + managerId +
-                ", rating=" + rating +
+                ", rating=" + getRating() +
                 '}';
     }
 
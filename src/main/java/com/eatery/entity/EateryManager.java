@@ -4,8 +4,12 @@ import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.annotations.Mutability;
 import org.hibernate.type.SqlTypes;
+import org.hibernate.type.descriptor.java.Immutability;
 
 import java.util.Objects;
 import java.util.Set;
@@ -16,6 +20,8 @@ import java.util.Set;
  * The `EateryManager` manages an `Eatery` and has the same attributes as a regular user, such as first name, last name, email, and phone number.
  */
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Getter
 @Setter
 @NoArgsConstructor
@@ -31,6 +37,7 @@ public class EateryManager extends Person {
     private String jobTitle;
 
     @JdbcTypeCode(SqlTypes.JSON)
+    @Mutability(Immutability.class)
     private Set<BusinessDayTime> workSchedules = Set.of();
 
     /**
@@ -0,0 +1,102 @@
+package com.eatery.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
+/**
+ * Running rating aggregate of an eatery, maintained by every review change.
+ * Reading the rating of an eatery costs one row instead of loading all its reviews.
+ */
+@Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@Getter
+@Setter
+@NoArgsConstructor
+@BatchSize(size = 100)
+public class EateryRating {
+    public static final int MIN_RATING = 1;
+    public static final int MAX_RATING = 5;
+
+    /**
+     * The eatery of the aggregate, also its primary key.
+     */
+    @Id
+    private Long eateryId;
+
+    private long ratingSum;
+    private long ratingCount;
+
+    /**
+     * Number of reviews per rating, from one to five stars.
+     */
+    private long oneStar;
+    private long twoStars;
+    private long threeStars;
+    private long fourStars;
+    private long fiveStars;
+
+    /**
+     * Incremented by every review change of the eatery, also by changes which keep the rating.
+     * Together with the eatery version it identifies the serialized eatery including its reviews.
+     */
+    private long revision;
+
+    public EateryRating(Long eateryId) {
+        this.eateryId = eateryId;
+    }
+
+    /**
+     * Returns the average rating, rounded down like the rating computed from the reviews before.
+     * @return average rating, 0 without reviews
+     */
+    public int average() {
+        return ratingCount == 0 ? 0 : (int) (ratingSum / ratingCount);
+    }
+
+    /**
+     * Returns the number of reviews per rating.
+     * @return element 0 is the number of one star reviews
+     */
+    public long[] histogram() {
+        return new long[]{oneStar, twoStars, threeStars, fourStars, fiveStars};
+    }
+
+    /**
+     * Adds a number of reviews with the same rating.
+     * @param rating rating, between {@link #MIN_RATING} and {@link #MAX_RATING} for the histogram
+     * @param count number of reviews
+     */
+    public void add(int rating, long count) {
+        ratingSum += rating * count;
+        ratingCount += count;
+        switch (rating) {
+            case 1 -> oneStar += count;
+            case 2 -> twoStars += count;
+            case 3 -> threeStars += count;
+            case 4 -> fourStars += count;
+            case 5 -> fiveStars += count;
+            default -> {
+                // ratings of reviews written before the range was validated only count towards the average
+            }
+        }
+    }
+
+    /**
+     * Removes all reviews, keeping the revision.
+     */
+    public void clear() {
+        ratingSum = 0;
+        ratingCount = 0;
+        oneStar = 0;
+        twoStars = 0;
+        threeStars = 0;
+        fourStars = 0;
+        fiveStars = 0;
+    }
+}
@@ -5,13 +5,21 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 
+import java.time.LocalDateTime;
 import java.util.Date;
 import java.util.Objects;
 
+/**
+ * Outbox entry of a message to a customer.
+ * Notifications are written in the same transaction as the reservation change they announce
+ * and delivered afterwards by the NotificationDispatcher, which records the delivery status.
+ * A dispatcher claims a notification before sending it, so every node of the application sends it only once.
+ */
 @Entity
 @Getter
 @Setter
 @NoArgsConstructor
+@Table(indexes = {@Index(columnList = "status, nextAttemptAt"), @Index(columnList = "claimToken")})
 public class Notification {
     @Column(unique = true, nullable = false)
     private @Id
@@ -19,28 +27,70 @@ public class Notification {
 
     private Long customerId;
     private Long reservationId;
+    private String phoneNumber;
     private String message;
 
+    @Enumerated(EnumType.STRING)
+    private Status status;
+
+    /**
+     * Number of delivery attempts made so far.
+     */
+    private int attempts;
+
+    /**
+     * Earliest time of the next delivery attempt of a pending notification.
+     */
+    private LocalDateTime nextAttemptAt;
+
+    /**
+     * Token of the dispatch which claimed the notification while it is in flight.
+     */
+    private String claimToken;
+
+    /**
+     * End of the claim of an in flight notification, after which another dispatch may claim it again.
+     */
+    private LocalDateTime leaseUntil;
+
+    @Version
+    private Long version;
+
+    private LocalDateTime sentAt;
+    private String lastError;
+
     @Temporal(TemporalType.TIMESTAMP)
     @Column(columnDefinition="TIMESTAMP DEFAULT CURRENT_TIMESTAMP", insertable = false, updatable = false)
     private Date createdAt;
 
-    public Notification(Long customerId, Long reservationId, String message) {
+    public enum Status {
+        PENDING,
+        IN_FLIGHT,
+        SENT,
+        FAILED
+    }
+
+    public Notification(Long customerId, Long reservationId, String phoneNumber, String message) {
         this.customerId = customerId;
         this.reservationId = reservationId;
+        this.phoneNumber = phoneNumber;
         this.message = message;
+        this.status = Status.PENDING;
+        this.nextAttemptAt = LocalDateTime.now();
     }
 
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
         if (!(o instanceof Notification that)) return false;
-        return Objects.equals(id, that.id) && Objects.equals(customerId, that.customerId) && Objects.equals(reservationId, that.reservationId) && Objects.equals(message, that.message) && Objects.equals(createdAt, that.createdAt);
+        return attempts == that.attempts && Objects.equals(id, that.id) && Objects.equals(customerId, that.customerId) &&
+                Objects.equals(reservationId, that.reservationId) && Objects.equals(phoneNumber, that.phoneNumber) &&
+                Objects.equals(message, that.message) && status == that.status && Objects.equals(createdAt, that.createdAt);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(id, customerId, reservationId, message, createdAt);
+        return Objects.hash(id, customerId, reservationId, phoneNumber, message, status, attempts, createdAt);
     }
 
     @Override
@@ -49,7 +99,14 @@ public class Notification {
                 "id=" + id +
                 ", customerId=" + customerId +
                 ", reservationId=" + reservationId +
+                ", phoneNumber='" + phoneNumber + '\'' +
                 ", message='" + message + '\'' +
+                ", status=" + status +
+                ", attempts=" + attempts +
+                ", nextAttemptAt=" + nextAttemptAt +
+                ", leaseUntil=" + leaseUntil +
+                ", sentAt=" + sentAt +
+                ", lastError='" + lastError + '\'' +
                 ", createdAt=" + createdAt +
                 '}';
     }
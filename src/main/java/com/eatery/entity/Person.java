@@ -1,5 +1,6 @@
 package com.eatery.entity;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -17,7 +18,13 @@ import lombok.Setter;
 public class Person {
     private String firstName;
     private String lastName;
+    @Column(unique = true)
     private String username;
+
+    /**
+     * Salted password hash, it is accepted in requests but never written to responses.
+     */
+    @JsonProperty(access = JsonProperty.Access.WRITE_ONLY)
     private String password;
 
     /**
@@ -51,6 +51,13 @@ public class Reservation {
     private int guestNumber;
     private Status status;
 
+    /**
+     * Version for optimistic locking, incremented by every update.
+     * A change based on an outdated version is rejected instead of overwriting a concurrent change.
+     */
+    @Version
+    private Long version;
+
     public enum Status {
         CONFIRMED,
         COMPLETED,
@@ -11,15 +11,31 @@ import lombok.NoArgsConstructor;
 import lombok.Setter;
 import org.hibernate.annotations.CreationTimestamp;
 
+import java.sql.Timestamp;
 import java.time.LocalDateTime;
 import java.util.Date;
 import java.util.Objects;
 
+/**
+ * Immutable record of one state of a reservation, written by every reservation change.
+ * The index on (eateryId, timestamp, id) serves the keyset pagination and the export of the history of an eatery,
+ * the index on (timestamp, id) serves the export of the history of all eateries without sorting the table.
+ */
 @Entity
 @Getter
 @Setter
 @NoArgsConstructor
+@Table(indexes = {
+        @Index(name = "idx_reservation_history_eatery_timestamp", columnList = "eateryId, timestamp, id"),
+        @Index(name = "idx_reservation_history_timestamp", columnList = "timestamp, id")
+})
 public class ReservationHistory implements Comparable<ReservationHistory> {
+    /**
+     * Bounds of the timestamps of all records, used when a time range is open.
+     */
+    public static final Date HISTORY_START = new Date(0);
+    public static final Date HISTORY_END = Timestamp.valueOf("9999-12-31 00:00:00");
+
     @Column(unique = true, nullable = false)
     private @Id @GeneratedValue(strategy = GenerationType.IDENTITY) Long id;
 
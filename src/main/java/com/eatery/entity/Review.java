@@ -5,10 +5,20 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 
+/**
+ * Review of an eatery written by a customer.
+ * The indexes serve the keyset pagination of the reviews of an eatery or customer by recency and by rating.
+ */
 @Entity
 @Getter
 @Setter
 @NoArgsConstructor
+@Table(indexes = {
+        @Index(name = "idx_review_eatery_id", columnList = "eateryId, id"),
+        @Index(name = "idx_review_eatery_rating", columnList = "eateryId, rating, id"),
+        @Index(name = "idx_review_customer_id", columnList = "customerId, id"),
+        @Index(name = "idx_review_customer_rating", columnList = "customerId, rating, id")
+})
 public class Review {
     @Column(unique = true, nullable = false)
     private @Id @GeneratedValue(strategy = GenerationType.IDENTITY) Long id;
@@ -0,0 +1,48 @@
+package com.eatery.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Number of guests of confirmed reservations present at an eatery during one time bucket.
+ * Rows are the source of truth for admission: a reservation is admitted by a single conditional update
+ * over all buckets it covers, so concurrent bookings on different nodes cannot overbook an eatery.
+ * Rows of past buckets and of deleted eateries are pruned by the SlotOccupancyService.
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@Table(
+        uniqueConstraints = @UniqueConstraint(name = SlotOccupancy.UNIQUE_BUCKET, columnNames = {"eateryId", "bucket"}),
+        indexes = @Index(columnList = "bucket")
+)
+public class SlotOccupancy {
+    /**
+     * Unique key of the rows, violated when two transactions seed the same missing bucket concurrently.
+     */
+    public static final String UNIQUE_BUCKET = "uk_slot_occupancy_eatery_bucket";
+
+    @Column(unique = true, nullable = false)
+    private @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY) Long id;
+
+    @Column(nullable = false)
+    private Long eateryId;
+
+    /**
+     * Number of the time bucket since the epoch, see OccupancyIndex.
+     */
+    @Column(nullable = false)
+    private long bucket;
+
+    private int occupied;
+
+    public SlotOccupancy(Long eateryId, long bucket, int occupied) {
+        this.eateryId = eateryId;
+        this.bucket = bucket;
+        this.occupied = occupied;
+    }
+}
@@ -0,0 +1,165 @@
+package com.eatery.entity;
+
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Immutable bitmap of the open minutes of a week, starting on Monday 00:00.
+ * A business day time whose end time is not after its start time runs overnight into the next day,
+ * and an end time of {@link LocalTime#MAX} runs until midnight.
+ * Schedules are interned weakly, so eateries with identical business day times share one instance
+ * and a schedule no eatery uses anymore can be collected.
+ */
+public final class WeeklySchedule {
+    public static final int MINUTES_PER_DAY = 24 * 60;
+    public static final int MINUTES_PER_WEEK = 7 * MINUTES_PER_DAY;
+
+    private static final Map<WeeklySchedule, WeakReference<WeeklySchedule>> INTERNED = new WeakHashMap<>();
+
+    private final long[] words;
+    private final int hashCode;
+
+    private WeeklySchedule(long[] words) {
+        this.words = words;
+        this.hashCode = Arrays.hashCode(words);
+    }
+
+    /**
+     * Compiles business day times into a weekly schedule.
+     * @param businessDayTimes business day times, may be null
+     * @return shared schedule instance
+     */
+    public static WeeklySchedule of(Collection<BusinessDayTime> businessDayTimes) {
+        long[] words = new long[(MINUTES_PER_WEEK + Long.SIZE - 1) / Long.SIZE];
+        if (businessDayTimes != null) {
+            for (BusinessDayTime businessDayTime : businessDayTimes) {
+                int dayStart = (businessDayTime.day().getValue() - 1) * MINUTES_PER_DAY;
+                int start = dayStart + ceilMinute(businessDayTime.startTime());
+                int end = dayStart + ceilMinute(businessDayTime.endTime());
+                if (end <= start) {
+                    end += MINUTES_PER_DAY;
+                }
+                for (int minute = start; minute < end; minute++) {
+                    int index = minute % MINUTES_PER_WEEK;
+                    words[index >>> 6] |= 1L << index;
+                }
+            }
+        }
+        return intern(new WeeklySchedule(words));
+    }
+
+    /**
+     * Returns the shared instance equal to the given schedule, registering the schedule if there is none.
+     * The value is a weak reference as well, a strong value would keep its own key reachable.
+     */
+    private static WeeklySchedule intern(WeeklySchedule schedule) {
+        synchronized (INTERNED) {
+            WeakReference<WeeklySchedule> reference = INTERNED.get(schedule);
+            WeeklySchedule interned = reference != null ? reference.get() : null;
+            if (interned != null) {
+                return interned;
+            }
+            INTERNED.put(schedule, new WeakReference<>(schedule));
+            return schedule;
+        }
+    }
+
+    /**
+     * Checks if the eatery is open at the given time.
+     * @param dateTime date and time to check
+     * @return true if the minute containing the given time is open
+     */
+    public boolean isOpenAt(LocalDateTime dateTime) {
+        return isOpen(minuteOfWeek(dateTime));
+    }
+
+    /**
+     * Checks if the eatery is open during the whole time range.
+     * @param from start of the time range (inclusive)
+     * @param to end of the time range (exclusive)
+     * @return true if every minute touched by the time range is open
+     */
+    public boolean isOpenDuring(LocalDateTime from, LocalDateTime to) {
+        if (!to.isAfter(from)) {
+            return isOpenAt(from);
+        }
+        long minutes = ChronoUnit.MINUTES.between(from.truncatedTo(ChronoUnit.MINUTES), to.minusNanos(1).truncatedTo(ChronoUnit.MINUTES)) + 1;
+        if (minutes >= MINUTES_PER_WEEK) {
+            return allOpen(0, MINUTES_PER_WEEK);
+        }
+        int start = minuteOfWeek(from);
+        int end = start + (int) minutes;
+        if (end <= MINUTES_PER_WEEK) {
+            return allOpen(start, end);
+        }
+        return allOpen(start, MINUTES_PER_WEEK) && allOpen(0, end - MINUTES_PER_WEEK);
+    }
+
+    /**
+     * Checks if the eatery is open at all during the week.
+     * @return true if at least one minute is open
+     */
+    public boolean isEverOpen() {
+        return Arrays.stream(words).anyMatch(word -> word != 0);
+    }
+
+    private boolean isOpen(int minuteOfWeek) {
+        return (words[minuteOfWeek >>> 6] & (1L << minuteOfWeek)) != 0;
+    }
+
+    /**
+     * Checks if all minutes in [from, to) are open, one 64 minute word at a time.
+     */
+    private boolean allOpen(int from, int to) {
+        if (from >= to) {
+            return true;
+        }
+        int firstWord = from >>> 6;
+        int lastWord = (to - 1) >>> 6;
+        for (int word = firstWord; word <= lastWord; word++) {
+            long mask = -1L;
+            if (word == firstWord) {
+                mask &= -1L << from;
+            }
+            if (word == lastWord) {
+                mask &= -1L >>> (Long.SIZE - 1 - ((to - 1) & 63));
+            }
+            if ((words[word] & mask) != mask) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int minuteOfWeek(LocalDateTime dateTime) {
+        return (dateTime.getDayOfWeek().getValue() - DayOfWeek.MONDAY.getValue()) * MINUTES_PER_DAY +
+                dateTime.getHour() * 60 + dateTime.getMinute();
+    }
+
+    /**
+     * Minute of day at or after the given time, so LocalTime.MAX maps to the end of the day.
+     */
+    private static int ceilMinute(LocalTime time) {
+        int minute = time.getHour() * 60 + time.getMinute();
+        return time.getSecond() > 0 || time.getNano() > 0 ? minute + 1 : minute;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof WeeklySchedule that)) return false;
+        return Arrays.equals(words, that.words);
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+}
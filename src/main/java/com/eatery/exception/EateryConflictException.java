@@ -0,0 +1,11 @@
+package com.eatery.exception;
+
+/**
+ * Custom exception to indicate that a eatery could not be changed because of concurrent changes.
+ * This exception is thrown when optimistic locking still fails after all retries.
+ */
+public class EateryConflictException extends RuntimeException {
+    public EateryConflictException() {
+        super("Eatery was changed concurrently, please try again");
+    }
+}
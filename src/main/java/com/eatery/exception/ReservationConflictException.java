@@ -0,0 +1,11 @@
+package com.eatery.exception;
+
+/**
+ * Custom exception to indicate that a reservation could not be changed because of concurrent changes.
+ * This exception is thrown when optimistic locking still fails after all retries.
+ */
+public class ReservationConflictException extends RuntimeException {
+    public ReservationConflictException() {
+        super("Reservation was changed concurrently, please try again");
+    }
+}
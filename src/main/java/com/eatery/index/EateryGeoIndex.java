@@ -0,0 +1,265 @@
+package com.eatery.index;
+
+import com.eatery.entity.Eatery;
+import com.eatery.entity.WeeklySchedule;
+import com.eatery.repository.EateryRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * In-memory spatial index of all eateries with coordinates.
+ * Eateries are bucketed into a uniform grid of {@link #CELL_DEGREES} degree cells.
+ * A nearest neighbour query scans rings of cells around the query point and keeps only the best k hits,
+ * stopping as soon as the scanned area covers every point closer than the current k-th hit.
+ * Longitudes do not wrap around the antimeridian.
+ */
+@Component
+public class EateryGeoIndex {
+    public static final double CELL_DEGREES = 0.1;
+    public static final double EARTH_RADIUS_KM = 6371.0088;
+
+    private static final int LAT_CELLS = (int) Math.ceil(180 / CELL_DEGREES);
+    private static final int LON_CELLS = (int) Math.ceil(360 / CELL_DEGREES);
+
+    private static final Logger logger = LoggerFactory.getLogger(EateryGeoIndex.class);
+
+    private final Map<Long, Entry> entries = new HashMap<>();
+    private final Map<Long, List<Entry>> cells = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // bounding box of all occupied cells, only ever grows until the next rebuild
+    private int minLatCell = Integer.MAX_VALUE;
+    private int maxLatCell = Integer.MIN_VALUE;
+    private int minLonCell = Integer.MAX_VALUE;
+    private int maxLonCell = Integer.MIN_VALUE;
+
+    @Autowired
+    private EateryRepository eateryRepository;
+
+    /**
+     * Rebuilds the index from all eateries in the database.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        List<Eatery> eateries = eateryRepository.findAll();
+        lock.writeLock().lock();
+        try {
+            entries.clear();
+            cells.clear();
+            minLatCell = minLonCell = Integer.MAX_VALUE;
+            maxLatCell = maxLonCell = Integer.MIN_VALUE;
+            eateries.forEach(this::add);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.info("Rebuilt geo index from {} eateries with coordinates", entries.size());
+    }
+
+    /**
+     * Adds an eatery to the index or moves it to its new location.
+     * Eateries without coordinates are removed from the index.
+     * @param eatery saved eatery
+     */
+    public void index(Eatery eatery) {
+        lock.writeLock().lock();
+        try {
+            remove(eatery.getId());
+            add(eatery);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes an eatery from the index.
+     * @param eateryId eatery id
+     */
+    public void evict(Long eateryId) {
+        lock.writeLock().lock();
+        try {
+            remove(eateryId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the k nearest eateries to a location.
+     * @param latitude latitude of the location in degrees
+     * @param longitude longitude of the location in degrees
+     * @param k maximum number of eateries to return
+     * @param type eatery type (optional)
+     * @param openAt only return eateries open at this time (optional)
+     * @return ids of the nearest eateries, nearest first
+     */
+    public List<Long> nearest(double latitude, double longitude, int k, Eatery.Type type, LocalDateTime openAt) {
+        int latCell = latCell(latitude);
+        int lonCell = lonCell(longitude);
+
+        lock.readLock().lock();
+        try {
+            if (entries.isEmpty() || k <= 0) {
+                return List.of();
+            }
+            // the farthest of the best hits so far is on top of the queue
+            PriorityQueue<Hit> best = new PriorityQueue<>(Comparator.comparingDouble(Hit::distance).reversed());
+            for (int ring = 0; ; ring++) {
+                scanRing(latCell, lonCell, ring, entry -> {
+                    if ((type != null && entry.type() != type) || (openAt != null && !entry.schedule().isOpenAt(openAt))) {
+                        return;
+                    }
+                    double distance = distance(latitude, longitude, entry.latitude(), entry.longitude());
+                    if (best.size() < k) {
+                        best.add(new Hit(entry.id(), distance));
+                    } else if (distance < best.peek().distance()) {
+                        best.poll();
+                        best.add(new Hit(entry.id(), distance));
+                    }
+                });
+                if (coversBoundingBox(latCell, lonCell, ring)) {
+                    break;
+                }
+                if (best.size() == k && coversRadius(latitude, ring, best.peek().distance())) {
+                    break;
+                }
+            }
+
+            List<Hit> hits = new ArrayList<>(best);
+            hits.sort(Comparator.comparingDouble(Hit::distance).thenComparingLong(Hit::id));
+            return hits.stream().map(Hit::id).toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Great circle distance between two locations.
+     * @return distance in kilometers
+     */
+    public static double distance(double latitude1, double longitude1, double latitude2, double longitude2) {
+        double deltaLatitude = Math.toRadians(latitude2 - latitude1);
+        double deltaLongitude = Math.toRadians(longitude2 - longitude1);
+        double a = Math.pow(Math.sin(deltaLatitude / 2), 2) +
+                Math.cos(Math.toRadians(latitude1)) * Math.cos(Math.toRadians(latitude2)) *
+                Math.pow(Math.sin(deltaLongitude / 2), 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    /**
+     * Visits the cells at Chebyshev distance {@code ring} from the center cell, clipped to the occupied bounding box.
+     */
+    private void scanRing(int latCell, int lonCell, int ring, Consumer<Entry> visitor) {
+        int fromLat = Math.max(latCell - ring, minLatCell);
+        int toLat = Math.min(latCell + ring, maxLatCell);
+        for (int lat = fromLat; lat <= toLat; lat++) {
+            boolean edgeRow = lat == latCell - ring || lat == latCell + ring;
+            if (edgeRow) {
+                int fromLon = Math.max(lonCell - ring, minLonCell);
+                int toLon = Math.min(lonCell + ring, maxLonCell);
+                for (int lon = fromLon; lon <= toLon; lon++) {
+                    visitCell(lat, lon, visitor);
+                }
+            } else {
+                if (lonCell - ring >= minLonCell) {
+                    visitCell(lat, lonCell - ring, visitor);
+                }
+                if (ring > 0 && lonCell + ring <= maxLonCell) {
+                    visitCell(lat, lonCell + ring, visitor);
+                }
+            }
+        }
+    }
+
+    private void visitCell(int latCell, int lonCell, Consumer<Entry> visitor) {
+        List<Entry> cell = cells.get(key(latCell, lonCell));
+        if (cell != null) {
+            cell.forEach(visitor);
+        }
+    }
+
+    private boolean coversBoundingBox(int latCell, int lonCell, int ring) {
+        return latCell - ring <= minLatCell && latCell + ring >= maxLatCell &&
+                lonCell - ring <= minLonCell && lonCell + ring >= maxLonCell;
+    }
+
+    /**
+     * Checks if the cells scanned up to {@code ring} contain every point within {@code radius} of the location.
+     * The query point may lie anywhere in its center cell, so the scanned area reaches at least
+     * {@code ring * CELL_DEGREES} degrees in every direction.
+     */
+    private static boolean coversRadius(double latitude, int ring, double radius) {
+        double reach = ring * CELL_DEGREES;
+        double angularRadius = radius / EARTH_RADIUS_KM;
+        double deltaLatitude = Math.toDegrees(angularRadius);
+        if (deltaLatitude > reach) {
+            return false;
+        }
+        if (Math.abs(latitude) + deltaLatitude >= 90) {
+            return false;
+        }
+        double deltaLongitude = Math.toDegrees(Math.asin(Math.sin(angularRadius) / Math.cos(Math.toRadians(latitude))));
+        return deltaLongitude <= reach;
+    }
+
+    private void add(Eatery eatery) {
+        if (eatery.getLatitude() == null || eatery.getLongitude() == null) {
+            return;
+        }
+        Entry entry = new Entry(
+                eatery.getId(),
+                eatery.getLatitude(),
+                eatery.getLongitude(),
+                eatery.getType(),
+                eatery.getWeeklySchedule()
+        );
+        int latCell = latCell(entry.latitude());
+        int lonCell = lonCell(entry.longitude());
+        entries.put(entry.id(), entry);
+        cells.computeIfAbsent(key(latCell, lonCell), key -> new ArrayList<>()).add(entry);
+        minLatCell = Math.min(minLatCell, latCell);
+        maxLatCell = Math.max(maxLatCell, latCell);
+        minLonCell = Math.min(minLonCell, lonCell);
+        maxLonCell = Math.max(maxLonCell, lonCell);
+    }
+
+    private void remove(Long eateryId) {
+        Entry entry = entries.remove(eateryId);
+        if (entry == null) {
+            return;
+        }
+        long key = key(latCell(entry.latitude()), lonCell(entry.longitude()));
+        List<Entry> cell = cells.get(key);
+        cell.remove(entry);
+        if (cell.isEmpty()) {
+            cells.remove(key);
+        }
+    }
+
+    private static int latCell(double latitude) {
+        return Math.min(LAT_CELLS - 1, (int) Math.floor((latitude + 90) / CELL_DEGREES));
+    }
+
+    private static int lonCell(double longitude) {
+        return Math.min(LON_CELLS - 1, (int) Math.floor((longitude + 180) / CELL_DEGREES));
+    }
+
+    private static long key(int latCell, int lonCell) {
+        return (long) latCell * LON_CELLS + lonCell;
+    }
+
+    private record Entry(long id, double latitude, double longitude, Eatery.Type type, WeeklySchedule schedule) {
+    }
+
+    private record Hit(long id, double distance) {
+    }
+}
@@ -0,0 +1,289 @@
+package com.eatery.index;
+
+import com.eatery.entity.Eatery;
+import com.eatery.repository.EateryRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory inverted index over eatery name, address and type.
+ * Every token is indexed with all of its prefixes (edge n-grams) of at least two characters, so a query token matches
+ * any word it is a prefix of. A query token of one character only matches a word of one character, its posting
+ * list would contain most eateries. Query tokens are combined with AND, and results are ranked by field weight and
+ * exact word matches. Every candidate of a query is scored, so a broad two character prefix still scores all of
+ * its postings, while a query without words pages through the ids without scoring.
+ */
+@Component
+public class EaterySearchIndex {
+    private static final int MIN_PREFIX_LENGTH = 2;
+    private static final int MAX_PREFIX_LENGTH = 12;
+    private static final int NAME_WEIGHT = 3;
+    private static final int ADDRESS_WEIGHT = 1;
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private static final Logger logger = LoggerFactory.getLogger(EaterySearchIndex.class);
+
+    private final NavigableMap<Long, Document> documents = new TreeMap<>();
+    private final Map<String, Set<Long>> namePostings = new HashMap<>();
+    private final Map<String, Set<Long>> addressPostings = new HashMap<>();
+    private final Map<Eatery.Type, Set<Long>> typePostings = new EnumMap<>(Eatery.Type.class);
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    @Autowired
+    private EateryRepository eateryRepository;
+
+    /**
+     * Rebuilds the index from all eateries in the database.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        List<Eatery> eateries = eateryRepository.findAll();
+        lock.writeLock().lock();
+        try {
+            documents.clear();
+            namePostings.clear();
+            addressPostings.clear();
+            typePostings.clear();
+            eateries.forEach(this::add);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.info("Rebuilt search index from {} eateries", eateries.size());
+    }
+
+    /**
+     * Adds an eatery to the index or replaces its previous entry.
+     * @param eatery saved eatery
+     */
+    public void index(Eatery eatery) {
+        lock.writeLock().lock();
+        try {
+            remove(eatery.getId());
+            add(eatery);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes an eatery from the index.
+     * @param eateryId eatery id
+     */
+    public void evict(Long eateryId) {
+        lock.writeLock().lock();
+        try {
+            remove(eateryId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Searches eateries matching all given criteria, ranked by relevance.
+     * @param name words or word prefixes of the name (optional)
+     * @param address words or word prefixes of the address (optional)
+     * @param text words or word prefixes of either name or address (optional)
+     * @param type eatery type (optional)
+     * @param page zero based page number
+     * @param size page size
+     * @return ids of the eateries on the requested page, best match first, or in ascending order without words
+     */
+    public List<Long> search(String name, String address, String text, Eatery.Type type, int page, int size) {
+        List<String> nameTokens = tokenize(name);
+        List<String> addressTokens = tokenize(address);
+        List<String> textTokens = tokenize(text);
+        long offset = (long) page * size;
+        long limit = offset + size;
+
+        lock.readLock().lock();
+        try {
+            if (nameTokens.isEmpty() && addressTokens.isEmpty() && textTokens.isEmpty()) {
+                // every eatery scores the same, so the page is taken from the ordered ids
+                Set<Long> ids = type == null ? documents.keySet() : typePostings.getOrDefault(type, Set.of());
+                return ids.stream()
+                        .skip(offset)
+                        .limit(size)
+                        .toList();
+            }
+            Set<Long> candidates = candidates(nameTokens, addressTokens, textTokens, type);
+
+            // bounded top-k selection, the weakest hit is on top of the queue
+            Comparator<Hit> ranking = Comparator.comparingInt(Hit::score).reversed().thenComparingLong(Hit::id);
+            PriorityQueue<Hit> best = new PriorityQueue<>(ranking.reversed());
+            for (Long id : candidates) {
+                int score = score(documents.get(id), nameTokens, addressTokens, textTokens);
+                if (score < 0) {
+                    continue;
+                }
+                best.add(new Hit(id, score));
+                if (best.size() > limit) {
+                    best.poll();
+                }
+            }
+
+            List<Hit> hits = new ArrayList<>(best);
+            hits.sort(ranking);
+            return hits.stream()
+                    .skip(offset)
+                    .map(Hit::id)
+                    .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the ids of all indexed eateries of a type.
+     * @param type eatery type, or null for all eateries
+     * @return ids in ascending order
+     */
+    public List<Long> ids(Eatery.Type type) {
+        lock.readLock().lock();
+        try {
+            Set<Long> ids = type == null ? documents.keySet() : typePostings.getOrDefault(type, Set.of());
+            return List.copyOf(ids);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Set<Long> candidates(List<String> nameTokens, List<String> addressTokens, List<String> textTokens, Eatery.Type type) {
+        List<Set<Long>> postings = new ArrayList<>();
+        nameTokens.forEach(token -> postings.add(lookup(namePostings, token)));
+        addressTokens.forEach(token -> postings.add(lookup(addressPostings, token)));
+        for (String token : textTokens) {
+            Set<Long> union = new HashSet<>(lookup(namePostings, token));
+            union.addAll(lookup(addressPostings, token));
+            postings.add(union);
+        }
+        if (type != null) {
+            postings.add(typePostings.getOrDefault(type, Set.of()));
+        }
+        if (postings.isEmpty()) {
+            return documents.keySet();
+        }
+
+        // intersect starting with the rarest posting list
+        postings.sort(Comparator.comparingInt(Set::size));
+        Set<Long> candidates = new HashSet<>(postings.getFirst());
+        for (int i = 1; i < postings.size() && !candidates.isEmpty(); i++) {
+            candidates.retainAll(postings.get(i));
+        }
+        return candidates;
+    }
+
+    /**
+     * Scores a candidate, or returns -1 if a query token longer than the indexed prefixes does not match.
+     */
+    private static int score(Document document, List<String> nameTokens, List<String> addressTokens, List<String> textTokens) {
+        int score = 0;
+        for (String token : nameTokens) {
+            int match = match(document.nameTokens(), token);
+            if (match == 0) return -1;
+            score += NAME_WEIGHT * match;
+        }
+        for (String token : addressTokens) {
+            int match = match(document.addressTokens(), token);
+            if (match == 0) return -1;
+            score += ADDRESS_WEIGHT * match;
+        }
+        for (String token : textTokens) {
+            int nameMatch = NAME_WEIGHT * match(document.nameTokens(), token);
+            int addressMatch = ADDRESS_WEIGHT * match(document.addressTokens(), token);
+            if (nameMatch == 0 && addressMatch == 0) return -1;
+            score += Math.max(nameMatch, addressMatch);
+        }
+        return score;
+    }
+
+    /**
+     * @return 2 for an exact word match, 1 for a prefix match and 0 otherwise
+     */
+    private static int match(List<String> documentTokens, String token) {
+        int match = 0;
+        for (String documentToken : documentTokens) {
+            if (documentToken.equals(token)) {
+                return 2;
+            }
+            if (documentToken.startsWith(token)) {
+                match = 1;
+            }
+        }
+        return match;
+    }
+
+    private static Set<Long> lookup(Map<String, Set<Long>> postings, String token) {
+        String key = token.length() > MAX_PREFIX_LENGTH ? token.substring(0, MAX_PREFIX_LENGTH) : token;
+        return postings.getOrDefault(key, Set.of());
+    }
+
+    private void add(Eatery eatery) {
+        Document document = new Document(eatery.getType(), tokenize(eatery.getName()), tokenize(eatery.getAddress()));
+        documents.put(eatery.getId(), document);
+        document.nameTokens().forEach(token -> prefixes(token).forEach(prefix ->
+                namePostings.computeIfAbsent(prefix, key -> new HashSet<>()).add(eatery.getId())));
+        document.addressTokens().forEach(token -> prefixes(token).forEach(prefix ->
+                addressPostings.computeIfAbsent(prefix, key -> new HashSet<>()).add(eatery.getId())));
+        if (eatery.getType() != null) {
+            typePostings.computeIfAbsent(eatery.getType(), key -> new TreeSet<>()).add(eatery.getId());
+        }
+    }
+
+    private void remove(Long eateryId) {
+        Document document = documents.remove(eateryId);
+        if (document == null) {
+            return;
+        }
+        document.nameTokens().forEach(token -> prefixes(token).forEach(prefix -> removePosting(namePostings, prefix, eateryId)));
+        document.addressTokens().forEach(token -> prefixes(token).forEach(prefix -> removePosting(addressPostings, prefix, eateryId)));
+        if (document.type() != null) {
+            typePostings.getOrDefault(document.type(), new TreeSet<>()).remove(eateryId);
+        }
+    }
+
+    private static void removePosting(Map<String, Set<Long>> postings, String key, Long eateryId) {
+        Set<Long> ids = postings.get(key);
+        if (ids != null && ids.remove(eateryId) && ids.isEmpty()) {
+            postings.remove(key);
+        }
+    }
+
+    private static List<String> prefixes(String token) {
+        List<String> prefixes = new ArrayList<>();
+        for (int length = Math.min(token.length(), MIN_PREFIX_LENGTH); length <= Math.min(token.length(), MAX_PREFIX_LENGTH); length++) {
+            prefixes.add(token.substring(0, length));
+        }
+        return prefixes;
+    }
+
+    /**
+     * Splits a text into lower case words without diacritics, e.g. "Café Anna-Blume" into [cafe, anna, blume].
+     */
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        String normalized = DIACRITICS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+        return Arrays.stream(SEPARATORS.split(normalized.toLowerCase(Locale.ROOT)))
+                .filter(token -> !token.isEmpty())
+                .distinct()
+                .toList();
+    }
+
+    private record Document(Eatery.Type type, List<String> nameTokens, List<String> addressTokens) {
+    }
+
+    private record Hit(long id, int score) {
+    }
+}
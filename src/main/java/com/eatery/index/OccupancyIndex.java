@@ -0,0 +1,303 @@
+package com.eatery.index;
+
+import com.eatery.entity.Reservation;
+import com.eatery.repository.ReservationRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.eatery.entity.Reservation.Status.CONFIRMED;
+
+/**
+ * In-memory occupancy timeline of every eatery.
+ * The time axis is split into fixed buckets of {@link #BUCKET_MINUTES} minutes and every confirmed reservation
+ * occupies the buckets from its start until {@link #RESERVATION_DURATION} later.
+ * Buckets are grouped per day into segment trees supporting range add and range max in O(log n),
+ * so a capacity check no longer depends on the number of reservations ever made at an eatery.
+ */
+@Component
+public class OccupancyIndex {
+    public static final int BUCKET_MINUTES = 15;
+    public static final Duration RESERVATION_DURATION = Duration.ofHours(2);
+    public static final int RESERVATION_BUCKETS = (int) (RESERVATION_DURATION.toMinutes() / BUCKET_MINUTES);
+
+    private static final int BUCKET_SECONDS = BUCKET_MINUTES * 60;
+    private static final int BUCKETS_PER_DAY = 24 * 60 / BUCKET_MINUTES;
+
+    private static final Logger logger = LoggerFactory.getLogger(OccupancyIndex.class);
+
+    private final Map<Long, EateryTimeline> timelines = new ConcurrentHashMap<>();
+
+    /**
+     * Reservations starting at or before this time are not loaded by the last rebuild,
+     * so changes of them are ignored instead of being subtracted from guests they were never added to.
+     */
+    private volatile LocalDateTime indexedAfter = LocalDateTime.MIN;
+
+    @Autowired
+    private ReservationRepository reservationRepository;
+
+    /**
+     * Rebuilds the index from all confirmed reservations which may still overlap a future reservation.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        LocalDateTime from = LocalDateTime.now().minus(RESERVATION_DURATION);
+        List<Reservation> reservations = reservationRepository.findAllByStatusAndReservationDateTimeAfter(CONFIRMED, from);
+        timelines.clear();
+        indexedAfter = from;
+        reservations.forEach(this::add);
+        logger.info("Rebuilt occupancy index from {} confirmed reservations", reservations.size());
+    }
+
+    /**
+     * Adds the guests of a reservation to the occupancy of its eatery.
+     * @param reservation confirmed reservation
+     */
+    public void add(Reservation reservation) {
+        update(reservation, reservation.getGuestNumber());
+    }
+
+    /**
+     * Removes the guests of a reservation from the occupancy of its eatery.
+     * @param reservation reservation which is no longer confirmed
+     */
+    public void remove(Reservation reservation) {
+        update(reservation, -reservation.getGuestNumber());
+    }
+
+    /**
+     * Drops the whole timeline of an eatery.
+     * @param eateryId eatery id
+     */
+    public void evict(Long eateryId) {
+        timelines.remove(eateryId);
+    }
+
+    /**
+     * Returns the highest number of guests present at the same time between the given times.
+     * @param eateryId eatery id
+     * @param from start of the time range (inclusive)
+     * @param to end of the time range (exclusive)
+     * @return peak occupancy in the time range
+     */
+    public int peakOccupancy(Long eateryId, LocalDateTime from, LocalDateTime to) {
+        EateryTimeline timeline = timelines.get(eateryId);
+        if (timeline == null) {
+            return 0;
+        }
+        return timeline.max(firstBucket(from), endBucket(to));
+    }
+
+    /**
+     * Returns the number of guests present in every bucket between the given times.
+     * @param eateryId eatery id
+     * @param from start of the time range (inclusive), element 0 is the bucket containing it
+     * @param to end of the time range (exclusive)
+     * @return occupancy per bucket of {@link #BUCKET_MINUTES} minutes
+     */
+    public int[] occupancy(Long eateryId, LocalDateTime from, LocalDateTime to) {
+        long firstBucket = firstBucket(from);
+        int[] occupancy = new int[(int) Math.max(0, endBucket(to) - firstBucket)];
+        EateryTimeline timeline = timelines.get(eateryId);
+        if (timeline != null) {
+            timeline.fill(occupancy, firstBucket);
+        }
+        return occupancy;
+    }
+
+    /**
+     * Returns the start time of a bucket.
+     * @param bucket bucket number since the epoch
+     * @return start of the bucket
+     */
+    public static LocalDateTime bucketStart(long bucket) {
+        return LocalDateTime.ofEpochSecond(bucket * BUCKET_SECONDS, 0, ZoneOffset.UTC);
+    }
+
+    /**
+     * Applies a change of occupancy immediately, so later checks of the same transaction already see it.
+     * If the surrounding transaction is rolled back, the change is reverted.
+     */
+    private void update(Reservation reservation, int guests) {
+        if (reservation.getEateryId() == null || reservation.getReservationDateTime() == null ||
+                !reservation.getReservationDateTime().isAfter(indexedAfter)) {
+            return;
+        }
+        Long eateryId = reservation.getEateryId();
+        LocalDateTime start = reservation.getReservationDateTime();
+        apply(eateryId, start, guests);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_ROLLED_BACK) {
+                        apply(eateryId, start, -guests);
+                    }
+                }
+            });
+        }
+    }
+
+    private void apply(Long eateryId, LocalDateTime start, int guests) {
+        timelines.computeIfAbsent(eateryId, id -> new EateryTimeline())
+                .add(firstBucket(start), endBucket(start.plus(RESERVATION_DURATION)), guests);
+    }
+
+    /**
+     * Returns the bucket containing the given time.
+     * @param dateTime date and time
+     * @return bucket number since the epoch
+     */
+    public static long firstBucket(LocalDateTime dateTime) {
+        return Math.floorDiv(dateTime.toEpochSecond(ZoneOffset.UTC), BUCKET_SECONDS);
+    }
+
+    /**
+     * Returns the first bucket starting at or after the given time, i.e. the exclusive end of a time range.
+     * @param dateTime date and time
+     * @return bucket number since the epoch
+     */
+    public static long endBucket(LocalDateTime dateTime) {
+        long seconds = dateTime.toEpochSecond(ZoneOffset.UTC) + (dateTime.getNano() > 0 ? 1 : 0);
+        return Math.floorDiv(seconds + BUCKET_SECONDS - 1, BUCKET_SECONDS);
+    }
+
+    /**
+     * Occupancy timeline of a single eatery, one segment tree per day with guests in at least one bucket.
+     */
+    private static class EateryTimeline {
+        private final TreeMap<Long, DayTree> days = new TreeMap<>();
+
+        synchronized void add(long from, long to, int guests) {
+            for (long bucket = from; bucket < to; ) {
+                long day = Math.floorDiv(bucket, BUCKETS_PER_DAY);
+                long dayEnd = Math.min(to, (day + 1) * BUCKETS_PER_DAY);
+                DayTree tree = days.computeIfAbsent(day, d -> new DayTree());
+                tree.add((int) (bucket - day * BUCKETS_PER_DAY), (int) (dayEnd - 1 - day * BUCKETS_PER_DAY), guests);
+                if (tree.isEmpty()) {
+                    days.remove(day);
+                }
+                bucket = dayEnd;
+            }
+            evictPastDays();
+        }
+
+        synchronized int max(long from, long to) {
+            int max = 0;
+            for (long bucket = from; bucket < to; ) {
+                long day = Math.floorDiv(bucket, BUCKETS_PER_DAY);
+                long dayEnd = Math.min(to, (day + 1) * BUCKETS_PER_DAY);
+                DayTree tree = days.get(day);
+                if (tree != null) {
+                    max = Math.max(max, tree.max((int) (bucket - day * BUCKETS_PER_DAY), (int) (dayEnd - 1 - day * BUCKETS_PER_DAY)));
+                }
+                bucket = dayEnd;
+            }
+            return max;
+        }
+
+        synchronized void fill(int[] occupancy, long from) {
+            long to = from + occupancy.length;
+            for (long bucket = from; bucket < to; ) {
+                long day = Math.floorDiv(bucket, BUCKETS_PER_DAY);
+                long dayEnd = Math.min(to, (day + 1) * BUCKETS_PER_DAY);
+                DayTree tree = days.get(day);
+                if (tree != null) {
+                    tree.fill(occupancy, (int) (bucket - from), (int) (bucket - day * BUCKETS_PER_DAY), (int) (dayEnd - 1 - day * BUCKETS_PER_DAY));
+                }
+                bucket = dayEnd;
+            }
+        }
+
+        private void evictPastDays() {
+            long yesterday = Math.floorDiv(LocalDateTime.now().toEpochSecond(ZoneOffset.UTC), (long) BUCKET_SECONDS * BUCKETS_PER_DAY) - 1;
+            days.headMap(yesterday).clear();
+        }
+    }
+
+    /**
+     * Segment tree over the buckets of one day with range add and range max.
+     * Pending additions are kept on the covering node instead of being pushed down.
+     */
+    private static class DayTree {
+        private final int[] max = new int[4 * BUCKETS_PER_DAY];
+        private final int[] pending = new int[4 * BUCKETS_PER_DAY];
+
+        void add(int from, int to, int guests) {
+            add(1, 0, BUCKETS_PER_DAY - 1, from, to, guests);
+        }
+
+        int max(int from, int to) {
+            return max(1, 0, BUCKETS_PER_DAY - 1, from, to);
+        }
+
+        /**
+         * Copies the values of the buckets [from, to] into the target array starting at offset, in O(n).
+         */
+        void fill(int[] target, int offset, int from, int to) {
+            fill(1, 0, BUCKETS_PER_DAY - 1, from, to, 0, target, offset - from);
+        }
+
+        /**
+         * Checks whether no bucket of the day has guests, so dropping the tree loses no occupancy.
+         */
+        boolean isEmpty() {
+            return max[1] <= 0;
+        }
+
+        private void fill(int node, int nodeFrom, int nodeTo, int from, int to, int inherited, int[] target, int shift) {
+            if (to < nodeFrom || nodeTo < from) {
+                return;
+            }
+            if (nodeFrom == nodeTo) {
+                target[nodeFrom + shift] = max[node] + inherited;
+                return;
+            }
+            int middle = (nodeFrom + nodeTo) / 2;
+            fill(2 * node, nodeFrom, middle, from, to, inherited + pending[node], target, shift);
+            fill(2 * node + 1, middle + 1, nodeTo, from, to, inherited + pending[node], target, shift);
+        }
+
+        private void add(int node, int nodeFrom, int nodeTo, int from, int to, int guests) {
+            if (to < nodeFrom || nodeTo < from) {
+                return;
+            }
+            if (from <= nodeFrom && nodeTo <= to) {
+                max[node] += guests;
+                pending[node] += guests;
+                return;
+            }
+            int middle = (nodeFrom + nodeTo) / 2;
+            add(2 * node, nodeFrom, middle, from, to, guests);
+            add(2 * node + 1, middle + 1, nodeTo, from, to, guests);
+            max[node] = Math.max(max[2 * node], max[2 * node + 1]) + pending[node];
+        }
+
+        private int max(int node, int nodeFrom, int nodeTo, int from, int to) {
+            if (to < nodeFrom || nodeTo < from) {
+                return Integer.MIN_VALUE;
+            }
+            if (from <= nodeFrom && nodeTo <= to) {
+                return max[node];
+            }
+            int middle = (nodeFrom + nodeTo) / 2;
+            int childMax = Math.max(max(2 * node, nodeFrom, middle, from, to), max(2 * node + 1, middle + 1, nodeTo, from, to));
+            return childMax == Integer.MIN_VALUE ? childMax : childMax + pending[node];
+        }
+    }
+}
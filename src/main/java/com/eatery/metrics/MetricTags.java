@@ -0,0 +1,34 @@
+package com.eatery.metrics;
+
+import com.eatery.entity.Eatery;
+
+/**
+ * Tag names and values shared by the meters of the application.
+ * Values are lower case, so they read the same in every monitoring backend.
+ */
+public final class MetricTags {
+    public static final String EATERY_TYPE = "eatery.type";
+    public static final String OUTCOME = "outcome";
+    public static final String UNKNOWN = "unknown";
+
+    private MetricTags() {
+    }
+
+    /**
+     * Returns the eatery type tag value of an eatery.
+     * @param eatery eatery, or null if it is not known
+     * @return lower case eatery type, or unknown
+     */
+    public static String eateryType(Eatery eatery) {
+        return eatery == null || eatery.getType() == null ? UNKNOWN : eatery.getType().name().toLowerCase();
+    }
+
+    /**
+     * Returns the tag value of an exception, its simple class name.
+     * @param e exception, or null
+     * @return simple class name, or none
+     */
+    public static String exception(Throwable e) {
+        return e == null ? "none" : e.getClass().getSimpleName();
+    }
+}
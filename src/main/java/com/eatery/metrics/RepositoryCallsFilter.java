@@ -0,0 +1,62 @@
+package com.eatery.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.data.repository.core.support.RepositoryMethodInvocationListener;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+/**
+ * Records the number of repository calls of every request as the repository.calls distribution,
+ * tagged by the matched URI pattern and the HTTP method, so a request which suddenly issues many more queries
+ * shows up before it shows up in the latency.
+ * Only calls on the request thread are counted, calls of the booking engine and other executors are not.
+ */
+public class RepositoryCallsFilter extends OncePerRequestFilter {
+    private static final ThreadLocal<int[]> CALLS = new ThreadLocal<>();
+
+    private final MeterRegistry meterRegistry;
+
+    public RepositoryCallsFilter(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Listener counting every repository call of the current request.
+     * @return listener to add to the repository factories
+     */
+    public static RepositoryMethodInvocationListener listener() {
+        return invocation -> {
+            int[] calls = CALLS.get();
+            if (calls != null) {
+                calls[0]++;
+            }
+        };
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        int[] calls = new int[1];
+        CALLS.set(calls);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            CALLS.remove();
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            DistributionSummary.builder("repository.calls")
+                    .description("Repository calls per request")
+                    .baseUnit("calls")
+                    .tag("uri", pattern != null ? pattern.toString() : MetricTags.UNKNOWN)
+                    .tag("method", request.getMethod())
+                    .register(meterRegistry)
+                    .record(calls[0]);
+        }
+    }
+}
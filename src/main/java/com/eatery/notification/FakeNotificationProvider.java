@@ -0,0 +1,25 @@
+package com.eatery.notification;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Provider used instead of Twilio when notification is disabled.
+ * It only logs the messages and accepts every one of them.
+ */
+@Component
+public class FakeNotificationProvider {
+    private static final Logger logger = LoggerFactory.getLogger(FakeNotificationProvider.class);
+
+    /**
+     * Logs a message.
+     * @param customerPhoneNumber customer phone number
+     * @param text message text
+     * @return true, the message is always accepted
+     */
+    public boolean send(String customerPhoneNumber, String text) {
+        logger.info("Notification disabled, message to {}: {}", customerPhoneNumber, text);
+        return true;
+    }
+}
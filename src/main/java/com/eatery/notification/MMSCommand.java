@@ -1,27 +1,24 @@
 package com.eatery.notification;
 
-import com.twilio.Twilio;
+import com.twilio.http.TwilioRestClient;
 import com.twilio.rest.api.v2010.account.Message;
 import com.twilio.type.PhoneNumber;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 /**
  * Notification Command concrete class for Multimedia Message
+ * It sends through the shared Twilio client and holds no lock, so it can run on virtual threads without pinning them.
  */
 @Component
 public class MMSCommand {
-    // Find your Account SID and Auth Token at twilio.com/console
-    // and set the environment variables. See http://twil.io/secure
-    @Value("${twilio.account.id}")
-    private String ACCOUNT_SID;
-    @Value("${twilio.auth.token}")
-    private String AUTH_TOKEN;
+    @Autowired
+    private TwilioRestClient twilioRestClient;
     @Value("${twilio.phone.number}")
     private String TWILIO_NUMBER;
 
     public boolean send(String customerPhoneNumber, String text, String mediaURL) {
-        Twilio.init(ACCOUNT_SID, AUTH_TOKEN);
         Message message = Message.creator(
                 // replace customer number with your own number for testing
                 new PhoneNumber(customerPhoneNumber),
@@ -29,7 +26,7 @@ public class MMSCommand {
                 text
         )
                 .setMediaUrl(mediaURL)
-                .create();
+                .create(twilioRestClient);
 
         if (message.getStatus().equals(Message.Status.FAILED) || message.getStatus().equals(Message.Status.CANCELED) ||
                 message.getStatus().equals(Message.Status.UNDELIVERED)) {
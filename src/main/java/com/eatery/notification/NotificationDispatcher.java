@@ -0,0 +1,174 @@
+package com.eatery.notification;
+
+import com.eatery.entity.Notification;
+import com.eatery.repository.NotificationRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Delivers pending notifications of the outbox in the background.
+ * Every notification is sent on its own virtual thread, while a semaphore bounds the number of
+ * concurrent calls to the provider. Failed deliveries are retried with exponential backoff
+ * until the maximum number of attempts is reached.
+ * Due notifications are claimed with a conditional update before they are sent, so when several nodes run
+ * the dispatcher every notification is sent by one of them. A claim is leased, a notification whose dispatcher
+ * stopped before recording the attempt is claimed again after the lease.
+ */
+@Component
+public class NotificationDispatcher {
+    private static final Logger logger = LoggerFactory.getLogger(NotificationDispatcher.class);
+    /**
+     * Largest doubling of the initial backoff, the backoff is capped at max-backoff anyway.
+     */
+    private static final int MAX_BACKOFF_EXPONENT = 30;
+
+    @Value("${notification.dispatcher.batch-size:50}")
+    private int batchSize;
+    @Value("${notification.dispatcher.max-attempts:5}")
+    private int maxAttempts;
+    @Value("${notification.dispatcher.initial-backoff:PT5S}")
+    private Duration initialBackoff;
+    @Value("${notification.dispatcher.max-backoff:PT1H}")
+    private Duration maxBackoff;
+    @Value("${notification.dispatcher.lease:PT1M}")
+    private Duration lease;
+
+    @Autowired
+    private NotificationCommand notificationCommand;
+    @Autowired
+    private NotificationRepository repository;
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Semaphore permits;
+    /**
+     * Serializes the batches, a lock instead of synchronized, so a waiting virtual scheduler thread is not pinned.
+     */
+    private final ReentrantLock dispatchLock = new ReentrantLock();
+
+    public NotificationDispatcher(@Value("${notification.dispatcher.concurrency:8}") int concurrency) {
+        this.permits = new Semaphore(concurrency);
+    }
+
+    /**
+     * Sends all notifications which are due, and waits until every attempt of the batch has been recorded.
+     */
+    @Scheduled(fixedDelayString = "${notification.dispatcher.interval:PT1S}")
+    public void dispatchPending() {
+        dispatchLock.lock();
+        try {
+            dispatchBatch();
+        } finally {
+            dispatchLock.unlock();
+        }
+    }
+
+    private void dispatchBatch() {
+        List<Notification> dueNotifications = claimDue();
+
+        List<Future<?>> deliveries = new ArrayList<>();
+        for (Notification notification : dueNotifications) {
+            permits.acquireUninterruptibly();
+            deliveries.add(executor.submit(() -> {
+                try {
+                    deliver(notification);
+                } finally {
+                    permits.release();
+                }
+            }));
+        }
+
+        for (Future<?> delivery : deliveries) {
+            try {
+                delivery.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException e) {
+                logger.error("Notification delivery failed", e.getCause());
+            }
+        }
+    }
+
+    /**
+     * Claims the due notifications of the next batch.
+     * @return notifications claimed by this dispatch, without those claimed concurrently by another node
+     */
+    private List<Notification> claimDue() {
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> ids = repository.findClaimable(now, Limit.of(batchSize));
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        String claimToken = UUID.randomUUID().toString();
+        if (repository.claim(ids, claimToken, now, now.plus(lease)) == 0) {
+            return List.of();
+        }
+        return repository.findByClaimTokenAndStatus(claimToken, Notification.Status.IN_FLIGHT);
+    }
+
+    /**
+     * Returns the delay before the next attempt, which doubles with every failed attempt up to max-backoff.
+     * @param attempts number of failed attempts
+     * @return delay before the next attempt
+     */
+    public Duration backoff(int attempts) {
+        int exponent = Math.min(Math.max(attempts - 1, 0), MAX_BACKOFF_EXPONENT);
+        Duration backoff = initialBackoff.multipliedBy(1L << exponent);
+        return backoff.compareTo(maxBackoff) > 0 ? maxBackoff : backoff;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    private void deliver(Notification notification) {
+        boolean sent;
+        try {
+            sent = notificationCommand.sendSMS(notification.getPhoneNumber(), notification.getMessage());
+            notification.setLastError(sent ? null : "Message rejected by provider");
+        } catch (RuntimeException e) {
+            sent = false;
+            notification.setLastError(e.getMessage());
+        }
+
+        notification.setAttempts(notification.getAttempts() + 1);
+        notification.setClaimToken(null);
+        notification.setLeaseUntil(null);
+        if (sent) {
+            notification.setStatus(Notification.Status.SENT);
+            notification.setSentAt(LocalDateTime.now());
+        } else if (notification.getAttempts() >= maxAttempts) {
+            notification.setStatus(Notification.Status.FAILED);
+            logger.warn("Giving up notification {} after {} attempts", notification.getId(), notification.getAttempts());
+        } else {
+            notification.setStatus(Notification.Status.PENDING);
+            notification.setNextAttemptAt(LocalDateTime.now().plus(backoff(notification.getAttempts())));
+        }
+        try {
+            repository.save(notification);
+        } catch (OptimisticLockingFailureException e) {
+            // the lease expired during the attempt and another dispatch claimed the notification again
+            logger.warn("Attempt of notification {} was not recorded, it was claimed again", notification.getId());
+        }
+    }
+}
@@ -1,14 +1,20 @@
 package com.eatery.notification;
 
 import com.eatery.entity.Notification;
+import com.eatery.metrics.MetricTags;
 import com.eatery.repository.NotificationRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.util.function.BooleanSupplier;
+
 /**
  * Command Pattern
  * Invoker of sending notification
+ * Every send is timed as notification.sends, tagged by channel and outcome, so failures are counted as well.
  */
 @Service
 public class NotificationHandler implements NotificationCommand {
@@ -19,26 +25,75 @@ public class NotificationHandler implements NotificationCommand {
     @Autowired
     private MMSCommand mmsCommand;
     @Autowired
+    private FakeNotificationProvider fakeNotificationProvider;
+    @Autowired
     private NotificationRepository repository;
+    @Autowired
+    private MeterRegistry meterRegistry;
 
+    /**
+     * Sends a short message, or passes it to the fake provider when notification is disabled.
+     * @param customerPhoneNumber customer phone number
+     * @param text message text
+     * @return true if the message was accepted by the provider
+     */
     @Override
     public boolean sendSMS(String customerPhoneNumber, String text) {
         if (enabled) {
-            return smsCommand.send(customerPhoneNumber, text);
+            return timed("sms", () -> smsCommand.send(customerPhoneNumber, text));
         }
-        return true;
+        return timed("sms", () -> fakeNotificationProvider.send(customerPhoneNumber, text));
     }
 
     @Override
     public boolean sendMMS(String customerPhoneNumber, String text, String mediaURL) {
         if (enabled) {
-            return mmsCommand.send(customerPhoneNumber, text, mediaURL);
+            return timed("mms", () -> mmsCommand.send(customerPhoneNumber, text, mediaURL));
+        }
+        return timed("mms", () -> fakeNotificationProvider.send(customerPhoneNumber, text + " " + mediaURL));
+    }
+
+    /**
+     * Sends a message through the provider and records the latency and outcome of the send.
+     * Messages accepted by the fake provider are recorded with the outcome disabled.
+     * @param channel sms or mms
+     * @param send call of the provider
+     * @return true if the message was accepted by the provider
+     */
+    private boolean timed(String channel, BooleanSupplier send) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "failure";
+        Throwable failure = null;
+        try {
+            boolean accepted = send.getAsBoolean();
+            if (accepted) {
+                outcome = enabled ? "success" : "disabled";
+            }
+            return accepted;
+        } catch (RuntimeException e) {
+            failure = e;
+            throw e;
+        } finally {
+            sample.stop(Timer.builder("notification.sends")
+                    .description("Notification sends through the provider")
+                    .tag("channel", channel)
+                    .tag(MetricTags.OUTCOME, outcome)
+                    .tag("exception", MetricTags.exception(failure))
+                    .register(meterRegistry));
         }
-        return true;
     }
 
-    public void save(Long customerId, Long reservationId, String message) {
-        Notification notification = new Notification(customerId, reservationId, message);
-        repository.save(notification);
+    /**
+     * Writes a pending notification to the outbox.
+     * It joins the transaction of the caller and is delivered by the NotificationDispatcher after commit.
+     * @param customerId customer id
+     * @param reservationId reservation id
+     * @param customerPhoneNumber customer phone number
+     * @param message message text
+     * @return saved notification
+     */
+    public Notification enqueue(Long customerId, Long reservationId, String customerPhoneNumber, String message) {
+        Notification notification = new Notification(customerId, reservationId, customerPhoneNumber, message);
+        return repository.save(notification);
     }
 }
@@ -1,7 +1,15 @@
 package com.eatery.repository;
 
+import com.eatery.api.dto.CustomerSummary;
 import com.eatery.entity.Customer;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+import java.util.Optional;
 
 /**
  * Repository interface for managing Customer entities.
@@ -9,4 +17,26 @@ import org.springframework.data.jpa.repository.JpaRepository;
  * and additional functionality for working with Customer entities.
  */
 public interface CustomerRepository extends JpaRepository<Customer,Long> {
+    /**
+     * Finds one slice of the customers in descending id order, starting below the given id.
+     * The slice knows whether a next page exists without counting all rows.
+     */
+    Slice<Customer> findByIdLessThanOrderByIdDesc(Long id, Pageable pageable);
+
+    /**
+     * Finds one slice of the customer summaries in descending id order, starting below the given id.
+     * Only the summary columns are selected.
+     */
+    @Query("select new com.eatery.api.dto.CustomerSummary(c.id, c.firstName, c.lastName, c.username) " +
+            "from Customer c where c.id < :id order by c.id desc")
+    Slice<CustomerSummary> findSummariesByIdLessThan(@Param("id") Long id, Pageable pageable);
+
+    Optional<Customer> findByUsername(String username);
+
+    boolean existsByUsername(String username);
+
+    /**
+     * Finds the customers whose password does not match the pattern, used to find plain text passwords.
+     */
+    List<Customer> findByPasswordNotLike(String pattern);
 }
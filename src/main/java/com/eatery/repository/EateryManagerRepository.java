@@ -1,7 +1,15 @@
 package com.eatery.repository;
 
 import com.eatery.entity.EateryManager;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
+
+import java.util.List;
+import java.util.Optional;
 
 /**
  * Repository interface for managing EateryManager entities.
@@ -9,4 +17,24 @@ import org.springframework.data.jpa.repository.JpaRepository;
  * and additional functionality for working with EateryManager entities.
  */
 public interface EateryManagerRepository extends JpaRepository<EateryManager, Long> {
+    /**
+     * Finds one slice of the eatery managers in descending id order, starting below the given id.
+     * The slice knows whether a next page exists without counting all rows.
+     */
+    Slice<EateryManager> findByIdLessThanOrderByIdDesc(Long id, Pageable pageable);
+
+    /**
+     * Finds a manager by username, the result is kept in the query cache until the manager table changes.
+     * @param username username of the manager
+     * @return manager with the given username
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    Optional<EateryManager> findByUsername(String username);
+
+    boolean existsByUsername(String username);
+
+    /**
+     * Finds the eatery managers whose password does not match the pattern, used to find plain text passwords.
+     */
+    List<EateryManager> findByPasswordNotLike(String pattern);
 }
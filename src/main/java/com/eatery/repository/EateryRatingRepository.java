@@ -0,0 +1,47 @@
+package com.eatery.repository;
+
+import com.eatery.entity.EateryRating;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Optional;
+
+/**
+ * Repository interface for managing EateryRating entities.
+ */
+public interface EateryRatingRepository extends JpaRepository<EateryRating, Long> {
+    /**
+     * Adds (delta 1) or removes (delta -1) one review in a single atomic update,
+     * so concurrent review changes of the same eatery do not lose updates.
+     * @return number of updated aggregates, 0 if the eatery has no aggregate yet
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update EateryRating r set r.revision = r.revision + 1, r.ratingSum = r.ratingSum + :rating * :delta, r.ratingCount = r.ratingCount + :delta, " +
+            "r.oneStar = r.oneStar + case when :rating = 1 then :delta else 0 end, " +
+            "r.twoStars = r.twoStars + case when :rating = 2 then :delta else 0 end, " +
+            "r.threeStars = r.threeStars + case when :rating = 3 then :delta else 0 end, " +
+            "r.fourStars = r.fourStars + case when :rating = 4 then :delta else 0 end, " +
+            "r.fiveStars = r.fiveStars + case when :rating = 5 then :delta else 0 end " +
+            "where r.eateryId = :eateryId")
+    int add(@Param("eateryId") Long eateryId, @Param("rating") int rating, @Param("delta") int delta);
+
+    /**
+     * Records a review change which keeps the rating.
+     * @return number of updated aggregates, 0 if the eatery has no aggregate yet
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update EateryRating r set r.revision = r.revision + 1 where r.eateryId = :eateryId")
+    int touch(@Param("eateryId") Long eateryId);
+
+    /**
+     * Loads the aggregate of an eatery and locks it until the end of the transaction,
+     * so it can be recomputed without losing concurrent review changes.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select r from EateryRating r where r.eateryId = :eateryId")
+    Optional<EateryRating> lockById(@Param("eateryId") Long eateryId);
+}
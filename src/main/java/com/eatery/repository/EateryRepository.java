@@ -1,7 +1,17 @@
 package com.eatery.repository;
 
+import com.eatery.api.dto.EaterySummary;
 import com.eatery.entity.Eatery;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+import java.util.Optional;
 
 /**
  * Repository interface for managing Eatery entities.
@@ -9,4 +19,29 @@ import org.springframework.data.jpa.repository.JpaRepository;
  * and additional functionality for working with Eatery entities.
  */
 public interface EateryRepository extends JpaRepository<Eatery, Long> {
+    /**
+     * Finds one slice of the eateries in descending id order, starting below the given id.
+     * The slice knows whether a next page exists without counting all rows.
+     */
+    Slice<Eatery> findByIdLessThanOrderByIdDesc(Long id, Pageable pageable);
+
+    /**
+     * Finds one slice of the eatery summaries in descending id order, starting below the given id.
+     * Only the summary columns and the rating aggregate are selected.
+     */
+    @Query("select new com.eatery.api.dto.EaterySummary(e.id, e.type, e.name, e.address, e.latitude, e.longitude, " +
+            "coalesce(r.ratingSum / nullif(r.ratingCount, 0), 0L)) " +
+            "from Eatery e left join e.ratingAggregate r where e.id < :id order by e.id desc")
+    Slice<EaterySummary> findSummariesByIdLessThan(@Param("id") Long id, Pageable pageable);
+
+    @Query("select e.id from Eatery e")
+    List<Long> findAllIds();
+
+    /**
+     * Locks the row of an eatery until the end of the transaction, without loading the eatery and its rating aggregate.
+     * Serializes the creation of a missing rating aggregate of the eatery.
+     * @return the id, empty if the eatery does not exist
+     */
+    @Query(value = "select id from eatery where id = :id for update", nativeQuery = true)
+    Optional<Long> lockId(@Param("id") Long id);
 }
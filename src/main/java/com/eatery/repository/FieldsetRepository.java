@@ -0,0 +1,68 @@
+package com.eatery.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TupleElement;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.stereotype.Repository;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Repository for sparse fieldsets, which selects only the requested columns of an entity.
+ * The rows are returned as maps from attribute name to value, so no entity is loaded or managed.
+ */
+@Repository
+public class FieldsetRepository {
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Finds one slice of an entity in descending id order, starting below the given id, with only the given attributes.
+     * @param entity entity class with a numeric id attribute
+     * @param fields basic attributes of the entity in response order, validated by the caller
+     * @param id id which the slice starts below
+     * @param pageable size of the slice
+     * @return slice of rows, each ordered like the fields
+     */
+    public Slice<Map<String, Object>> findFieldsByIdLessThan(Class<?> entity, List<String> fields, long id, Pageable pageable) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = criteriaBuilder.createTupleQuery();
+        Root<?> root = query.from(entity);
+        List<Selection<?>> selections = fields.stream()
+                .<Selection<?>>map(field -> root.get(field).alias(field))
+                .toList();
+        query.multiselect(selections)
+                .where(criteriaBuilder.lt(root.get("id"), id))
+                .orderBy(criteriaBuilder.desc(root.get("id")));
+        // one extra row tells whether a next page exists
+        List<Tuple> tuples = entityManager.createQuery(query)
+                .setMaxResults(pageable.getPageSize() + 1)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultList();
+        boolean hasNext = tuples.size() > pageable.getPageSize();
+        List<Map<String, Object>> rows = tuples.stream()
+                .limit(pageable.getPageSize())
+                .map(FieldsetRepository::toMap)
+                .toList();
+        return new SliceImpl<>(rows, pageable, hasNext);
+    }
+
+    private static Map<String, Object> toMap(Tuple tuple) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        for (TupleElement<?> element : tuple.getElements()) {
+            row.put(element.getAlias(), tuple.get(element));
+        }
+        return row;
+    }
+}
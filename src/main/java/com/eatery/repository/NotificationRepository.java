@@ -1,7 +1,46 @@
 package com.eatery.repository;
 
 import com.eatery.entity.Notification;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
 
 public interface NotificationRepository extends JpaRepository<Notification,Long> {
+    /**
+     * Returns the ids of the notifications which may be claimed: pending notifications which are due,
+     * and in flight notifications whose lease has expired because their dispatcher stopped.
+     */
+    @Query("select n.id from Notification n " +
+            "where (n.status = com.eatery.entity.Notification.Status.PENDING and n.nextAttemptAt <= :now) " +
+            "or (n.status = com.eatery.entity.Notification.Status.IN_FLIGHT and n.leaseUntil < :now) " +
+            "order by n.nextAttemptAt")
+    List<Long> findClaimable(@Param("now") LocalDateTime now, Limit limit);
+
+    /**
+     * Claims the given notifications for a dispatch, marking them in flight until the lease ends.
+     * The conditions of findClaimable are checked again in the update, so a notification claimed concurrently
+     * by another node is skipped.
+     * @return number of claimed notifications
+     */
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("update Notification n set n.status = com.eatery.entity.Notification.Status.IN_FLIGHT, " +
+            "n.claimToken = :claimToken, n.leaseUntil = :leaseUntil, n.version = n.version + 1 " +
+            "where n.id in :ids " +
+            "and ((n.status = com.eatery.entity.Notification.Status.PENDING and n.nextAttemptAt <= :now) " +
+            "or (n.status = com.eatery.entity.Notification.Status.IN_FLIGHT and n.leaseUntil < :now))")
+    int claim(
+            @Param("ids") List<Long> ids,
+            @Param("claimToken") String claimToken,
+            @Param("now") LocalDateTime now,
+            @Param("leaseUntil") LocalDateTime leaseUntil
+    );
+
+    List<Notification> findByClaimTokenAndStatus(String claimToken, Notification.Status status);
 }
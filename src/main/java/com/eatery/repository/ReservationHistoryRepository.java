@@ -1,7 +1,77 @@
 package com.eatery.repository;
 
+import com.eatery.entity.Reservation;
 import com.eatery.entity.ReservationHistory;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Stream;
 
 public interface ReservationHistoryRepository extends JpaRepository<ReservationHistory,Long> {
+    int EXPORT_FETCH_SIZE = 1000;
+
+    /**
+     * Returns the history of an eatery after a keyset cursor, ordered by timestamp and id.
+     * The query seeks into the (eateryId, timestamp, id) index, so its cost does not depend on the position of the cursor.
+     * @param eateryId eatery id
+     * @param statuses accepted statuses
+     * @param from earliest timestamp (inclusive)
+     * @param to latest timestamp (exclusive)
+     * @param afterTimestamp timestamp of the cursor
+     * @param afterId id of the cursor, only records after it are returned
+     * @param limit maximum number of records
+     * @return records after the cursor
+     */
+    @Query("select h from ReservationHistory h " +
+            "where h.eateryId = :eateryId and h.status in :statuses " +
+            "and h.timestamp >= :from and h.timestamp < :to " +
+            "and (h.timestamp > :afterTimestamp or (h.timestamp = :afterTimestamp and h.id > :afterId)) " +
+            "order by h.timestamp, h.id")
+    List<ReservationHistory> findPage(
+            @Param("eateryId") Long eateryId,
+            @Param("statuses") Collection<Reservation.Status> statuses,
+            @Param("from") Date from,
+            @Param("to") Date to,
+            @Param("afterTimestamp") Date afterTimestamp,
+            @Param("afterId") long afterId,
+            Limit limit
+    );
+
+    /**
+     * Streams the history changed in a time range, ordered by timestamp and id.
+     * The rows are fetched in chunks through a database cursor and must be read within a transaction.
+     * @param from earliest timestamp (inclusive)
+     * @param to latest timestamp (exclusive)
+     * @return stream of records, to be closed after reading
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + EXPORT_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select h from ReservationHistory h where h.timestamp >= :from and h.timestamp < :to order by h.timestamp, h.id")
+    Stream<ReservationHistory> streamAll(@Param("from") Date from, @Param("to") Date to);
+
+    /**
+     * Streams the history of an eatery changed in a time range, ordered by timestamp and id.
+     * The rows are fetched in chunks through a database cursor and must be read within a transaction.
+     * @param eateryId eatery id
+     * @param from earliest timestamp (inclusive)
+     * @param to latest timestamp (exclusive)
+     * @return stream of records, to be closed after reading
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + EXPORT_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select h from ReservationHistory h " +
+            "where h.eateryId = :eateryId and h.timestamp >= :from and h.timestamp < :to order by h.timestamp, h.id")
+    Stream<ReservationHistory> streamByEateryId(@Param("eateryId") Long eateryId, @Param("from") Date from, @Param("to") Date to);
 }
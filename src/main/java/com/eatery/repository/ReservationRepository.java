@@ -1,7 +1,16 @@
 package com.eatery.repository;
 
 import com.eatery.entity.Reservation;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
 
 /**
  * Repository interface for managing Reservation entities.
@@ -9,4 +18,25 @@ import org.springframework.data.jpa.repository.JpaRepository;
  * and additional functionality for working with Reservation entities.
  */
 public interface ReservationRepository extends JpaRepository<Reservation, Long> {
+    /**
+     * Finds one slice of the reservations in descending id order, starting below the given id.
+     * The slice knows whether a next page exists without counting all rows.
+     */
+    Slice<Reservation> findByIdLessThanOrderByIdDesc(Long id, Pageable pageable);
+
+    List<Reservation> findAllByStatusAndReservationDateTimeAfter(Reservation.Status status, LocalDateTime dateTime);
+
+    /**
+     * Locks the reservations of an eatery starting strictly between the given times until the end of the transaction.
+     * Waits for uncommitted changes of these reservations and selects them in their committed state.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select r from Reservation r " +
+            "where r.eateryId = :eateryId and r.status = :status and r.reservationDateTime > :from and r.reservationDateTime < :to")
+    List<Reservation> lockAll(
+            @Param("eateryId") Long eateryId,
+            @Param("status") Reservation.Status status,
+            @Param("from") LocalDateTime from,
+            @Param("to") LocalDateTime to
+    );
 }
@@ -1,7 +1,14 @@
 package com.eatery.repository;
 
 import com.eatery.entity.Review;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
 
 /**
  * Repository interface for managing Review entities.
@@ -9,4 +16,71 @@ import org.springframework.data.jpa.repository.JpaRepository;
  * and additional functionality for working with Review entities.
  */
 public interface ReviewRepository extends JpaRepository<Review, Long> {
+    /**
+     * Finds one slice of the reviews in descending id order, starting below the given id.
+     * The slice knows whether a next page exists without counting all rows.
+     */
+    Slice<Review> findByIdLessThanOrderByIdDesc(Long id, Pageable pageable);
+
+    /**
+     * Counts the reviews of an eatery per rating.
+     * @param eateryId eatery id
+     * @return pairs of rating and number of reviews
+     */
+    @Query("select r.rating, count(r) from Review r where r.eateryId = :eateryId group by r.rating")
+    List<Object[]> countByRating(@Param("eateryId") long eateryId);
+
+    /**
+     * Returns the reviews of an eatery older than a review, newest first.
+     * @param eateryId eatery id
+     * @param id id of the last review of the previous page
+     * @param limit maximum number of reviews
+     * @return reviews of the page
+     */
+    List<Review> findByEateryIdAndIdLessThanOrderByIdDesc(long eateryId, long id, Limit limit);
+
+    /**
+     * Returns the reviews of a customer older than a review, newest first.
+     * @param customerId customer id
+     * @param id id of the last review of the previous page
+     * @param limit maximum number of reviews
+     * @return reviews of the page
+     */
+    List<Review> findByCustomerIdAndIdLessThanOrderByIdDesc(long customerId, long id, Limit limit);
+
+    /**
+     * Returns the reviews of an eatery after a (rating, id) cursor, best rating first and newest first within a rating.
+     * @param eateryId eatery id
+     * @param rating rating of the last review of the previous page
+     * @param id id of the last review of the previous page
+     * @param limit maximum number of reviews
+     * @return reviews of the page
+     */
+    @Query("select r from Review r where r.eateryId = :eateryId " +
+            "and (r.rating < :rating or (r.rating = :rating and r.id < :id)) " +
+            "order by r.rating desc, r.id desc")
+    List<Review> findByEateryIdOrderByRating(
+            @Param("eateryId") long eateryId,
+            @Param("rating") int rating,
+            @Param("id") long id,
+            Limit limit
+    );
+
+    /**
+     * Returns the reviews of a customer after a (rating, id) cursor, best rating first and newest first within a rating.
+     * @param customerId customer id
+     * @param rating rating of the last review of the previous page
+     * @param id id of the last review of the previous page
+     * @param limit maximum number of reviews
+     * @return reviews of the page
+     */
+    @Query("select r from Review r where r.customerId = :customerId " +
+            "and (r.rating < :rating or (r.rating = :rating and r.id < :id)) " +
+            "order by r.rating desc, r.id desc")
+    List<Review> findByCustomerIdOrderByRating(
+            @Param("customerId") long customerId,
+            @Param("rating") int rating,
+            @Param("id") long id,
+            Limit limit
+    );
 }
@@ -0,0 +1,71 @@
+package com.eatery.repository;
+
+import com.eatery.entity.SlotOccupancy;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * Repository interface for managing SlotOccupancy entities.
+ */
+public interface SlotOccupancyRepository extends JpaRepository<SlotOccupancy, Long> {
+    /**
+     * Adds guests to every bucket in [fromBucket, toBucket) which stays within the capacity.
+     * @return number of updated buckets, less than the number of buckets if any bucket is full or missing
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("update SlotOccupancy s set s.occupied = s.occupied + :guests " +
+            "where s.eateryId = :eateryId and s.bucket >= :fromBucket and s.bucket < :toBucket " +
+            "and s.occupied + :guests <= :capacity")
+    int admit(
+            @Param("eateryId") Long eateryId,
+            @Param("fromBucket") long fromBucket,
+            @Param("toBucket") long toBucket,
+            @Param("guests") int guests,
+            @Param("capacity") int capacity
+    );
+
+    /**
+     * Removes guests from every bucket in [fromBucket, toBucket).
+     * @return number of updated buckets
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("update SlotOccupancy s set s.occupied = s.occupied - :guests " +
+            "where s.eateryId = :eateryId and s.bucket >= :fromBucket and s.bucket < :toBucket")
+    int release(
+            @Param("eateryId") Long eateryId,
+            @Param("fromBucket") long fromBucket,
+            @Param("toBucket") long toBucket,
+            @Param("guests") int guests
+    );
+
+    /**
+     * Deletes the buckets before the given bucket, which no reservation can be admitted to anymore.
+     * @return number of deleted buckets
+     */
+    @Transactional
+    @Modifying
+    @Query("delete from SlotOccupancy s where s.bucket < :bucket")
+    int deleteByBucketLessThan(@Param("bucket") long bucket);
+
+    /**
+     * Deletes all buckets of an eatery.
+     * @return number of deleted buckets
+     */
+    @Transactional
+    @Modifying
+    @Query("delete from SlotOccupancy s where s.eateryId = :eateryId")
+    int deleteByEateryId(@Param("eateryId") Long eateryId);
+
+    @Query("select s.bucket from SlotOccupancy s " +
+            "where s.eateryId = :eateryId and s.bucket >= :fromBucket and s.bucket < :toBucket")
+    List<Long> findBuckets(
+            @Param("eateryId") Long eateryId,
+            @Param("fromBucket") long fromBucket,
+            @Param("toBucket") long toBucket
+    );
+}
@@ -0,0 +1,137 @@
+package com.eatery.security;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.concurrent.*;
+
+/**
+ * Salted PBKDF2 password hashing.
+ * Hashes are stored as {@code pbkdf2$<iterations>$<salt>$<hash>}, so the cost can be raised without
+ * invalidating existing passwords. Hashing is CPU bound and runs on a small bounded pool.
+ * Request handlers use the asynchronous methods and return the future, so the request thread is released
+ * while the password is hashed, and a full queue is rejected at once instead of parking the thread.
+ */
+@Component
+public class PasswordHasher {
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final String PREFIX = "pbkdf2";
+    /**
+     * SQL like pattern matching every encoded hash.
+     */
+    public static final String HASHED_PATTERN = PREFIX + "$%";
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BITS = 256;
+
+    private final SecureRandom random = new SecureRandom();
+    private final int iterations;
+    private final ExecutorService executor;
+
+    public PasswordHasher(
+            @Value("${security.password.iterations:210000}") int iterations,
+            @Value("${security.password.threads:2}") int threads,
+            @Value("${security.password.queue-capacity:100}") int queueCapacity
+    ) {
+        this.iterations = iterations;
+        this.executor = new ThreadPoolExecutor(
+                threads,
+                threads,
+                0L,
+                TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                new ThreadPoolExecutor.AbortPolicy()
+        );
+    }
+
+    /**
+     * Hashes a raw password with a new random salt on the hashing pool.
+     * @param rawPassword raw password
+     * @return future of the encoded hash
+     * @throws RejectedExecutionException if too many passwords are waiting to be hashed
+     */
+    public CompletableFuture<String> hashAsync(String rawPassword) {
+        byte[] salt = new byte[SALT_BYTES];
+        random.nextBytes(salt);
+        return CompletableFuture.supplyAsync(() -> PREFIX + "$" + iterations + "$" +
+                Base64.getEncoder().encodeToString(salt) + "$" +
+                Base64.getEncoder().encodeToString(pbkdf2(rawPassword, salt, iterations)), executor);
+    }
+
+    /**
+     * Hashes a raw password and waits for the hash, only for callers outside of request handling,
+     * like preloading and the migration of plain text passwords.
+     * @param rawPassword raw password
+     * @return encoded hash
+     * @throws RejectedExecutionException if too many passwords are waiting to be hashed
+     */
+    public String hash(String rawPassword) {
+        return hashAsync(rawPassword).join();
+    }
+
+    /**
+     * Checks a raw password against a stored hash on the hashing pool.
+     * Stored passwords which are not hashed never match, see {@link #isHashed(String)}.
+     * @param rawPassword raw password
+     * @param storedPassword encoded hash
+     * @return future of true if the password matches
+     * @throws RejectedExecutionException if too many passwords are waiting to be verified
+     */
+    public CompletableFuture<Boolean> matchesAsync(String rawPassword, String storedPassword) {
+        if (rawPassword == null || !isHashed(storedPassword)) {
+            return CompletableFuture.completedFuture(false);
+        }
+        String[] parts = storedPassword.split("\\$");
+        int storedIterations = Integer.parseInt(parts[1]);
+        byte[] salt = Base64.getDecoder().decode(parts[2]);
+        byte[] expectedHash = Base64.getDecoder().decode(parts[3]);
+        return CompletableFuture.supplyAsync(
+                () -> MessageDigest.isEqual(expectedHash, pbkdf2(rawPassword, salt, storedIterations)),
+                executor
+        );
+    }
+
+    /**
+     * Checks if a stored password is an encoded hash.
+     * @param storedPassword stored password
+     * @return false if the password is plain text
+     */
+    public boolean isHashed(String storedPassword) {
+        if (storedPassword == null) {
+            return false;
+        }
+        String[] parts = storedPassword.split("\\$");
+        return parts.length == 4 && parts[0].equals(PREFIX);
+    }
+
+    /**
+     * Checks if a stored hash should be hashed again, because it uses another cost.
+     * @param storedPassword encoded hash
+     * @return true if the password should be hashed again after a successful login
+     */
+    public boolean needsRehash(String storedPassword) {
+        return storedPassword == null || !storedPassword.startsWith(PREFIX + "$" + iterations + "$");
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    private static byte[] pbkdf2(String rawPassword, byte[] salt, int iterations) {
+        PBEKeySpec spec = new PBEKeySpec(rawPassword.toCharArray(), salt, iterations, HASH_BITS);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Password hashing failed", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+}
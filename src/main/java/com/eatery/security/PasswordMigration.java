@@ -0,0 +1,58 @@
+package com.eatery.security;
+
+import com.eatery.entity.Customer;
+import com.eatery.entity.EateryManager;
+import com.eatery.repository.CustomerRepository;
+import com.eatery.repository.EateryManagerRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.stereotype.Component;
+
+/**
+ * One-off migration hashing the plain text passwords stored before passwords were hashed.
+ * Plain text passwords never match at login, so run it once with security.password.migrate-plain-text=true
+ * before deploying a database which still contains them.
+ */
+@Component
+public class PasswordMigration implements CommandLineRunner {
+    private static final Logger logger = LoggerFactory.getLogger(PasswordMigration.class);
+
+    @Value("${security.password.migrate-plain-text:false}")
+    private boolean enabled;
+    @Autowired
+    private CustomerRepository customerRepository;
+    @Autowired
+    private EateryManagerRepository eateryManagerRepository;
+    @Autowired
+    private PasswordHasher passwordHasher;
+
+    @Override
+    public void run(String... args) {
+        if (enabled) {
+            migrate();
+        }
+    }
+
+    /**
+     * Hashes every stored plain text password of the customers and eatery managers.
+     * @return number of migrated passwords
+     */
+    public int migrate() {
+        int migrated = 0;
+        for (Customer customer : customerRepository.findByPasswordNotLike(PasswordHasher.HASHED_PATTERN)) {
+            customer.setPassword(passwordHasher.hash(customer.getPassword()));
+            customerRepository.save(customer);
+            migrated++;
+        }
+        for (EateryManager eateryManager : eateryManagerRepository.findByPasswordNotLike(PasswordHasher.HASHED_PATTERN)) {
+            eateryManager.setPassword(passwordHasher.hash(eateryManager.getPassword()));
+            eateryManagerRepository.save(eateryManager);
+            migrated++;
+        }
+        logger.info("Hashed {} plain text passwords", migrated);
+        return migrated;
+    }
+}
@@ -1,14 +1,21 @@
 package com.eatery.service;
 
+import com.eatery.api.dto.CustomerSummary;
 import com.eatery.api.dto.UpdateCustomerRequest;
 import com.eatery.exception.CustomerBadRequestException;
 import com.eatery.exception.CustomerNotFoundException;
 import com.eatery.entity.Customer;
 import com.eatery.repository.CustomerRepository;
+import com.eatery.repository.FieldsetRepository;
+import com.eatery.security.PasswordHasher;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 
-import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Service class responsible for handling business logic related to customers.
@@ -16,33 +23,89 @@ import java.util.List;
  */
 @Service
 public class CustomerService {
+    /**
+     * Fields of a customer which may be requested as a sparse fieldset, the password hash is never selected.
+     */
+    public static final Set<String> FIELDS = Set.of("id", "firstName", "lastName", "username", "phoneNumber");
+
     @Autowired
     CustomerRepository customerRepository;
+    @Autowired
+    FieldsetRepository fieldsetRepository;
+    @Autowired
+    PasswordHasher passwordHasher;
 
     /**
-     * Retrieves all customers from the database.
-     * @return A list of all customers.
+     * Retrieves one page of the customers from the database, newest first.
+     * @param after cursor of the last customer of the previous page, or null for the first page
+     * @param limit maximum number of customers
+     * @return A slice of the customers, which knows whether a next page exists.
+     * @throws CustomerBadRequestException if the cursor or limit is invalid.
      */
-    public List<Customer> getAll() {
-        return customerRepository.findAll();
+    public Slice<Customer> getAll(String after, int limit) {
+        return customerRepository.findByIdLessThanOrderByIdDesc(
+                IdCursor.parse(after, name -> new CustomerBadRequestException("Invalid request parameter " + name)),
+                IdCursor.limit(limit, name -> new CustomerBadRequestException("Invalid request parameter " + name))
+        );
+    }
+
+    /**
+     * Counts all customers.
+     * @return number of customers
+     */
+    public long count() {
+        return customerRepository.count();
+    }
+
+    /**
+     * Retrieves one page of the customers in the summary view, newest first.
+     * @param after cursor of the last customer of the previous page, or null for the first page
+     * @param limit maximum number of customers
+     * @return A slice of the customer summaries.
+     */
+    public Slice<CustomerSummary> getAllSummaries(String after, int limit) {
+        return customerRepository.findSummariesByIdLessThan(
+                IdCursor.parse(after, name -> new CustomerBadRequestException("Invalid request parameter " + name)),
+                IdCursor.limit(limit, name -> new CustomerBadRequestException("Invalid request parameter " + name))
+        );
+    }
+
+    /**
+     * Retrieves one page of the customers with only the requested fields, newest first.
+     * @param fields comma separated names of the fields, out of {@link #FIELDS}
+     * @param after cursor of the last customer of the previous page, or null for the first page
+     * @param limit maximum number of customers
+     * @return A slice of the customers, each a map from field name to value starting with the id.
+     */
+    public Slice<Map<String, Object>> getAllFields(String fields, String after, int limit) {
+        return fieldsetRepository.findFieldsByIdLessThan(
+                Customer.class,
+                Fieldset.parse(fields, FIELDS, name -> new CustomerBadRequestException("Invalid request parameter " + name)),
+                IdCursor.parse(after, name -> new CustomerBadRequestException("Invalid request parameter " + name)),
+                IdCursor.limit(limit, name -> new CustomerBadRequestException("Invalid request parameter " + name))
+        );
     }
 
     /**
      * Creates a new customer after validating the provided data.
+     * The password is hashed on the hashing pool, the customer is saved when the hash is ready.
      * @param newCustomerRequest The customer object to be created.
-     * @return The created customer object.
-     * @throws CustomerBadRequestException if the provided customer data is invalid.
+     * @return A future of the created customer object.
+     * @throws CustomerBadRequestException if the provided customer data is invalid or the username is taken.
      */
-    public Customer create(UpdateCustomerRequest newCustomerRequest) {
+    public CompletableFuture<Customer> create(UpdateCustomerRequest newCustomerRequest) {
         validateCustomer(newCustomerRequest);
-        Customer customer = new Customer(
-                newCustomerRequest.getFirstName(),
-                newCustomerRequest.getLastName(),
-                newCustomerRequest.getUsername(),
-                newCustomerRequest.getPassword(),
-                newCustomerRequest.getPhoneNumber()
-        );
-        return customerRepository.save(customer);
+        if (customerRepository.existsByUsername(newCustomerRequest.getUsername())) {
+            throw new CustomerBadRequestException("Username is already taken.");
+        }
+        return passwordHasher.hashAsync(newCustomerRequest.getPassword())
+                .thenApply(hash -> save(new Customer(
+                        newCustomerRequest.getFirstName(),
+                        newCustomerRequest.getLastName(),
+                        newCustomerRequest.getUsername(),
+                        hash,
+                        newCustomerRequest.getPhoneNumber()
+                )));
     }
 
     /**
@@ -69,37 +132,71 @@ public class CustomerService {
 
     /**
      * Retrieves a customer by their username and password.
+     * The password is checked on the hashing pool.
      * @param username user name
      * @param password password
-     * @return The customer object with the specified username and password.
+     * @return A future of the customer object with the specified username and password.
      * @throws CustomerNotFoundException if the customer with the specified username and password does not exist.
      */
-    public Customer get(String username, String password) {
-        return customerRepository.findAll().stream()
-                .filter(customer ->
-                        customer.getUsername().equals(username) && customer.getPassword().equals(password)
-                )
-                .findFirst()
+    public CompletableFuture<Customer> get(String username, String password) {
+        Customer customer = customerRepository.findByUsername(username)
                 .orElseThrow(CustomerNotFoundException::new);
+        return passwordHasher.matchesAsync(password, customer.getPassword())
+                .thenCompose(matches -> {
+                    if (!matches) {
+                        throw new CustomerNotFoundException();
+                    }
+                    // upgrade passwords hashed with an outdated cost
+                    if (!passwordHasher.needsRehash(customer.getPassword())) {
+                        return CompletableFuture.completedFuture(customer);
+                    }
+                    return passwordHasher.hashAsync(password).thenApply(hash -> {
+                        customer.setPassword(hash);
+                        return save(customer);
+                    });
+                });
     }
 
     /**
-     * Validates the customer data to ensure required fields are not null or empty.
-     * @param newCustomer The customer object to be validated.
-     * @throws CustomerBadRequestException if any required field is missing or empty.
+     * Replaces the data of an existing customer after validating the provided data.
+     * The new password is hashed on the hashing pool, the customer is saved when the hash is ready.
+     * @param newCustomer The new data of the customer.
+     * @param id The ID of the customer to be replaced.
+     * @return A future of the updated customer object.
+     * @throws CustomerNotFoundException if the customer with the specified ID does not exist.
+     * @throws CustomerBadRequestException if the provided customer data is invalid or the username is taken.
      */
-    public Customer replace(UpdateCustomerRequest newCustomer, Long id) {
+    public CompletableFuture<Customer> replace(UpdateCustomerRequest newCustomer, Long id) {
         validateCustomer(newCustomer);
-        return customerRepository.findById(id)
-                .map(customer -> {
+        Customer customer = customerRepository.findById(id)
+                .orElseThrow(CustomerNotFoundException::new);
+        if (!newCustomer.getUsername().equals(customer.getUsername()) &&
+                customerRepository.existsByUsername(newCustomer.getUsername())) {
+            throw new CustomerBadRequestException("Username is already taken.");
+        }
+        return passwordHasher.hashAsync(newCustomer.getPassword())
+                .thenApply(hash -> {
                     customer.setFirstName(newCustomer.getFirstName());
                     customer.setLastName(newCustomer.getLastName());
                     customer.setUsername(newCustomer.getUsername());
-                    customer.setPassword(newCustomer.getPassword());
+                    customer.setPassword(hash);
                     customer.setPhoneNumber(newCustomer.getPhoneNumber());
-                    return customerRepository.save(customer);
-                })
-                .orElseThrow(CustomerNotFoundException::new);
+                    return save(customer);
+                });
+    }
+
+    /**
+     * Saves a customer, a username taken concurrently after the check is reported like a taken username.
+     * @param customer customer to save
+     * @return saved customer
+     * @throws CustomerBadRequestException if the username is taken
+     */
+    private Customer save(Customer customer) {
+        try {
+            return customerRepository.save(customer);
+        } catch (DataIntegrityViolationException e) {
+            throw new CustomerBadRequestException("Username is already taken.");
+        }
     }
 
     private void validateCustomer(UpdateCustomerRequest customer) {
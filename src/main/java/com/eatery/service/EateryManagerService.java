@@ -1,15 +1,18 @@
 package com.eatery.service;
 
 import com.eatery.api.dto.UpdateManagerRequest;
-import com.eatery.exception.CustomerNotFoundException;
 import com.eatery.exception.EateryManagerBadRequestException;
 import com.eatery.exception.EateryManagerNotFoundException;
 import com.eatery.entity.EateryManager;
 import com.eatery.repository.EateryManagerRepository;
+import com.eatery.security.PasswordHasher;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Service class for handling change request of EateryManager object
@@ -18,23 +21,40 @@ import java.util.List;
 public class EateryManagerService {
     @Autowired
     private EateryManagerRepository eateryManagerRepository;
+    @Autowired
+    private PasswordHasher passwordHasher;
+
+    /**
+     * Retrieves one page of the eatery managers from the database, newest first.
+     * @param after cursor of the last eatery manager of the previous page, or null for the first page
+     * @param limit maximum number of eatery managers
+     * @return A slice of the eatery managers, which knows whether a next page exists.
+     * @throws EateryManagerBadRequestException if the cursor or limit is invalid.
+     */
+    public Slice<EateryManager> getAll(String after, int limit) {
+        return eateryManagerRepository.findByIdLessThanOrderByIdDesc(
+                IdCursor.parse(after, name -> new EateryManagerBadRequestException("Invalid request parameter " + name)),
+                IdCursor.limit(limit, name -> new EateryManagerBadRequestException("Invalid request parameter " + name))
+        );
+    }
 
     /**
-     * Get all eatery managers
-     * @return all eatery managers
+     * Counts all eatery managers.
+     * @return number of eatery managers
      */
-    public List<EateryManager> getAll() {
-        return eateryManagerRepository.findAll();
+    public long count() {
+        return eateryManagerRepository.count();
     }
 
     /**
      * Creates a new EateryManager from the provided update request.
      * Performs validation before saving the manager to the repository.
+     * The password is hashed on the hashing pool, the manager is saved when the hash is ready.
      * @param newManager The update request containing new manager information.
-     * @return The created EateryManager object.
-     * @throws EateryManagerBadRequestException if the provided manager data is invalid.
+     * @return A future of the created EateryManager object.
+     * @throws EateryManagerBadRequestException if the provided manager data is invalid or the username is taken.
      */
-    public EateryManager create(UpdateManagerRequest newManager) {
+    public CompletableFuture<EateryManager> create(UpdateManagerRequest newManager) {
         EateryManager manager = new EateryManager(
                 newManager.getFirstName(),
                 newManager.getLastName(),
@@ -45,7 +65,14 @@ public class EateryManagerService {
                 newManager.getWorkSchedules()
         );
         validateEateryManager(manager); // Validierung vor dem Speichern
-        return eateryManagerRepository.save(manager);
+        if (eateryManagerRepository.existsByUsername(manager.getUsername())) {
+            throw new EateryManagerBadRequestException("Username is already taken.");
+        }
+        return passwordHasher.hashAsync(manager.getPassword())
+                .thenApply(hash -> {
+                    manager.setPassword(hash);
+                    return save(manager);
+                });
     }
 
 
@@ -62,42 +89,74 @@ public class EateryManagerService {
 
     /**
      * Retrieves an eatery manager by their username and password.
+     * The password is checked on the hashing pool.
      * @param username user name
      * @param password password
-     * @return The eatery manager object with the specified username and password.
-     * @throws CustomerNotFoundException if the eatery manager with the specified username and password does not exist.
+     * @return A future of the eatery manager object with the specified username and password.
+     * @throws EateryManagerNotFoundException if the eatery manager with the specified username and password does not exist.
      */
-    public EateryManager get(String username, String password) {
-        return eateryManagerRepository.findAll().stream()
-                .filter(eateryManager ->
-                        eateryManager.getUsername().equals(username) && eateryManager.getPassword().equals(password)
-                )
-                .findFirst()
+    public CompletableFuture<EateryManager> get(String username, String password) {
+        EateryManager eateryManager = eateryManagerRepository.findByUsername(username)
                 .orElseThrow(EateryManagerNotFoundException::new);
+        return passwordHasher.matchesAsync(password, eateryManager.getPassword())
+                .thenCompose(matches -> {
+                    if (!matches) {
+                        throw new EateryManagerNotFoundException();
+                    }
+                    // upgrade passwords hashed with an outdated cost
+                    if (!passwordHasher.needsRehash(eateryManager.getPassword())) {
+                        return CompletableFuture.completedFuture(eateryManager);
+                    }
+                    return passwordHasher.hashAsync(password).thenApply(hash -> {
+                        eateryManager.setPassword(hash);
+                        return save(eateryManager);
+                    });
+                });
     }
 
     /**
      * Replaces an existing EateryManager's information with the provided update request.
      * Performs validation before saving the updated manager to the repository.
+     * The new password is hashed on the hashing pool, the manager is saved when the hash is ready.
      * @param newManager The update request containing new manager information.
      * @param id The ID of the EateryManager to be updated.
-     * @return The updated EateryManager object.
+     * @return A future of the updated EateryManager object.
      * @throws EateryManagerNotFoundException if the manager with the specified ID does not exist.
-     * @throws EateryManagerBadRequestException if the provided manager data is invalid.
+     * @throws EateryManagerBadRequestException if the provided manager data is invalid or the username is taken.
      */
-    public EateryManager replace(UpdateManagerRequest newManager, Long id) {
-        return eateryManagerRepository.findById(id)
-                .map(eateryManager -> {
-                    eateryManager.setFirstName(newManager.getFirstName());
-                    eateryManager.setLastName(newManager.getLastName());
-                    eateryManager.setUsername(newManager.getUsername());
-                    eateryManager.setPassword(newManager.getPassword());
-                    eateryManager.setJobTitle(newManager.getJobTitle());
-                    eateryManager.setWorkSchedules(newManager.getWorkSchedules());
-                    validateEateryManager(eateryManager); // Validierung vor dem Speichern
-                    return eateryManagerRepository.save(eateryManager);
-                })
+    public CompletableFuture<EateryManager> replace(UpdateManagerRequest newManager, Long id) {
+        EateryManager eateryManager = eateryManagerRepository.findById(id)
                 .orElseThrow(EateryManagerNotFoundException::new);
+        if (newManager.getUsername() != null && !newManager.getUsername().equals(eateryManager.getUsername()) &&
+                eateryManagerRepository.existsByUsername(newManager.getUsername())) {
+            throw new EateryManagerBadRequestException("Username is already taken.");
+        }
+        eateryManager.setFirstName(newManager.getFirstName());
+        eateryManager.setLastName(newManager.getLastName());
+        eateryManager.setUsername(newManager.getUsername());
+        eateryManager.setPassword(newManager.getPassword());
+        eateryManager.setJobTitle(newManager.getJobTitle());
+        eateryManager.setWorkSchedules(newManager.getWorkSchedules());
+        validateEateryManager(eateryManager); // Validierung vor dem Speichern
+        return passwordHasher.hashAsync(eateryManager.getPassword())
+                .thenApply(hash -> {
+                    eateryManager.setPassword(hash);
+                    return save(eateryManager);
+                });
+    }
+
+    /**
+     * Saves an eatery manager, a username taken concurrently after the check is reported like a taken username.
+     * @param eateryManager eatery manager to save
+     * @return saved eatery manager
+     * @throws EateryManagerBadRequestException if the username is taken
+     */
+    private EateryManager save(EateryManager eateryManager) {
+        try {
+            return eateryManagerRepository.save(eateryManager);
+        } catch (DataIntegrityViolationException e) {
+            throw new EateryManagerBadRequestException("Username is already taken.");
+        }
     }
 
     /**
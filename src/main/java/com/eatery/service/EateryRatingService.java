@@ -0,0 +1,175 @@
+package com.eatery.service;
+
+import com.eatery.entity.EateryRating;
+import com.eatery.repository.EateryRatingRepository;
+import com.eatery.repository.EateryRepository;
+import com.eatery.repository.ReviewRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Service class for maintaining the rating aggregates of eateries.
+ * Review changes update the aggregate of their eatery in the same transaction,
+ * and the repair job recomputes all aggregates from the reviews.
+ */
+@Service
+public class EateryRatingService implements CommandLineRunner {
+    private static final Logger logger = LoggerFactory.getLogger(EateryRatingService.class);
+
+    @Autowired
+    private EateryRatingRepository ratingRepository;
+    @Autowired
+    private ReviewRepository reviewRepository;
+    @Autowired
+    private EateryRepository eateryRepository;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Value("${rating.repair.on-startup:false}")
+    private boolean repairOnStartup;
+    @Value("${rating.repair.concurrency:4}")
+    private int repairConcurrency;
+
+    /**
+     * Adds a review to the aggregate of its eatery, within the current transaction.
+     * @param eateryId eatery id
+     * @param rating rating of the review
+     */
+    public void add(long eateryId, int rating) {
+        change(eateryId, rating, 1);
+    }
+
+    /**
+     * Removes a review from the aggregate of its eatery, within the current transaction.
+     * @param eateryId eatery id
+     * @param rating rating of the review
+     */
+    public void remove(long eateryId, int rating) {
+        change(eateryId, rating, -1);
+    }
+
+    /**
+     * Records a review change which keeps the rating, within the current transaction.
+     * @param eateryId eatery id
+     */
+    public void touch(long eateryId) {
+        if (ratingRepository.touch(eateryId) == 0) {
+            recomputeLocked(eateryId);
+        }
+    }
+
+    private void change(long eateryId, int rating, int delta) {
+        if (ratingRepository.add(eateryId, rating, delta) == 0) {
+            // the review change is flushed before the reviews are counted, so it is already included
+            recomputeLocked(eateryId);
+        }
+    }
+
+    @Override
+    public void run(String... args) {
+        if (repairOnStartup) {
+            repairAll();
+        }
+    }
+
+    /**
+     * Recomputes the aggregates of all eateries from their reviews, one transaction per eatery.
+     * At most repairConcurrency eateries are repaired at the same time, so the job leaves connections of the pool
+     * to the requests. Runs at startup with rating.repair.on-startup=true, to fill in the aggregates of eateries
+     * created before they were maintained.
+     * @return number of repaired aggregates
+     */
+    public int repairAll() {
+        List<Long> eateryIds = eateryRepository.findAllIds();
+        Semaphore permits = new Semaphore(repairConcurrency);
+        AtomicInteger repaired = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (Long eateryId : eateryIds) {
+                permits.acquire();
+                executor.submit(() -> {
+                    try {
+                        if (repair(eateryId) != null) {
+                            repaired.incrementAndGet();
+                        }
+                    } catch (RuntimeException e) {
+                        failed.incrementAndGet();
+                        logger.warn("Could not repair rating aggregate of eatery {}", eateryId, e);
+                    } finally {
+                        permits.release();
+                    }
+                });
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("Repair of rating aggregates interrupted");
+        }
+        logger.info("Repaired rating aggregates of {} eateries, {} failed", repaired.get(), failed.get());
+        return repaired.get();
+    }
+
+    /**
+     * Recomputes the aggregate of an eatery from its reviews in a new transaction.
+     * @param eateryId eatery id
+     * @return saved aggregate, null if the eatery does not exist
+     */
+    public EateryRating repair(Long eateryId) {
+        return transactionTemplate.execute(status -> recomputeLocked(eateryId));
+    }
+
+    /**
+     * Creates the empty aggregate of a new eatery.
+     * @param eateryId eatery id
+     */
+    public void initialize(Long eateryId) {
+        ratingRepository.save(new EateryRating(eateryId));
+    }
+
+    /**
+     * Deletes the aggregate of a deleted eatery.
+     * @param eateryId eatery id
+     */
+    public void delete(Long eateryId) {
+        ratingRepository.deleteById(eateryId);
+    }
+
+    /**
+     * Recomputes the aggregate of an eatery while it is locked, creating it if it is missing.
+     * The lock makes concurrent review changes wait until the recomputed values are written, so none of them is lost,
+     * and the lock of the eatery makes concurrent first reviews of an eatery without aggregate create it only once.
+     * @return recomputed aggregate, null if the eatery does not exist
+     */
+    private EateryRating recomputeLocked(Long eateryId) {
+        Optional<EateryRating> locked = ratingRepository.lockById(eateryId);
+        if (locked.isEmpty()) {
+            if (eateryRepository.lockId(eateryId).isEmpty()) {
+                return null;
+            }
+            locked = ratingRepository.lockById(eateryId);
+        }
+        EateryRating rating;
+        if (locked.isPresent()) {
+            rating = locked.get();
+            // a recomputed aggregate still counts as a change, so it never reuses the revision of an older state
+            rating.setRevision(rating.getRevision() + 1);
+            rating.clear();
+        } else {
+            rating = new EateryRating(eateryId);
+        }
+        for (Object[] count : reviewRepository.countByRating(eateryId)) {
+            rating.add((Integer) count[0], (Long) count[1]);
+        }
+        return ratingRepository.save(rating);
+    }
+}
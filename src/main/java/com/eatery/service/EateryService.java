@@ -1,17 +1,45 @@
 package com.eatery.service;
 
+import com.eatery.api.dto.AvailableSlot;
 import com.eatery.api.dto.CreateEateryRequest;
+import com.eatery.api.dto.EateryAvailability;
+import com.eatery.api.dto.EaterySummary;
 import com.eatery.api.dto.UpdateEateryRequest;
+import com.eatery.booking.BookingEngine;
 import com.eatery.entity.EateryManager;
 import com.eatery.exception.EateryBadRequestException;
+import com.eatery.exception.EateryConflictException;
 import com.eatery.exception.EateryNotFoundException;
 import com.eatery.entity.Eatery;
+import com.eatery.entity.WeeklySchedule;
+import com.eatery.index.EateryGeoIndex;
+import com.eatery.index.EaterySearchIndex;
+import com.eatery.index.OccupancyIndex;
 import com.eatery.repository.EateryManagerRepository;
 import com.eatery.repository.EateryRepository;
+import com.eatery.repository.FieldsetRepository;
+import com.eatery.validator.TimeBoundaryStrategy;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Slice;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * Service class responsible for managing Eatery objects.
@@ -19,18 +47,93 @@ import java.util.List;
  */
 @Service
 public class EateryService {
+    private static final int MAX_AVAILABILITY_DAYS = 31;
+    private static final int AVAILABILITY_CHUNK_SIZE = 32;
+    /**
+     * Deepest result a paged search returns, the ranking keeps page + 1 pages of hits.
+     */
+    private static final int MAX_SEARCH_RESULTS = 10_000;
+
+    /**
+     * Fields of an eatery which may be requested as a sparse fieldset, all of them columns of the eatery table.
+     */
+    public static final Set<String> FIELDS = Set.of(
+            "id", "type", "name", "address", "email", "phoneNumber", "guestCapacity",
+            "latitude", "longitude", "businessDayTimes", "managerId", "version"
+    );
 
     @Autowired
     private EateryRepository eateryRepository;
     @Autowired
     private EateryManagerRepository eateryManagerRepository;
+    @Autowired
+    private FieldsetRepository fieldsetRepository;
+    @Autowired
+    private OccupancyIndex occupancyIndex;
+    @Autowired
+    private SlotOccupancyService slotOccupancyService;
+    @Autowired
+    private EaterySearchIndex searchIndex;
+    @Autowired
+    private EateryGeoIndex geoIndex;
+    @Autowired
+    private ReservationService reservationService;
+    @Autowired
+    private BookingEngine bookingEngine;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @Autowired
+    private EateryRatingService eateryRatingService;
+
+    /**
+     * Retrieves one page of the eateries from the database, newest first.
+     * @param after cursor of the last eatery of the previous page, or null for the first page
+     * @param limit maximum number of eateries
+     * @return A slice of the eateries, which knows whether a next page exists.
+     * @throws EateryBadRequestException if the cursor or limit is invalid.
+     */
+    public Slice<Eatery> findAll(String after, int limit) {
+        return eateryRepository.findByIdLessThanOrderByIdDesc(
+                IdCursor.parse(after, name -> new EateryBadRequestException("Invalid request parameter " + name)),
+                IdCursor.limit(limit, name -> new EateryBadRequestException("Invalid request parameter " + name))
+        );
+    }
+
+    /**
+     * Counts all eateries.
+     * @return number of eateries
+     */
+    public long count() {
+        return eateryRepository.count();
+    }
+
+    /**
+     * Retrieves one page of the eateries in the summary view, newest first.
+     * @param after cursor of the last eatery of the previous page, or null for the first page
+     * @param limit maximum number of eateries
+     * @return A slice of the eatery summaries.
+     */
+    public Slice<EaterySummary> findAllSummaries(String after, int limit) {
+        return eateryRepository.findSummariesByIdLessThan(
+                IdCursor.parse(after, name -> new EateryBadRequestException("Invalid request parameter " + name)),
+                IdCursor.limit(limit, name -> new EateryBadRequestException("Invalid request parameter " + name))
+        );
+    }
 
     /**
-     * Retrieves all eateries from the database.
-     * @return A list of all eateries.
+     * Retrieves one page of the eateries with only the requested fields, newest first.
+     * @param fields comma separated names of the fields, out of {@link #FIELDS}
+     * @param after cursor of the last eatery of the previous page, or null for the first page
+     * @param limit maximum number of eateries
+     * @return A slice of the eateries, each a map from field name to value starting with the id.
      */
-    public List<Eatery> findAll() {
-        return eateryRepository.findAll();
+    public Slice<Map<String, Object>> findAllFields(String fields, String after, int limit) {
+        return fieldsetRepository.findFieldsByIdLessThan(
+                Eatery.class,
+                Fieldset.parse(fields, FIELDS, name -> new EateryBadRequestException("Invalid request parameter " + name)),
+                IdCursor.parse(after, name -> new EateryBadRequestException("Invalid request parameter " + name)),
+                IdCursor.limit(limit, name -> new EateryBadRequestException("Invalid request parameter " + name))
+        );
     }
 
     /**
@@ -46,19 +149,182 @@ public class EateryService {
 
     /**
      * Searches for eateries based on the provided parameters.
-     * Performs a case-insensitive search for name, address, and type.
-     * @param name The name of the eatery to search for (partial match allowed).
-     * @param address The address of the eatery to search for (partial match allowed).
+     * Words are matched case-insensitively as word prefixes against the search index,
+     * and results are ranked with name matches above address matches and exact words above prefixes.
+     * @param name Words of the name of the eatery to search for (optional).
+     * @param address Words of the address of the eatery to search for (optional).
      * @param type The type of the eatery to search for (optional).
-     * @return A list of eateries that match the search criteria.
-     * @throws EateryNotFoundException if an invalid eatery type is provided.
-     */
-    public List<Eatery> search(String name, String address, String type) {
-        return eateryRepository.findAll().stream()
-                .filter(eatery -> (name == null || eatery.getName().equalsIgnoreCase(name)) &&
-                        (address == null || eatery.getAddress().equalsIgnoreCase(address)) &&
-                        (type == null || eatery.getType().equals(Eatery.Type.valueOf(type.toUpperCase()))))
-                .toList();
+     * @param query Words to search for in either name or address (optional).
+     * @param page The zero based page number.
+     * @param size The number of eateries per page.
+     * @return A page of eateries that match the search criteria, best match first.
+     * @throws EateryBadRequestException if an invalid eatery type or page is provided.
+     */
+    public List<Eatery> search(String name, String address, String type, String query, int page, int size) {
+        validatePage(page, size);
+        List<Long> ids = searchIndex.search(name, address, query, parseType(type), page, size);
+        return findAllInOrder(ids);
+    }
+
+    /**
+     * Finds the eateries nearest to a location.
+     * Only eateries with coordinates are considered.
+     * @param latitude The latitude of the location in degrees.
+     * @param longitude The longitude of the location in degrees.
+     * @param k The maximum number of eateries to return.
+     * @param type The type of the eatery to search for (optional).
+     * @param openNow Whether to return only eateries which are open now.
+     * @return A list of at most k eateries, nearest first.
+     * @throws EateryBadRequestException if the location, k or the eatery type is invalid.
+     */
+    public List<Eatery> nearby(double latitude, double longitude, int k, String type, boolean openNow) {
+        validateLocation(latitude, longitude);
+        if (k <= 0) {
+            throw new EateryBadRequestException("K must be greater than 0.");
+        }
+        List<Long> ids = geoIndex.nearest(latitude, longitude, k, parseType(type), openNow ? LocalDateTime.now() : null);
+        return findAllInOrder(ids);
+    }
+
+    /**
+     * Computes all bookable reservation start times of an eatery for a day or a range of days.
+     * Start times are aligned to the buckets of the OccupancyIndex and must be after the lead time of the
+     * TimeBoundaryStrategy, within business hours and leave room for the guests during the whole reservation duration.
+     * @param id The ID of the Eatery.
+     * @param date The first day.
+     * @param endDate The last day (optional, defaults to the first day).
+     * @param guests The number of guests.
+     * @return The bookable start times in chronological order.
+     * @throws EateryNotFoundException if the eatery with the specified ID does not exist.
+     * @throws EateryBadRequestException if the days or the number of guests are invalid.
+     */
+    public List<AvailableSlot> availability(Long id, LocalDate date, LocalDate endDate, int guests) {
+        LocalDate lastDate = endDate == null ? date : endDate;
+        if (date == null || lastDate.isBefore(date)) {
+            throw new EateryBadRequestException("End date must not be before date.");
+        }
+        if (ChronoUnit.DAYS.between(date, lastDate) >= MAX_AVAILABILITY_DAYS) {
+            throw new EateryBadRequestException("Date range must not exceed " + MAX_AVAILABILITY_DAYS + " days.");
+        }
+        if (guests <= 0) {
+            throw new EateryBadRequestException("Guests must be greater than 0.");
+        }
+        return availableSlots(findById(id), date, lastDate, guests);
+    }
+
+    /**
+     * Finds eateries which can be reserved at the requested time.
+     * Candidates are evaluated with the ReservationStrategy checks in chunks on virtual threads,
+     * and evaluation stops as soon as the requested page is full.
+     * Eateries which are full at the requested time are returned with the nearest bookable start time of the same day.
+     * @param type The type of the eateries (optional).
+     * @param dateTime The requested reservation time.
+     * @param guests The number of guests.
+     * @param page The zero based page number.
+     * @param size The number of eateries per page.
+     * @return A page of eateries in ascending ID order.
+     * @throws EateryBadRequestException if the parameters are invalid.
+     */
+    public List<EateryAvailability> searchAvailability(String type, LocalDateTime dateTime, int guests, int page, int size) {
+        if (dateTime == null) {
+            throw new EateryBadRequestException("Date time must not be null.");
+        }
+        if (guests <= 0) {
+            throw new EateryBadRequestException("Guests must be greater than 0.");
+        }
+        validatePage(page, size);
+        List<Long> candidates = searchIndex.ids(parseType(type));
+        long skip = (long) page * size;
+        List<EateryAvailability> results = new ArrayList<>();
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int offset = 0; offset < candidates.size() && results.size() < size; offset += AVAILABILITY_CHUNK_SIZE) {
+                List<Long> chunk = candidates.subList(offset, Math.min(candidates.size(), offset + AVAILABILITY_CHUNK_SIZE));
+                List<Future<EateryAvailability>> futures = findAllInOrder(chunk).stream()
+                        .map(eatery -> executor.submit(() -> evaluateAvailability(eatery, dateTime, guests)))
+                        .toList();
+                for (Future<EateryAvailability> future : futures) {
+                    EateryAvailability availability = await(future);
+                    if (availability == null) {
+                        continue;
+                    }
+                    if (skip > 0) {
+                        skip--;
+                    } else if (results.size() < size) {
+                        results.add(availability);
+                    }
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Checks the requested time at an eatery, falling back to the nearest bookable start time of the same day.
+     * @return availability of the eatery, or null if it cannot be reserved on that day
+     */
+    private EateryAvailability evaluateAvailability(Eatery eatery, LocalDateTime dateTime, int guests) {
+        if (reservationService.isReservable(eatery, dateTime, guests)) {
+            return new EateryAvailability(eatery.getId(), eatery.getName(), true, dateTime);
+        }
+        LocalDate date = dateTime.toLocalDate();
+        return availableSlots(eatery, date, date, guests).stream()
+                .map(AvailableSlot::getStartTime)
+                .min(Comparator.comparingLong((LocalDateTime startTime) -> Math.abs(ChronoUnit.MINUTES.between(dateTime, startTime)))
+                        .thenComparing(Comparator.naturalOrder()))
+                .map(startTime -> new EateryAvailability(eatery.getId(), eatery.getName(), false, startTime))
+                .orElse(null);
+    }
+
+    private static <T> T await(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Availability search interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Availability search failed", e.getCause());
+        }
+    }
+
+    /**
+     * Computes the bookable start times of an eatery in one pass over the occupancy of the days.
+     */
+    private List<AvailableSlot> availableSlots(Eatery eatery, LocalDate date, LocalDate lastDate, int guests) {
+        LocalDateTime from = date.atStartOfDay();
+        LocalDateTime to = lastDate.plusDays(1).atStartOfDay();
+        int[] occupancy = occupancyIndex.occupancy(eatery.getId(), from, to.plus(OccupancyIndex.RESERVATION_DURATION));
+        LocalDateTime earliest = TimeBoundaryStrategy.earliestReservationTime();
+        WeeklySchedule schedule = eatery.getWeeklySchedule();
+
+        // sliding window maximum over the buckets of one reservation, the deque holds indices of decreasing occupancy
+        int window = OccupancyIndex.RESERVATION_BUCKETS;
+        int[] deque = new int[occupancy.length];
+        int head = 0;
+        int tail = 0;
+        List<AvailableSlot> slots = new ArrayList<>();
+        for (int bucket = 0; bucket < occupancy.length; bucket++) {
+            while (tail > head && occupancy[deque[tail - 1]] <= occupancy[bucket]) {
+                tail--;
+            }
+            deque[tail++] = bucket;
+            int start = bucket - window + 1;
+            if (start < 0) {
+                continue;
+            }
+            if (deque[head] < start) {
+                head++;
+            }
+            LocalDateTime startTime = from.plusMinutes((long) start * OccupancyIndex.BUCKET_MINUTES);
+            int remainingCapacity = eatery.getGuestCapacity() - occupancy[deque[head]];
+            if (remainingCapacity >= guests && startTime.isAfter(earliest) && schedule.isOpenAt(startTime)) {
+                slots.add(new AvailableSlot(startTime, remainingCapacity));
+            }
+        }
+        return slots;
     }
 
     /**
@@ -82,10 +348,15 @@ public class EateryService {
                 newEatery.getPhoneNumber()
         );
 
+        eatery.setLatitude(newEatery.getLatitude());
+        eatery.setLongitude(newEatery.getLongitude());
         eatery.setManagerId(newEatery.getManagerId());
         Eatery createdEatery = eateryRepository.save(eatery);
         manager.setEateryId(createdEatery.getId());
         eateryManagerRepository.save(manager);
+        eateryRatingService.initialize(createdEatery.getId());
+        searchIndex.index(createdEatery);
+        geoIndex.index(createdEatery);
 
         return createdEatery;
     }
@@ -97,6 +368,7 @@ public class EateryService {
      * @param id The ID of the Eatery to replace.
      * @return The updated Eatery object.
      * @throws EateryNotFoundException if the eatery with the specified ID does not exist.
+     * @throws EateryConflictException if the eatery was changed concurrently.
      */
     public Eatery replace(UpdateEateryRequest newEatery, Long id) {
         validateUpdateEatery(newEatery);
@@ -109,7 +381,19 @@ public class EateryService {
                     eatery.setPhoneNumber(newEatery.getPhoneNumber());
                     eatery.setGuestCapacity(newEatery.getGuestCapacity());
                     eatery.setBusinessDayTimes(newEatery.getBusinessDayTimes());
-                    return eateryRepository.save(eatery);
+                    eatery.setLatitude(newEatery.getLatitude());
+                    eatery.setLongitude(newEatery.getLongitude());
+                    Eatery savedEatery;
+                    try {
+                        savedEatery = eateryRepository.save(eatery);
+                    } catch (OptimisticLockingFailureException e) {
+                        meterRegistry.counter("eatery.conflicts", "eatery", String.valueOf(id)).increment();
+                        throw new EateryConflictException();
+                    }
+                    searchIndex.index(savedEatery);
+                    geoIndex.index(savedEatery);
+                    bookingEngine.evict(id);
+                    return savedEatery;
                 })
                 .orElseThrow(EateryNotFoundException::new);
     }
@@ -123,6 +407,12 @@ public class EateryService {
         Eatery eatery = eateryRepository.findById(id)
                 .orElseThrow(EateryNotFoundException::new);
         eateryRepository.delete(eatery);
+        eateryRatingService.delete(id);
+        occupancyIndex.evict(id);
+        slotOccupancyService.evict(id);
+        searchIndex.evict(id);
+        geoIndex.evict(id);
+        bookingEngine.remove(id);
     }
 
     /**
@@ -162,6 +452,7 @@ public class EateryService {
         if (eatery.getManagerId() == 0) {
             throw new EateryBadRequestException("Manager id must not be null or empty.");
         }
+        validateCoordinates(eatery.getLatitude(), eatery.getLongitude());
     }
 
     /**
@@ -201,5 +492,84 @@ public class EateryService {
         if (eatery.getBusinessDayTimes() == null || eatery.getBusinessDayTimes().isEmpty()) {
             throw new EateryBadRequestException("Business day times must not be null or empty.");
         }
+        validateCoordinates(eatery.getLatitude(), eatery.getLongitude());
+    }
+
+    /**
+     * Loads eateries by their IDs, keeping the order of the IDs.
+     * @param ids The IDs of the eateries to load.
+     * @return The eateries which still exist, in the order of the IDs.
+     */
+    private List<Eatery> findAllInOrder(List<Long> ids) {
+        Map<Long, Eatery> eateries = eateryRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Eatery::getId, Function.identity()));
+        return ids.stream()
+                .map(eateries::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    /**
+     * Validates the page of a search, which must end within the first MAX_SEARCH_RESULTS results,
+     * so neither the ranking nor the skipped availability checks grow with the page number.
+     * @param page The zero based page number.
+     * @param size The number of eateries per page.
+     * @throws EateryBadRequestException if the page is negative, empty or too deep.
+     */
+    private static void validatePage(int page, int size) {
+        if (page < 0 || size <= 0) {
+            throw new EateryBadRequestException("Page must not be negative and size must be greater than 0.");
+        }
+        if (((long) page + 1) * size > MAX_SEARCH_RESULTS) {
+            throw new EateryBadRequestException("Page must end within the first " + MAX_SEARCH_RESULTS + " results.");
+        }
+    }
+
+    /**
+     * Parses an optional eatery type case-insensitively.
+     * @param type The name of the eatery type, or null.
+     * @return The eatery type, or null if no type is provided.
+     * @throws EateryBadRequestException if the eatery type is invalid.
+     */
+    private Eatery.Type parseType(String type) {
+        if (type == null || type.isBlank()) {
+            return null;
+        }
+        try {
+            return Eatery.Type.valueOf(type.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new EateryBadRequestException("Type is invalid.");
+        }
+    }
+
+    /**
+     * Validates optional eatery coordinates, which must be provided together.
+     * @param latitude The latitude in degrees, or null.
+     * @param longitude The longitude in degrees, or null.
+     * @throws EateryBadRequestException if only one coordinate is provided or a coordinate is out of range.
+     */
+    private void validateCoordinates(Double latitude, Double longitude) {
+        if (latitude == null && longitude == null) {
+            return;
+        }
+        if (latitude == null || longitude == null) {
+            throw new EateryBadRequestException("Latitude and longitude must be provided together.");
+        }
+        validateLocation(latitude, longitude);
+    }
+
+    /**
+     * Validates a location.
+     * @param latitude The latitude in degrees.
+     * @param longitude The longitude in degrees.
+     * @throws EateryBadRequestException if a coordinate is out of range.
+     */
+    private void validateLocation(double latitude, double longitude) {
+        if (!(latitude >= -90 && latitude <= 90)) {
+            throw new EateryBadRequestException("Latitude must be between -90 and 90.");
+        }
+        if (!(longitude >= -180 && longitude <= 180)) {
+            throw new EateryBadRequestException("Longitude must be between -180 and 180.");
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,39 @@
+package com.eatery.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Sparse fieldset requested with the fields parameter, a comma separated list of attribute names.
+ * The id is always selected, since it is the keyset cursor of the page.
+ */
+final class Fieldset {
+    static final String ID = "id";
+
+    private Fieldset() {
+    }
+
+    /**
+     * Parses the requested fields against the fields which may be selected.
+     * @param fields comma separated attribute names
+     * @param allowed attribute names which may be selected
+     * @param invalid creates the exception of an invalid parameter from its name
+     * @return distinct attribute names in request order, starting with the id
+     */
+    static List<String> parse(String fields, Set<String> allowed, Function<String, ? extends RuntimeException> invalid) {
+        List<String> selected = new ArrayList<>();
+        selected.add(ID);
+        for (String field : Arrays.stream(fields.split(",")).map(String::trim).toList()) {
+            if (!allowed.contains(field)) {
+                throw invalid.apply("fields");
+            }
+            if (!selected.contains(field)) {
+                selected.add(field);
+            }
+        }
+        return selected;
+    }
+}
@@ -0,0 +1,45 @@
+package com.eatery.service;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import java.util.function.Function;
+
+/**
+ * Keyset cursor of the lists in descending id order, shared by the getAll methods of the services.
+ * The cursor of a page is the id of its last element, the next page continues with the lower ids.
+ */
+final class IdCursor {
+    private IdCursor() {
+    }
+
+    /**
+     * Parses the cursor of the previous page.
+     * @param after cursor of the previous page, or null for the first page
+     * @param invalid creates the exception of an invalid parameter from its name
+     * @return id which the next page starts below
+     */
+    static long parse(String after, Function<String, ? extends RuntimeException> invalid) {
+        if (after == null) {
+            return Long.MAX_VALUE;
+        }
+        try {
+            return Long.parseLong(after);
+        } catch (NumberFormatException e) {
+            throw invalid.apply("after");
+        }
+    }
+
+    /**
+     * Returns the first slice of the given size, which the repository fetches with one extra row to detect a next page.
+     * @param limit maximum number of elements
+     * @param invalid creates the exception of an invalid parameter from its name
+     * @return pageable of the slice
+     */
+    static Pageable limit(int limit, Function<String, ? extends RuntimeException> invalid) {
+        if (limit <= 0) {
+            throw invalid.apply("limit");
+        }
+        return PageRequest.ofSize(limit);
+    }
+}
@@ -0,0 +1,123 @@
+package com.eatery.service;
+
+import com.eatery.entity.ReservationHistory;
+import com.eatery.exception.ReservationBadRequestException;
+import com.eatery.repository.ReservationHistoryRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Date;
+import java.util.stream.Stream;
+
+/**
+ * Service class for exporting the reservation history as NDJSON or CSV.
+ * Records are read through a database cursor and written one at a time, so memory stays constant
+ * however many records are exported.
+ */
+@Service
+public class ReservationHistoryExporter {
+    private static final String CSV_HEADER = "id,reservationId,customerId,eateryId,reservationDateTime,guestNumber,status,timestamp";
+
+    /**
+     * Supported export formats with their media types.
+     */
+    public enum Format {
+        NDJSON("application/x-ndjson"),
+        CSV("text/csv");
+
+        private final String mediaType;
+
+        Format(String mediaType) {
+            this.mediaType = mediaType;
+        }
+
+        public String getMediaType() {
+            return mediaType;
+        }
+
+        /**
+         * Parses a format name, ignoring case.
+         * @param format format name
+         * @return format
+         * @throws ReservationBadRequestException if the format is not supported
+         */
+        public static Format parse(String format) {
+            try {
+                return valueOf(format.toUpperCase());
+            } catch (IllegalArgumentException e) {
+                throw new ReservationBadRequestException("format");
+            }
+        }
+    }
+
+    @Autowired
+    private ReservationHistoryRepository historyRepository;
+    @Autowired
+    private EntityManager entityManager;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * Writes the reservation history ordered by the time of change.
+     * @param eateryId Only records of this eatery, or null for all eateries.
+     * @param from Only records changed at or after this time, or null.
+     * @param to Only records changed before this time, or null.
+     * @param format output format
+     * @param output stream to write to, not closed
+     * @throws IOException if the output cannot be written
+     */
+    @Transactional(readOnly = true)
+    public void export(Long eateryId, LocalDateTime from, LocalDateTime to, Format format, OutputStream output) throws IOException {
+        Date fromTimestamp = from != null ? Timestamp.valueOf(from) : ReservationHistory.HISTORY_START;
+        Date toTimestamp = to != null ? Timestamp.valueOf(to) : ReservationHistory.HISTORY_END;
+        try (Stream<ReservationHistory> history = eateryId != null
+                ? historyRepository.streamByEateryId(eateryId, fromTimestamp, toTimestamp)
+                : historyRepository.streamAll(fromTimestamp, toTimestamp)) {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+            switch (format) {
+                case NDJSON -> writeNdjson(history, writer);
+                case CSV -> writeCsv(history, writer);
+            }
+            writer.flush();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private void writeNdjson(Stream<ReservationHistory> history, Writer writer) {
+        ObjectWriter recordWriter = objectMapper.writerFor(ReservationHistory.class);
+        history.forEach(record -> {
+            try {
+                writer.write(recordWriter.writeValueAsString(record));
+                writer.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            // the persistence context would otherwise keep every exported record
+            entityManager.detach(record);
+        });
+    }
+
+    private void writeCsv(Stream<ReservationHistory> history, Writer writer) throws IOException {
+        writer.write(CSV_HEADER);
+        writer.write('\n');
+        history.forEach(record -> {
+            try {
+                writer.write(record.getId() + "," + record.getReservationId() + "," + record.getCustomerId() + "," +
+                        record.getEateryId() + "," + record.getReservationDateTime() + "," + record.getGuestNumber() + "," +
+                        record.getStatus() + "," + record.getTimestamp().toInstant() + "\n");
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            entityManager.detach(record);
+        });
+    }
+}
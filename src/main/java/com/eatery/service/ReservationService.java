@@ -4,7 +4,10 @@ import com.eatery.api.dto.CreateReservationRequest;
 import com.eatery.api.dto.UpdateReservationRequest;
 import com.eatery.entity.*;
 import com.eatery.exception.ReservationBadRequestException;
+import com.eatery.exception.ReservationConflictException;
 import com.eatery.exception.ReservationNotFoundException;
+import com.eatery.index.OccupancyIndex;
+import com.eatery.metrics.MetricTags;
 import com.eatery.notification.NotificationHandler;
 import com.eatery.repository.CustomerRepository;
 import com.eatery.repository.EateryRepository;
@@ -14,19 +17,41 @@ import com.eatery.validator.EateryBusinessTimeStrategy;
 import com.eatery.validator.EateryCapacityStrategy;
 import com.eatery.validator.ReservationContext;
 import com.eatery.validator.TimeBoundaryStrategy;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Slice;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.sql.Timestamp;
 import java.time.LocalDateTime;
+import java.util.Date;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 import static com.eatery.entity.Reservation.Status.*;
 
 /**
  * Service class for handling change request of Reservation object
+ * Every change is timed as reservation.operations, tagged by operation, outcome and eatery type,
+ * and every rejected reservation request is counted as reservation.rejections by the rejecting strategy.
  */
 @Service
 public class ReservationService {
+    /**
+     * Maximum number of attempts of a reservation change which conflicts with a concurrent change.
+     */
+    static final int MAX_ATTEMPTS = 3;
+
+
     @Autowired
     private ReservationRepository reservationRepository;
     @Autowired
@@ -37,13 +62,35 @@ public class ReservationService {
     ReservationHistoryRepository historyRepository;
     @Autowired
     private NotificationHandler notificationHandler;
+    @Autowired
+    private OccupancyIndex occupancyIndex;
+    @Autowired
+    private SlotOccupancyService slotOccupancyService;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private MeterRegistry meterRegistry;
 
     /**
-     * Retrieves all reservations from the database.
-     * @return A list of all reservations.
+     * Retrieves one page of the reservations from the database, newest first.
+     * @param after cursor of the last reservation of the previous page, or null for the first page
+     * @param limit maximum number of reservations
+     * @return A slice of the reservations, which knows whether a next page exists.
+     * @throws ReservationBadRequestException if the cursor or limit is invalid.
      */
-    public List<Reservation> getAll() {
-        return reservationRepository.findAll();
+    public Slice<Reservation> getAll(String after, int limit) {
+        return reservationRepository.findByIdLessThanOrderByIdDesc(
+                IdCursor.parse(after, ReservationBadRequestException::new),
+                IdCursor.limit(limit, ReservationBadRequestException::new)
+        );
+    }
+
+    /**
+     * Counts all reservations.
+     * @return number of reservations
+     */
+    public long count() {
+        return reservationRepository.count();
     }
 
     /**
@@ -65,8 +112,13 @@ public class ReservationService {
      * @throws ReservationBadRequestException if the eatery or customer ID is invalid or if the reservation time is unavailable.
      */
     public Reservation create(CreateReservationRequest reservationRequest) {
+        return timed("create", tag -> inSlotTransaction(status -> doCreate(reservationRequest, tag)));
+    }
+
+    private Reservation doCreate(CreateReservationRequest reservationRequest, EateryTag tag) {
         Eatery reservationEatery = eateryRepository.findById(reservationRequest.getEateryId())
                 .orElseThrow(() -> new ReservationBadRequestException("eateryId"));
+        tag.set(reservationEatery);
 
         Customer customer = customerRepository.findById(reservationRequest.getCustomerId())
                 .orElseThrow(() -> new ReservationBadRequestException("customerId"));
@@ -81,9 +133,10 @@ public class ReservationService {
                 reservationTime,
                 guestNumber
         );
+        slotOccupancyService.admit(newReservation, reservationEatery.getGuestCapacity());
         newReservation.setStatus(CONFIRMED);
-        sendMessage(customer.getPhoneNumber(), newReservation);
         Reservation savedReservation = reservationRepository.save(newReservation);
+        queueMessage(customer.getPhoneNumber(), savedReservation);
         ReservationHistory history = new ReservationHistory(
                 savedReservation.getId(),
                 savedReservation.getCustomerId(),
@@ -93,6 +146,7 @@ public class ReservationService {
                 savedReservation.getStatus()
         );
         historyRepository.save(history);
+        occupancyIndex.add(savedReservation);
         return savedReservation;
     }
 
@@ -103,8 +157,13 @@ public class ReservationService {
      * @param id The ID of the reservation to update.
      * @return The updated Reservation object.
      * @throws ReservationNotFoundException if the reservation with the specified ID does not exist.
+     * @throws ReservationConflictException if the reservation is still changed concurrently after all retries.
      */
     public Reservation replace(UpdateReservationRequest updateReservation, Long id) {
+        return timed("replace", tag -> withRetry(id, () -> inSlotTransaction(status -> doReplace(updateReservation, id, tag))));
+    }
+
+    private Reservation doReplace(UpdateReservationRequest updateReservation, Long id, EateryTag tag) {
         LocalDateTime updatedTime = updateReservation.getReservationDateTime();
         int updatedGuestNumber = updateReservation.getGuestNumber();
 
@@ -115,13 +174,30 @@ public class ReservationService {
 
         Eatery reservedEatery = eateryRepository.findById(reservation.getEateryId())
                 .orElseThrow(() -> new ReservationBadRequestException("eateryId"));
+        tag.set(reservedEatery);
 
+        // the reservation must not compete with its own current time slot,
+        // the index reverts the removal if the transaction is rolled back
+        boolean wasConfirmed = CONFIRMED.equals(reservation.getStatus());
+        if (wasConfirmed) {
+            occupancyIndex.remove(reservation);
+        }
         checkAvailability(reservedEatery, updatedTime, updatedGuestNumber);
 
+        Reservation released = new Reservation(
+                reservation.getCustomerId(),
+                reservation.getEateryId(),
+                reservation.getReservationDateTime(),
+                reservation.getGuestNumber()
+        );
         reservation.setReservationDateTime(updatedTime);
         reservation.setGuestNumber(updatedGuestNumber);
+        if (wasConfirmed) {
+            slotOccupancyService.release(released);
+        }
+        slotOccupancyService.admit(reservation, reservedEatery.getGuestCapacity());
         reservation.setStatus(CONFIRMED);
-        sendMessage(customer.getPhoneNumber(), reservation);
+        queueMessage(customer.getPhoneNumber(), reservation);
         ReservationHistory history = new ReservationHistory(
                 reservation.getId(),
                 reservation.getCustomerId(),
@@ -131,15 +207,23 @@ public class ReservationService {
                 reservation.getStatus()
         );
         historyRepository.save(history);
-        return reservationRepository.save(reservation);}
+        Reservation savedReservation = reservationRepository.save(reservation);
+        occupancyIndex.add(savedReservation);
+        return savedReservation;
+    }
 
     /**
      * Marks a reservation as completed if the reservation time has passed and the status is CONFIRMED.
      * @param id The ID of the reservation to complete.
      * @return The updated Reservation object with status set to COMPLETED.
      * @throws ReservationNotFoundException if the reservation with the specified ID does not exist.
+     * @throws ReservationConflictException if the reservation is still changed concurrently after all retries.
      */
     public Reservation complete(Long id) {
+        return timed("complete", tag -> withRetry(id, () -> transactionTemplate.execute(status -> doComplete(id, tag))));
+    }
+
+    private Reservation doComplete(Long id, EateryTag tag) {
         Reservation reservation = reservationRepository.findById(id)
                 .orElseThrow(ReservationNotFoundException::new);
 
@@ -147,6 +231,7 @@ public class ReservationService {
             throw new ReservationBadRequestException("reservationDateTime or status");
         }
 
+        boolean wasConfirmed = CONFIRMED.equals(reservation.getStatus());
         reservation.setStatus(Reservation.Status.COMPLETED);
         ReservationHistory history = new ReservationHistory(
                 reservation.getId(),
@@ -157,7 +242,13 @@ public class ReservationService {
                 reservation.getStatus()
         );
         historyRepository.save(history);
-        return reservationRepository.save(reservation);
+        Reservation savedReservation = reservationRepository.save(reservation);
+        if (wasConfirmed) {
+            occupancyIndex.remove(savedReservation);
+            slotOccupancyService.release(savedReservation);
+        }
+        tag.set(eateryRepository.findById(savedReservation.getEateryId()).orElse(null));
+        return savedReservation;
     }
 
     /**
@@ -166,8 +257,13 @@ public class ReservationService {
      * @param id The ID of the reservation to cancel.
      * @return The updated Reservation object with status set to CANCELLED.
      * @throws ReservationNotFoundException if the reservation with the specified ID does not exist.
+     * @throws ReservationConflictException if the reservation is still changed concurrently after all retries.
      */
     public Reservation cancel(Long id) {
+        return timed("cancel", tag -> withRetry(id, () -> transactionTemplate.execute(status -> doCancel(id, tag))));
+    }
+
+    private Reservation doCancel(Long id, EateryTag tag) {
         Reservation reservation = reservationRepository.findById(id)
                 .orElseThrow(ReservationNotFoundException::new);
 
@@ -179,7 +275,7 @@ public class ReservationService {
         }
 
         reservation.setStatus(CANCELLED);
-        sendMessage(customer.getPhoneNumber(), reservation);
+        queueMessage(customer.getPhoneNumber(), reservation);
         ReservationHistory history = new ReservationHistory(
                 reservation.getId(),
                 reservation.getCustomerId(),
@@ -189,7 +285,11 @@ public class ReservationService {
                 reservation.getStatus()
         );
         historyRepository.save(history);
-        return reservationRepository.save(reservation);
+        Reservation savedReservation = reservationRepository.save(reservation);
+        occupancyIndex.remove(savedReservation);
+        slotOccupancyService.release(savedReservation);
+        tag.set(eateryRepository.findById(savedReservation.getEateryId()).orElse(null));
+        return savedReservation;
     }
 
     /**
@@ -197,6 +297,7 @@ public class ReservationService {
      * @param id The ID of the reservation to delete.
      * @throws ReservationNotFoundException if the reservation with the specified ID does not exist.
      */
+    @Transactional
     public void delete(Long id) {
         Reservation reservation = reservationRepository.findById(id)
                 .orElseThrow(ReservationNotFoundException::new);
@@ -217,11 +318,217 @@ public class ReservationService {
         }
     }
 
-    public List<ReservationHistory> history(Long eateryId) {
-        return historyRepository.findAll().stream()
-                .filter(record -> record.getEateryId().equals(eateryId))
-                .sorted()
-                .toList();
+    /**
+     * Retrieves one page of the reservation history of an eatery, ordered by the time of change.
+     * Pages are read with a keyset cursor instead of an offset, so every page costs the same.
+     * @param eateryId The ID of the eatery.
+     * @param status Only records with this status, or null for all.
+     * @param from Only records changed at or after this time, or null.
+     * @param to Only records changed before this time, or null.
+     * @param after Cursor of the last record of the previous page, see {@link #historyCursor(ReservationHistory)}, or null for the first page.
+     * @param limit Maximum number of records.
+     * @return The records of the page.
+     * @throws ReservationBadRequestException if the status, cursor or limit is invalid.
+     */
+    public List<ReservationHistory> history(Long eateryId, String status, LocalDateTime from, LocalDateTime to, String after, int limit) {
+        if (limit <= 0) {
+            throw new ReservationBadRequestException("limit");
+        }
+        Date afterTimestamp = ReservationHistory.HISTORY_START;
+        long afterId = 0;
+        if (after != null) {
+            String[] cursor = after.split("_");
+            try {
+                if (cursor.length != 2) {
+                    throw new NumberFormatException(after);
+                }
+                afterTimestamp = new Date(Long.parseLong(cursor[0]));
+                afterId = Long.parseLong(cursor[1]);
+            } catch (NumberFormatException e) {
+                throw new ReservationBadRequestException("after");
+            }
+        }
+        return historyRepository.findPage(
+                eateryId,
+                parseStatuses(status),
+                from != null ? Timestamp.valueOf(from) : ReservationHistory.HISTORY_START,
+                to != null ? Timestamp.valueOf(to) : ReservationHistory.HISTORY_END,
+                afterTimestamp,
+                afterId,
+                Limit.of(limit)
+        );
+    }
+
+    /**
+     * Returns the keyset cursor of a history record, which continues the history after it.
+     * @param record history record
+     * @return cursor made of the timestamp in milliseconds and the id
+     */
+    public static String historyCursor(ReservationHistory record) {
+        return record.getTimestamp().getTime() + "_" + record.getId();
+    }
+
+    private static Set<Reservation.Status> parseStatuses(String status) {
+        if (status == null) {
+            return EnumSet.allOf(Reservation.Status.class);
+        }
+        try {
+            return EnumSet.of(Reservation.Status.valueOf(status.toUpperCase()));
+        } catch (IllegalArgumentException e) {
+            throw new ReservationBadRequestException("status");
+        }
+    }
+
+    /**
+     * Writes a reservation change which has already been validated, within the current transaction.
+     * Moves the guests in the SlotOccupancy table from the previous to the new state,
+     * saves the reservation and its history and queues the customer message.
+     * @param reservation new state of the reservation, without ID if it is new
+     * @param previous previous state of the reservation, or null if it is new
+     * @param customerPhoneNumber customer phone number
+     * @param guestCapacity guest capacity of the eatery
+     * @return saved reservation
+     * @throws ReservationBadRequestException if the eatery has no capacity left in the SlotOccupancy table
+     * @throws SlotOccupancyService.MissingSlotsException if the slots of the reservation time do not exist yet
+     */
+    public Reservation persist(Reservation reservation, Reservation previous, String customerPhoneNumber, int guestCapacity) {
+        // the release flushes the saved reservation first, so a concurrent seed of its buckets waits for this transaction
+        Reservation savedReservation = reservationRepository.save(reservation);
+        if (previous != null && CONFIRMED.equals(previous.getStatus())) {
+            slotOccupancyService.release(previous);
+        }
+        if (CONFIRMED.equals(savedReservation.getStatus())) {
+            slotOccupancyService.admit(savedReservation, guestCapacity);
+        }
+        queueMessage(customerPhoneNumber, savedReservation);
+        ReservationHistory history = new ReservationHistory(
+                savedReservation.getId(),
+                savedReservation.getCustomerId(),
+                savedReservation.getEateryId(),
+                savedReservation.getReservationDateTime(),
+                savedReservation.getGuestNumber(),
+                savedReservation.getStatus()
+        );
+        historyRepository.save(history);
+        return savedReservation;
+    }
+
+    /**
+     * Runs a reservation change in a transaction which admits guests to the SlotOccupancy table.
+     * If the slots of the reservation time do not exist yet, they are created outside of the transaction
+     * and the change is run once more.
+     * @param change reservation change
+     * @return changed reservation
+     */
+    private Reservation inSlotTransaction(TransactionCallback<Reservation> change) {
+        try {
+            return transactionTemplate.execute(change);
+        } catch (SlotOccupancyService.MissingSlotsException e) {
+            slotOccupancyService.prepare(e);
+            return transactionTemplate.execute(change);
+        }
+    }
+
+    /**
+     * Runs a change of an existing reservation and runs it again if it conflicts with a concurrent change.
+     * Every attempt re-reads and re-validates the reservation in a new transaction, so a retry never overwrites
+     * the concurrent change. Conflicts and retries are counted per eatery.
+     * @param id The ID of the changed reservation.
+     * @param change reservation change, running in its own transaction
+     * @return changed reservation
+     * @throws ReservationConflictException if the change still conflicts after {@link #MAX_ATTEMPTS} attempts
+     */
+    private Reservation withRetry(Long id, Supplier<Reservation> change) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return change.get();
+            } catch (OptimisticLockingFailureException e) {
+                String eateryId = reservationRepository.findById(id)
+                        .map(reservation -> String.valueOf(reservation.getEateryId()))
+                        .orElse("unknown");
+                meterRegistry.counter("reservation.conflicts", "eatery", eateryId).increment();
+                if (attempt >= MAX_ATTEMPTS) {
+                    throw new ReservationConflictException();
+                }
+                meterRegistry.counter("reservation.retries", "eatery", eateryId).increment();
+            }
+        }
+    }
+
+    /**
+     * Runs a reservation change and records its latency, including all retries.
+     * The change tags the eatery type from the eatery it loads anyway, so recording the latency costs no query.
+     * @param operation name of the change
+     * @param change reservation change, receiving the eatery tag
+     * @return changed reservation
+     */
+    private Reservation timed(String operation, Function<EateryTag, Reservation> change) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        EateryTag tag = new EateryTag();
+        Throwable failure = null;
+        try {
+            return change.apply(tag);
+        } catch (RuntimeException | Error e) {
+            failure = e;
+            throw e;
+        } finally {
+            sample.stop(Timer.builder("reservation.operations")
+                    .description("Reservation changes")
+                    .tag("operation", operation)
+                    .tag(MetricTags.OUTCOME, outcome(failure))
+                    .tag("exception", MetricTags.exception(failure))
+                    .tag(MetricTags.EATERY_TYPE, tag.eateryType)
+                    .register(meterRegistry));
+        }
+    }
+
+    private static String outcome(Throwable failure) {
+        if (failure == null) {
+            return "success";
+        }
+        if (failure instanceof ReservationBadRequestException) {
+            return "rejected";
+        }
+        if (failure instanceof ReservationNotFoundException) {
+            return "not_found";
+        }
+        if (failure instanceof ReservationConflictException) {
+            return "conflict";
+        }
+        return "error";
+    }
+
+    /**
+     * Eatery type tag of a reservation change, unknown until the change has loaded the eatery.
+     */
+    private static final class EateryTag {
+        private String eateryType = MetricTags.UNKNOWN;
+
+        private void set(Eatery eatery) {
+            if (eatery != null) {
+                eateryType = MetricTags.eateryType(eatery);
+            }
+        }
+    }
+
+    /**
+     * Checks if an eatery can be reserved by running all ReservationStrategy checks without side effects.
+     * @param eatery eatery to be reserved
+     * @param reservationDateTime reservation time to check availability
+     * @param guestNumber guest number to check availability
+     * @return true if every strategy accepts the reservation
+     */
+    public boolean isReservable(Eatery eatery, LocalDateTime reservationDateTime, int guestNumber) {
+        final ReservationContext reservationContext = new ReservationContext(new TimeBoundaryStrategy(), meterRegistry);
+        if (!reservationContext.isReservable(eatery, reservationDateTime, guestNumber)) {
+            return false;
+        }
+        reservationContext.setReservationStrategy(new EateryBusinessTimeStrategy());
+        if (!reservationContext.isReservable(eatery, reservationDateTime, guestNumber)) {
+            return false;
+        }
+        reservationContext.setReservationStrategy(new EateryCapacityStrategy(occupancyIndex));
+        return reservationContext.isReservable(eatery, reservationDateTime, guestNumber);
     }
 
     /**
@@ -231,54 +538,67 @@ public class ReservationService {
      * @param guestNumber guest number to check availability
      * @throws ReservationBadRequestException if eatery is not available for reservation request
      */
-    private void checkAvailability(Eatery eatery, LocalDateTime reservationDateTime, int guestNumber) {
+    public void checkAvailability(Eatery eatery, LocalDateTime reservationDateTime, int guestNumber) {
         // Create ReservationContext using TimeBoundaryStrategy
-        final ReservationContext reservationContext = new ReservationContext(new TimeBoundaryStrategy());
+        final ReservationContext reservationContext = new ReservationContext(new TimeBoundaryStrategy(), meterRegistry);
         if (!reservationContext.isReservable(eatery, reservationDateTime, guestNumber)) {
-            throw new ReservationBadRequestException(reservationDateTime);
+            throw rejected(reservationContext, eatery, new ReservationBadRequestException(reservationDateTime));
         }
 
         // Change strategy to EateryBusinessTimeStrategy
         reservationContext.setReservationStrategy(new EateryBusinessTimeStrategy());
         if (!reservationContext.isReservable(eatery, reservationDateTime, guestNumber)) {
-            throw new ReservationBadRequestException(reservationDateTime);
+            throw rejected(reservationContext, eatery, new ReservationBadRequestException(reservationDateTime));
         }
 
         // Change strategy to EateryCapacityStrategy
-        reservationContext.setReservationStrategy(new EateryCapacityStrategy());
+        reservationContext.setReservationStrategy(new EateryCapacityStrategy(occupancyIndex));
         if (!reservationContext.isReservable(eatery, reservationDateTime, guestNumber)) {
-            throw new ReservationBadRequestException(guestNumber);
+            throw rejected(reservationContext, eatery, new ReservationBadRequestException(guestNumber));
         }
     }
 
     /**
-     * send message to customer about his reservation by using command pattern via NotificationHandler
+     * Counts a reservation request rejected by the current strategy of the context.
+     * @param reservationContext context holding the rejecting strategy
+     * @param eatery eatery to be reserved
+     * @param rejection exception to throw
+     * @return the given exception
+     */
+    private ReservationBadRequestException rejected(ReservationContext reservationContext, Eatery eatery, ReservationBadRequestException rejection) {
+        meterRegistry.counter(
+                "reservation.rejections",
+                "strategy", reservationContext.getStrategyName(),
+                MetricTags.EATERY_TYPE, MetricTags.eateryType(eatery)
+        ).increment();
+        return rejection;
+    }
+
+    /**
+     * Queues a message to the customer about his reservation in the notification outbox via NotificationHandler.
+     * The message is written in the current transaction and delivered asynchronously by the NotificationDispatcher.
      * @param customerPhoneNumber customer phone number
      * @param customerReservation customer's reservation
      */
-    private void sendMessage(String customerPhoneNumber, Reservation customerReservation) {
+    private void queueMessage(String customerPhoneNumber, Reservation customerReservation) {
         String prefixText = getTemplateMessage(customerReservation);
 
         switch (customerReservation.getStatus()) {
-            case CONFIRMED -> {
-                String message = prefixText + CONFIRMED;
-                notificationHandler.sendSMS(
-                        customerPhoneNumber,
-                        message
-                );
-                notificationHandler.save(customerReservation.getCustomerId(), customerReservation.getId(), message);
-            }
+            case CONFIRMED -> notificationHandler.enqueue(
+                    customerReservation.getCustomerId(),
+                    customerReservation.getId(),
+                    customerPhoneNumber,
+                    prefixText + CONFIRMED
+            );
 
-            case CANCELLED -> {
-                String message = prefixText + CANCELLED;
-                notificationHandler.sendSMS(
-                        customerPhoneNumber,
-                        message
-                );
-                notificationHandler.save(customerReservation.getCustomerId(), customerReservation.getId(), message);
-            }
+            case CANCELLED -> notificationHandler.enqueue(
+                    customerReservation.getCustomerId(),
+                    customerReservation.getId(),
+                    customerPhoneNumber,
+                    prefixText + CANCELLED
+            );
 
-            case COMPLETED -> {}
+            default -> {}
         }
     }
 
@@ -2,15 +2,18 @@ package com.eatery.service;
 
 import com.eatery.api.dto.CreateReviewRequest;
 import com.eatery.api.dto.UpdateReviewRequest;
+import com.eatery.entity.EateryRating;
 import com.eatery.entity.Review;
 import com.eatery.exception.ReviewBadRequestException;
 import com.eatery.exception.ReviewNotFoundException;
 import com.eatery.repository.ReviewRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
-import java.util.stream.Collectors;
 
 /**
  * Service class responsible for handling business logic related to reviews.
@@ -18,39 +21,107 @@ import java.util.stream.Collectors;
  */
 @Service
 public class ReviewService {
+    public static final String SORT_RECENT = "recent";
+    public static final String SORT_RATING = "rating";
+
     @Autowired
     ReviewRepository reviewRepository;
+    @Autowired
+    EateryRatingService eateryRatingService;
+
+    /**
+     * Retrieves one page of the reviews from the database, newest first.
+     * @param after cursor of the last review of the previous page, or null for the first page
+     * @param limit maximum number of reviews
+     * @return A slice of the reviews, which knows whether a next page exists.
+     * @throws ReviewBadRequestException if the cursor or limit is invalid.
+     */
+    public Slice<Review> getAll(String after, int limit) {
+        return reviewRepository.findByIdLessThanOrderByIdDesc(
+                IdCursor.parse(after, name -> new ReviewBadRequestException("Invalid request parameter " + name)),
+                IdCursor.limit(limit, name -> new ReviewBadRequestException("Invalid request parameter " + name))
+        );
+    }
 
     /**
-     * Retrieves all reviews from the database.
-     * @return A list of all reviews.
+     * Counts all reviews.
+     * @return number of reviews
      */
-    public List<Review> getAll() {
-        return reviewRepository.findAll();
+    public long count() {
+        return reviewRepository.count();
     }
 
     /**
-     * Retrieves all reviews with eatery id from the database.
+     * Retrieves one page of the reviews with eatery id from the database.
      * @param id eatery id
-     * @return A list of all reviews with eatery id.
+     * @param sort recent (newest first) or rating (best first), see {@link #cursor(Review, String)}
+     * @param after cursor of the last review of the previous page, or null for the first page
+     * @param limit maximum number of reviews
+     * @return A page of the reviews with eatery id.
+     * @throws ReviewBadRequestException if the sort, cursor or limit is invalid.
      */
-    public List<Review> getAllByEateryId(Long id) {
-        return reviewRepository.findAll()
-                .stream()
-                .filter(review -> review.getEateryId() == id)
-                .collect(Collectors.toList());
+    public List<Review> getAllByEateryId(Long id, String sort, String after, int limit) {
+        ReviewCursor cursor = parseCursor(sort, after, limit);
+        return cursor.byRating()
+                ? reviewRepository.findByEateryIdOrderByRating(id, cursor.rating(), cursor.id(), Limit.of(limit))
+                : reviewRepository.findByEateryIdAndIdLessThanOrderByIdDesc(id, cursor.id(), Limit.of(limit));
     }
 
     /**
-     * Retrieves all reviews with customer id from the database.
+     * Retrieves one page of the reviews with customer id from the database.
      * @param id customer id
-     * @return A list of all reviews with customer id.
+     * @param sort recent (newest first) or rating (best first), see {@link #cursor(Review, String)}
+     * @param after cursor of the last review of the previous page, or null for the first page
+     * @param limit maximum number of reviews
+     * @return A page of the reviews with customer id.
+     * @throws ReviewBadRequestException if the sort, cursor or limit is invalid.
      */
-    public List<Review> getAllByCustomerId(Long id) {
-        return reviewRepository.findAll()
-                .stream()
-                .filter(review -> review.getCustomerId() == id)
-                .collect(Collectors.toList());
+    public List<Review> getAllByCustomerId(Long id, String sort, String after, int limit) {
+        ReviewCursor cursor = parseCursor(sort, after, limit);
+        return cursor.byRating()
+                ? reviewRepository.findByCustomerIdOrderByRating(id, cursor.rating(), cursor.id(), Limit.of(limit))
+                : reviewRepository.findByCustomerIdAndIdLessThanOrderByIdDesc(id, cursor.id(), Limit.of(limit));
+    }
+
+    /**
+     * Returns the keyset cursor of a review, which continues the reviews after it in the given sort order.
+     * @param review last review of a page
+     * @param sort sort order of the page
+     * @return the id for recent, the rating and id for rating
+     */
+    public static String cursor(Review review, String sort) {
+        return SORT_RATING.equalsIgnoreCase(sort) ? review.getRating() + "_" + review.getId() : String.valueOf(review.getId());
+    }
+
+    private static ReviewCursor parseCursor(String sort, String after, int limit) {
+        if (limit <= 0) {
+            throw new ReviewBadRequestException("Limit must be greater than 0.");
+        }
+        boolean byRating = SORT_RATING.equalsIgnoreCase(sort);
+        if (!byRating && !SORT_RECENT.equalsIgnoreCase(sort)) {
+            throw new ReviewBadRequestException("Sort must be " + SORT_RECENT + " or " + SORT_RATING + ".");
+        }
+        if (after == null) {
+            return new ReviewCursor(byRating, Integer.MAX_VALUE, Long.MAX_VALUE);
+        }
+        try {
+            if (!byRating) {
+                return new ReviewCursor(false, Integer.MAX_VALUE, Long.parseLong(after));
+            }
+            String[] parts = after.split("_");
+            if (parts.length != 2) {
+                throw new NumberFormatException(after);
+            }
+            return new ReviewCursor(true, Integer.parseInt(parts[0]), Long.parseLong(parts[1]));
+        } catch (NumberFormatException e) {
+            throw new ReviewBadRequestException("Cursor is invalid.");
+        }
+    }
+
+    /**
+     * Position after the last review of the previous page.
+     */
+    private record ReviewCursor(boolean byRating, int rating, long id) {
     }
 
     /**
@@ -59,6 +130,7 @@ public class ReviewService {
      * @return The created review object.
      * @throws ReviewBadRequestException if the provided review data is invalid.
      */
+    @Transactional
     public Review create(CreateReviewRequest newReviewRequest) {
         validateReview(newReviewRequest);
         Review review = new Review(
@@ -67,7 +139,9 @@ public class ReviewService {
                 newReviewRequest.getMessage(),
                 newReviewRequest.getRating()
         );
-        return reviewRepository.save(review);
+        Review savedReview = reviewRepository.save(review);
+        eateryRatingService.add(savedReview.getEateryId(), savedReview.getRating());
+        return savedReview;
     }
 
     /**
@@ -75,10 +149,12 @@ public class ReviewService {
      * @param id The ID of the review to be deleted.
      * @throws ReviewNotFoundException if the review with the specified ID does not exist.
      */
+    @Transactional
     public void delete(Long id) {
         Review review = reviewRepository.findById(id)
                 .orElseThrow(ReviewNotFoundException::new);
         reviewRepository.delete(review);
+        eateryRatingService.remove(review.getEateryId(), review.getRating());
     }
 
     /**
@@ -93,16 +169,29 @@ public class ReviewService {
     }
 
     /**
-     * Validates the review data to ensure required fields are not null or empty.
-     * @param newReview The review object to be validated.
-     * @throws ReviewBadRequestException if any required field is missing or empty.
+     * Replaces the message and rating of a review and moves the review to its new rating in the eatery aggregate.
+     * @param newReview The new review data.
+     * @param id The ID of the review to replace.
+     * @return The updated review object.
+     * @throws ReviewNotFoundException if the review with the specified ID does not exist.
+     * @throws ReviewBadRequestException if the rating is out of range.
      */
+    @Transactional
     public Review replace(UpdateReviewRequest newReview, Long id) {
+        validateRating(newReview.getRating());
         return reviewRepository.findById(id)
                 .map(review -> {
+                    int previousRating = review.getRating();
                     review.setMessage(newReview.getMessage());
                     review.setRating(newReview.getRating());
-                    return reviewRepository.save(review);
+                    Review savedReview = reviewRepository.save(review);
+                    if (previousRating != savedReview.getRating()) {
+                        eateryRatingService.remove(savedReview.getEateryId(), previousRating);
+                        eateryRatingService.add(savedReview.getEateryId(), savedReview.getRating());
+                    } else {
+                        eateryRatingService.touch(savedReview.getEateryId());
+                    }
+                    return savedReview;
                 })
                 .orElseThrow(ReviewNotFoundException::new);
     }
@@ -123,5 +212,14 @@ public class ReviewService {
         if (review.getRating() == 0) {
             throw new ReviewBadRequestException("Rating must be greater than 0.");
         }
+        validateRating(review.getRating());
+    }
+
+    private void validateRating(int rating) {
+        if (rating < EateryRating.MIN_RATING || rating > EateryRating.MAX_RATING) {
+            throw new ReviewBadRequestException(
+                    "Rating must be between " + EateryRating.MIN_RATING + " and " + EateryRating.MAX_RATING + "."
+            );
+        }
     }
 }
@@ -0,0 +1,154 @@
+package com.eatery.service;
+
+import com.eatery.entity.Reservation;
+import com.eatery.entity.SlotOccupancy;
+import com.eatery.exception.ReservationBadRequestException;
+import com.eatery.index.OccupancyIndex;
+import com.eatery.repository.ReservationRepository;
+import com.eatery.repository.SlotOccupancyRepository;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.Set;
+
+import static com.eatery.entity.Reservation.Status.CONFIRMED;
+
+/**
+ * Service class for admitting reservations against the SlotOccupancy table.
+ * Admission is one conditional update over all buckets of a reservation and holds no lock during validation,
+ * so the capacity of an eatery also holds across several application nodes.
+ * A release is the conditional update alone and runs after the reservation row is written, while seeding a missing
+ * bucket locks the confirmed reservations it counts, so a release whose bucket is seeded concurrently is either
+ * counted out by the seed or finds the seeded row.
+ */
+@Service
+public class SlotOccupancyService {
+    @Autowired
+    private SlotOccupancyRepository slotOccupancyRepository;
+    @Autowired
+    private ReservationRepository reservationRepository;
+
+    @Value("${booking.slots.retention:P1D}")
+    private Duration retention;
+
+    private final TransactionTemplate newTransaction;
+
+    public SlotOccupancyService(PlatformTransactionManager transactionManager) {
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Adds the guests of a reservation to all buckets it covers, within the current transaction.
+     * @param reservation reservation to admit
+     * @param capacity guest capacity of the eatery
+     * @throws ReservationBadRequestException if any bucket would exceed the capacity
+     * @throws MissingSlotsException if a bucket has no row yet, see {@link #prepare(MissingSlotsException)}
+     */
+    public void admit(Reservation reservation, int capacity) {
+        long fromBucket = OccupancyIndex.firstBucket(reservation.getReservationDateTime());
+        long toBucket = OccupancyIndex.endBucket(reservation.getReservationDateTime().plus(OccupancyIndex.RESERVATION_DURATION));
+        int admitted = slotOccupancyRepository.admit(
+                reservation.getEateryId(), fromBucket, toBucket, reservation.getGuestNumber(), capacity
+        );
+        if (admitted == toBucket - fromBucket) {
+            return;
+        }
+        // the transaction is rolled back by either exception, including the buckets updated so far
+        if (slotOccupancyRepository.findBuckets(reservation.getEateryId(), fromBucket, toBucket).size() < toBucket - fromBucket) {
+            throw new MissingSlotsException(reservation.getEateryId(), fromBucket, toBucket);
+        }
+        throw new ReservationBadRequestException(reservation.getGuestNumber());
+    }
+
+    /**
+     * Removes the guests of a confirmed reservation from all buckets it covers, within the current transaction.
+     * The change of the reservation must be saved in the same transaction before, the update flushes it first,
+     * so a missing bucket is not seeded with the reservation before the change is committed.
+     * @param reservation previous state of a reservation which is no longer confirmed at that time
+     */
+    public void release(Reservation reservation) {
+        long fromBucket = OccupancyIndex.firstBucket(reservation.getReservationDateTime());
+        long toBucket = OccupancyIndex.endBucket(reservation.getReservationDateTime().plus(OccupancyIndex.RESERVATION_DURATION));
+        slotOccupancyRepository.release(reservation.getEateryId(), fromBucket, toBucket, reservation.getGuestNumber());
+    }
+
+    /**
+     * Creates the missing bucket rows of a failed admission, each in its own transaction.
+     * A new row starts with the guests of already confirmed reservations covering it, counted under their row locks,
+     * so uncommitted changes of these reservations have either committed or find the new row on their release.
+     * Rows inserted concurrently by another node are skipped.
+     * Must not be called inside a transaction, so that the new rows are committed before the admission is retried.
+     * @param missingSlots failed admission
+     */
+    public void prepare(MissingSlotsException missingSlots) {
+        Long eateryId = missingSlots.getEateryId();
+        Set<Long> existing = new HashSet<>(
+                slotOccupancyRepository.findBuckets(eateryId, missingSlots.getFromBucket(), missingSlots.getToBucket())
+        );
+        for (long bucket = missingSlots.getFromBucket(); bucket < missingSlots.getToBucket(); bucket++) {
+            if (existing.contains(bucket)) {
+                continue;
+            }
+            LocalDateTime bucketStart = OccupancyIndex.bucketStart(bucket);
+            long slotBucket = bucket;
+            try {
+                newTransaction.executeWithoutResult(status -> {
+                    int occupied = reservationRepository.lockAll(
+                            eateryId,
+                            CONFIRMED,
+                            bucketStart.minus(OccupancyIndex.RESERVATION_DURATION),
+                            bucketStart.plusMinutes(OccupancyIndex.BUCKET_MINUTES)
+                    ).stream().mapToInt(Reservation::getGuestNumber).sum();
+                    slotOccupancyRepository.saveAndFlush(new SlotOccupancy(eateryId, slotBucket, occupied));
+                });
+            } catch (DataIntegrityViolationException e) {
+                // inserted by a concurrent booking
+            }
+        }
+    }
+
+    /**
+     * Deletes the rows of buckets older than the retention, no reservation can be admitted to them anymore.
+     * @return number of deleted rows
+     */
+    @Scheduled(cron = "${booking.slots.prune-cron:0 30 3 * * *}")
+    public int prunePast() {
+        return slotOccupancyRepository.deleteByBucketLessThan(OccupancyIndex.firstBucket(LocalDateTime.now().minus(retention)));
+    }
+
+    /**
+     * Deletes all rows of a deleted eatery.
+     * @param eateryId eatery id
+     */
+    public void evict(Long eateryId) {
+        slotOccupancyRepository.deleteByEateryId(eateryId);
+    }
+
+    /**
+     * Thrown when an admission covers buckets which have no row yet.
+     */
+    @Getter
+    public static class MissingSlotsException extends RuntimeException {
+        private final Long eateryId;
+        private final long fromBucket;
+        private final long toBucket;
+
+        public MissingSlotsException(Long eateryId, long fromBucket, long toBucket) {
+            super("Missing slot occupancy of eatery " + eateryId);
+            this.eateryId = eateryId;
+            this.fromBucket = fromBucket;
+            this.toBucket = toBucket;
+        }
+    }
+}
@@ -17,11 +17,6 @@ public class EateryBusinessTimeStrategy implements ReservationStrategy {
      */
     @Override
     public boolean isReservable(Eatery eatery, LocalDateTime reservationTime, int guestNumber) {
-        return eatery.getBusinessDayTimes().stream()
-                .anyMatch(eateryBusinessDayTime ->
-                                reservationTime.getDayOfWeek().equals( eateryBusinessDayTime.day()) &&
-                                reservationTime.toLocalTime().isAfter(eateryBusinessDayTime.startTime()) &&
-                                reservationTime.toLocalTime().isBefore(eateryBusinessDayTime.endTime())
-                );
+        return eatery.getWeeklySchedule().isOpenAt(reservationTime);
     }
 }
@@ -1,21 +1,57 @@
 package com.eatery.validator;
 
 import com.eatery.entity.Eatery;
+import com.eatery.metrics.MetricTags;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.Getter;
 import lombok.Setter;
 
 import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
 
 @Setter
 @Getter
 public class ReservationContext {
     private ReservationStrategy reservationStrategy;
+    private MeterRegistry meterRegistry;
 
     public ReservationContext(ReservationStrategy reservationStrategy) {
         this.reservationStrategy = reservationStrategy;
     }
 
+    /**
+     * Creates a context which times every evaluation as reservation.strategy.evaluations,
+     * tagged by strategy, result and eatery type.
+     * @param reservationStrategy first strategy to evaluate
+     * @param meterRegistry registry of the evaluation timers
+     */
+    public ReservationContext(ReservationStrategy reservationStrategy, MeterRegistry meterRegistry) {
+        this.reservationStrategy = reservationStrategy;
+        this.meterRegistry = meterRegistry;
+    }
+
     public boolean isReservable(Eatery eatery, LocalDateTime reservationTime, int guestNumber) {
-        return reservationStrategy.isReservable(eatery, reservationTime, guestNumber);
+        if (meterRegistry == null) {
+            return reservationStrategy.isReservable(eatery, reservationTime, guestNumber);
+        }
+        long start = System.nanoTime();
+        boolean reservable = reservationStrategy.isReservable(eatery, reservationTime, guestNumber);
+        Timer.builder("reservation.strategy.evaluations")
+                .description("Evaluations of a reservation strategy")
+                .tag("strategy", getStrategyName())
+                .tag("result", reservable ? "accepted" : "rejected")
+                .tag(MetricTags.EATERY_TYPE, MetricTags.eateryType(eatery))
+                .register(meterRegistry)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return reservable;
+    }
+
+    /**
+     * Returns the name of the current strategy, as used in the metric tags.
+     * @return simple class name of the strategy
+     */
+    public String getStrategyName() {
+        return reservationStrategy.getClass().getSimpleName();
     }
 }
@@ -2,12 +2,23 @@ package com.eatery.validator;
 
 import com.eatery.entity.Eatery;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 
 /**
  * Strategy pattern implementation based on time boundary for reservation
  */
 public class TimeBoundaryStrategy implements ReservationStrategy {
+    public static final Duration LEAD_TIME = Duration.ofDays(1);
+
+    /**
+     * Earliest possible reservation time, reservations must be strictly after it
+     * @return current time plus the lead time
+     */
+    public static LocalDateTime earliestReservationTime() {
+        return LocalDateTime.now().plus(LEAD_TIME);
+    }
+
     /**
      * Check if reservation time is after time boundary
      * @param eatery eatery to be reserved
@@ -17,7 +28,6 @@ public class TimeBoundaryStrategy implements ReservationStrategy {
      */
     @Override
     public boolean isReservable(Eatery eatery, LocalDateTime reservationTime, int guestNumber) {
-        final LocalDateTime tomorrow = LocalDateTime.now().plusDays(1);
-        return reservationTime.isAfter(tomorrow);
+        return reservationTime.isAfter(earliestReservationTime());
     }
 }
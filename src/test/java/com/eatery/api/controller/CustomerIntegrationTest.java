@@ -2,7 +2,10 @@ package com.eatery.api.controller;
 
 import com.eatery.api.dto.UpdateCustomerRequest;
 import com.eatery.entity.Customer;
+import com.eatery.exception.CustomerBadRequestException;
 import com.eatery.exception.CustomerNotFoundException;
+import com.eatery.repository.CustomerRepository;
+import com.eatery.security.PasswordMigration;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
@@ -16,9 +19,16 @@ import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 /**
@@ -33,6 +43,10 @@ class CustomerIntegrationTest {
     private MockMvc mockMvc;
     @Autowired
     private CustomerController customerController;
+    @Autowired
+    private CustomerRepository customerRepository;
+    @Autowired
+    private PasswordMigration passwordMigration;
 
     private static final ObjectMapper MAPPER = new ObjectMapper();
     private UpdateCustomerRequest customerRequest;
@@ -47,14 +61,14 @@ class CustomerIntegrationTest {
                 "firstName",
                 "lastName",
                 "phoneNumber",
-                "userName",
+                "userName-" + UUID.randomUUID(),
                 "password"
         );
     }
 
     @Test
     void create() throws Exception {
-        MvcResult result = mockMvc.perform(
+        MvcResult asyncResult = mockMvc.perform(
                         MockMvcRequestBuilders
                                 .post("/customers")
                                 .content(
@@ -63,6 +77,9 @@ class CustomerIntegrationTest {
                                 .contentType(MediaType.APPLICATION_JSON)
                                 .accept(MediaType.APPLICATION_JSON)
                 )
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        MvcResult result = mockMvc.perform(asyncDispatch(asyncResult))
                 .andExpect(status().isCreated())
                 .andReturn();
 
@@ -73,12 +90,12 @@ class CustomerIntegrationTest {
         assertEquals(customerRequest.getLastName(), actual.getLastName());
         assertEquals(customerRequest.getPhoneNumber(), actual.getPhoneNumber());
         assertEquals(customerRequest.getUsername(), actual.getUsername());
-        assertEquals(customerRequest.getPassword(), actual.getPassword());
+        assertNull(actual.getPassword());
     }
 
     @Test
     void getAll() throws Exception {
-        customerController.create(customerRequest);
+        customerController.create(customerRequest).join();
 
         MvcResult result = mockMvc.perform(
                         MockMvcRequestBuilders
@@ -91,17 +108,79 @@ class CustomerIntegrationTest {
         List<Customer> actual = MAPPER.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {});
 
         assertNotNull(actual);
-        assertNotNull(actual.getLast().getId());
-        assertEquals(customerRequest.getFirstName(), actual.getLast().getFirstName());
-        assertEquals(customerRequest.getLastName(), actual.getLast().getLastName());
-        assertEquals(customerRequest.getPhoneNumber(), actual.getLast().getPhoneNumber());
-        assertEquals(customerRequest.getUsername(), actual.getLast().getUsername());
-        assertEquals(customerRequest.getPassword(), actual.getLast().getPassword());
+        assertNotNull(actual.getFirst().getId());
+        assertEquals(customerRequest.getFirstName(), actual.getFirst().getFirstName());
+        assertEquals(customerRequest.getLastName(), actual.getFirst().getLastName());
+        assertEquals(customerRequest.getPhoneNumber(), actual.getFirst().getPhoneNumber());
+        assertEquals(customerRequest.getUsername(), actual.getFirst().getUsername());
+        assertNull(actual.getFirst().getPassword());
+    }
+
+    @Test
+    void getAllPages() throws Exception {
+        // GIVEN
+        for (int i = 0; i < 3; i++) {
+            customerController.create(new UpdateCustomerRequest(
+                    "firstName", "lastName", "phoneNumber", "pagedUser-" + UUID.randomUUID(), "password"
+            )).join();
+        }
+
+        // WHEN
+        MvcResult first = mockMvc.perform(
+                        MockMvcRequestBuilders
+                                .get("/customers")
+                                .param("limit", "2")
+                                .param("count", "true")
+                )
+                .andExpect(status().isOk())
+                .andReturn();
+        List<Customer> firstPage = MAPPER.readValue(first.getResponse().getContentAsString(), new TypeReference<>() {});
+        String cursor = first.getResponse().getHeader(Pagination.NEXT_CURSOR_HEADER);
+        MvcResult second = mockMvc.perform(
+                        MockMvcRequestBuilders
+                                .get("/customers")
+                                .param("after", cursor)
+                                .param("limit", "2")
+                )
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(Pagination.TOTAL_COUNT_HEADER))
+                .andReturn();
+        List<Customer> secondPage = MAPPER.readValue(second.getResponse().getContentAsString(), new TypeReference<>() {});
+
+        // THEN
+        assertEquals(2, firstPage.size());
+        assertTrue(firstPage.getFirst().getId() > firstPage.getLast().getId());
+        assertEquals(String.valueOf(firstPage.getLast().getId()), cursor);
+        assertTrue(Long.parseLong(first.getResponse().getHeader(Pagination.TOTAL_COUNT_HEADER)) >= 3);
+        assertFalse(secondPage.isEmpty());
+        assertTrue(secondPage.getFirst().getId() < firstPage.getLast().getId());
+    }
+
+    @Test
+    void getAllInvalidCursor() throws Exception {
+        // WHEN & THEN
+        mockMvc.perform(
+                        MockMvcRequestBuilders
+                                .get("/customers")
+                                .param("after", "newest")
+                )
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void getAllFieldsWithoutPassword() throws Exception {
+        // WHEN & THEN
+        mockMvc.perform(
+                        MockMvcRequestBuilders
+                                .get("/customers")
+                                .param("fields", "username,password")
+                )
+                .andExpect(status().isBadRequest());
     }
 
     @Test
     void get() throws Exception {
-        Customer savedCustomer = customerController.create(customerRequest);
+        Customer savedCustomer = customerController.create(customerRequest).join();
         Long savedCustomerId = savedCustomer.getId();
 
         MvcResult result = mockMvc.perform(
@@ -119,12 +198,12 @@ class CustomerIntegrationTest {
         assertEquals(savedCustomer.getLastName(), actual.getLastName());
         assertEquals(savedCustomer.getPhoneNumber(), actual.getPhoneNumber());
         assertEquals(savedCustomer.getUsername(), actual.getUsername());
-        assertEquals(savedCustomer.getPassword(), actual.getPassword());
+        assertNull(actual.getPassword());
     }
 
     @Test
     void replace() throws Exception {
-        Customer savedCustomer = customerController.create(customerRequest);
+        Customer savedCustomer = customerController.create(customerRequest).join();
         Long savedCustomerId = savedCustomer.getId();
         UpdateCustomerRequest updateCustomerRequest = new UpdateCustomerRequest(
                 "updateFirstName",
@@ -134,7 +213,7 @@ class CustomerIntegrationTest {
                 "updatePassword"
         );
 
-        MvcResult result = mockMvc.perform(
+        MvcResult asyncResult = mockMvc.perform(
                         MockMvcRequestBuilders
                                 .put("/customers/{id}", savedCustomerId)
                                 .content(
@@ -143,6 +222,9 @@ class CustomerIntegrationTest {
                                 .contentType(MediaType.APPLICATION_JSON)
                                 .accept(MediaType.APPLICATION_JSON)
                 )
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        MvcResult result = mockMvc.perform(asyncDispatch(asyncResult))
                 .andExpect(status().isOk())
                 .andReturn();
 
@@ -152,12 +234,12 @@ class CustomerIntegrationTest {
         assertEquals(updateCustomerRequest.getLastName(), actual.getLastName());
         assertEquals(updateCustomerRequest.getPhoneNumber(), actual.getPhoneNumber());
         assertEquals(updateCustomerRequest.getUsername(), actual.getUsername());
-        assertEquals(updateCustomerRequest.getPassword(), actual.getPassword());
+        assertNull(actual.getPassword());
     }
 
     @Test
     void delete() throws Exception {
-        Customer savedCustomer = customerController.create(customerRequest);
+        Customer savedCustomer = customerController.create(customerRequest).join();
         Long savedCustomerId = savedCustomer.getId();
 
         mockMvc.perform(
@@ -173,17 +255,20 @@ class CustomerIntegrationTest {
 
     @Test
     void login() throws Exception {
-        Customer savedCustomer = customerController.create(customerRequest);
+        Customer savedCustomer = customerController.create(customerRequest).join();
         String savedUsername = savedCustomer.getUsername();
-        String savedPassword = savedCustomer.getPassword();
+        String savedPassword = customerRequest.getPassword();
 
-        MvcResult result = mockMvc.perform(
+        MvcResult asyncResult = mockMvc.perform(
                         MockMvcRequestBuilders
                                 .get("/customers/login")
                                 .param("username", savedUsername)
                                 .param("password", savedPassword)
                                 .contentType(MediaType.APPLICATION_JSON)
                 )
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        MvcResult result = mockMvc.perform(asyncDispatch(asyncResult))
                 .andExpect(status().isOk())
                 .andReturn();
 
@@ -193,6 +278,99 @@ class CustomerIntegrationTest {
         assertEquals(savedCustomer.getLastName(), actual.getLastName());
         assertEquals(savedCustomer.getPhoneNumber(), actual.getPhoneNumber());
         assertEquals(savedCustomer.getUsername(), actual.getUsername());
-        assertEquals(savedCustomer.getPassword(), actual.getPassword());
+        assertNull(actual.getPassword());
+    }
+
+    @Test
+    void createDuplicateUsername() throws Exception {
+        customerController.create(customerRequest).join();
+
+        mockMvc.perform(
+                        MockMvcRequestBuilders
+                                .post("/customers")
+                                .content(
+                                        MAPPER.writeValueAsString(customerRequest)
+                                )
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .accept(MediaType.APPLICATION_JSON)
+                )
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void loginWrongPassword() throws Exception {
+        Customer savedCustomer = customerController.create(customerRequest).join();
+
+        MvcResult asyncResult = mockMvc.perform(
+                        MockMvcRequestBuilders
+                                .get("/customers/login")
+                                .param("username", savedCustomer.getUsername())
+                                .param("password", "wrongPassword")
+                                .contentType(MediaType.APPLICATION_JSON)
+                )
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(asyncResult))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void createConcurrentDuplicateUsername() {
+        // WHEN
+        List<CompletableFuture<Customer>> creates = new ArrayList<>();
+        int rejected = 0;
+        for (int i = 0; i < 2; i++) {
+            try {
+                creates.add(customerController.create(customerRequest));
+            } catch (CustomerBadRequestException e) {
+                rejected++;
+            }
+        }
+        for (CompletableFuture<Customer> create : creates) {
+            try {
+                create.join();
+            } catch (CompletionException e) {
+                assertInstanceOf(CustomerBadRequestException.class, e.getCause());
+                rejected++;
+            }
+        }
+
+        // THEN
+        assertEquals(1, rejected);
+    }
+
+    @Test
+    void loginPlainTextPasswordAfterMigration() throws Exception {
+        // GIVEN
+        Customer legacyCustomer = customerRepository.save(new Customer(
+                "firstName", "lastName", "legacyUser-" + UUID.randomUUID(), "plainPassword", "phoneNumber"
+        ));
+
+        // WHEN
+        MvcResult plainTextLogin = mockMvc.perform(
+                        MockMvcRequestBuilders
+                                .get("/customers/login")
+                                .param("username", legacyCustomer.getUsername())
+                                .param("password", "plainPassword")
+                )
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        int migrated = passwordMigration.migrate();
+        MvcResult migratedLogin = mockMvc.perform(
+                        MockMvcRequestBuilders
+                                .get("/customers/login")
+                                .param("username", legacyCustomer.getUsername())
+                                .param("password", "plainPassword")
+                )
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // THEN
+        mockMvc.perform(asyncDispatch(plainTextLogin))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(asyncDispatch(migratedLogin))
+                .andExpect(status().isOk());
+        assertTrue(migrated >= 1);
+        assertNotEquals("plainPassword", customerRepository.findById(legacyCustomer.getId()).orElseThrow().getPassword());
     }
 }
@@ -1,14 +1,21 @@
 package com.eatery.api.controller;
 
+import com.eatery.api.dto.AvailableSlot;
 import com.eatery.api.dto.CreateEateryRequest;
+import com.eatery.api.dto.CreateReservationRequest;
+import com.eatery.api.dto.EateryAvailability;
 import com.eatery.api.dto.UpdateEateryRequest;
 import com.eatery.entity.BusinessDayTime;
 import com.eatery.entity.Eatery;
 import com.eatery.entity.EateryManager;
 import com.eatery.exception.EateryNotFoundException;
+import com.eatery.index.EateryGeoIndex;
 import com.eatery.repository.EateryManagerRepository;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -20,10 +27,16 @@ import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
+import java.nio.charset.StandardCharsets;
 import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.time.temporal.TemporalAdjusters;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
@@ -36,18 +49,22 @@ class EateryIntegrationTest {
     private MockMvc mockMvc;
     @Autowired
     private EateryController eateryController;
+    @Autowired
+    private ReservationController reservationController;
 
     private static final ObjectMapper MAPPER = new ObjectMapper();
     private CreateEateryRequest eateryRequest;
     @Autowired
     private EateryManagerRepository eateryManagerRepository;
+    @Autowired
+    private MeterRegistry meterRegistry;
 
     @BeforeEach
     void setUp() {
         EateryManager eateryManager = new EateryManager(
                 "firstName",
                 "lastName",
-                "username",
+                "username-" + UUID.randomUUID(),
                 "password",
                 0,
                 "jobTitle",
@@ -68,7 +85,9 @@ class EateryIntegrationTest {
                                 LocalTime.of(23, 0)
                         )
                 ),
-                savedManager.getId()
+                savedManager.getId(),
+                53.5503,
+                9.9920
         );
     }
 
@@ -118,14 +137,63 @@ class EateryIntegrationTest {
 
         // THEN
         assertNotNull(actual);
-        assertNotNull(actual.getLast().getId());
-        assertEquals(eateryRequest.getType(), actual.getLast().getType().name());
-        assertEquals(eateryRequest.getName(), actual.getLast().getName());
-        assertEquals(eateryRequest.getAddress(), actual.getLast().getAddress());
-        assertEquals(eateryRequest.getEmail(), actual.getLast().getEmail());
-        assertEquals(eateryRequest.getPhoneNumber(), actual.getLast().getPhoneNumber());
-        assertEquals(eateryRequest.getGuestCapacity(), actual.getLast().getGuestCapacity());
-        assertEquals(eateryRequest.getBusinessDayTimes(), actual.getLast().getBusinessDayTimes());
+        assertNotNull(actual.getFirst().getId());
+        assertEquals(eateryRequest.getType(), actual.getFirst().getType().name());
+        assertEquals(eateryRequest.getName(), actual.getFirst().getName());
+        assertEquals(eateryRequest.getAddress(), actual.getFirst().getAddress());
+        assertEquals(eateryRequest.getEmail(), actual.getFirst().getEmail());
+        assertEquals(eateryRequest.getPhoneNumber(), actual.getFirst().getPhoneNumber());
+        assertEquals(eateryRequest.getGuestCapacity(), actual.getFirst().getGuestCapacity());
+        assertEquals(eateryRequest.getBusinessDayTimes(), actual.getFirst().getBusinessDayTimes());
+    }
+
+    @Test
+    void getAllSummary() throws Exception {
+        // GIVEN
+        Eatery savedEatery = eateryController.create(eateryRequest);
+
+        // WHEN
+        MvcResult result = mockMvc.perform(
+                        MockMvcRequestBuilders
+                                .get("/eateries")
+                                .param("view", "summary")
+                )
+                .andExpect(status().isOk())
+                .andReturn();
+        List<Map<String, Object>> actual = MAPPER.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {});
+
+        // THEN
+        assertEquals(
+                Set.of("id", "type", "name", "address", "latitude", "longitude", "rating"),
+                actual.getFirst().keySet()
+        );
+        assertEquals(savedEatery.getId().intValue(), actual.getFirst().get("id"));
+        assertEquals(eateryRequest.getName(), actual.getFirst().get("name"));
+        assertEquals(0, actual.getFirst().get("rating"));
+    }
+
+    @Test
+    void getAllFields() throws Exception {
+        // GIVEN
+        Eatery savedEatery = eateryController.create(eateryRequest);
+
+        // WHEN
+        MvcResult result = mockMvc.perform(
+                        MockMvcRequestBuilders
+                                .get("/eateries")
+                                .param("fields", "name,guestCapacity")
+                                .param("limit", "1")
+                )
+                .andExpect(status().isOk())
+                .andReturn();
+        List<Map<String, Object>> actual = MAPPER.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {});
+
+        // THEN
+        assertEquals(1, actual.size());
+        assertEquals(List.of("id", "name", "guestCapacity"), List.copyOf(actual.getFirst().keySet()));
+        assertEquals(savedEatery.getId().intValue(), actual.getFirst().get("id"));
+        assertEquals(eateryRequest.getGuestCapacity(), actual.getFirst().get("guestCapacity"));
+        assertEquals(String.valueOf(savedEatery.getId()), result.getResponse().getHeader(Pagination.NEXT_CURSOR_HEADER));
     }
 
     @Test
@@ -152,6 +220,186 @@ class EateryIntegrationTest {
         assertEquals("RESTAURANT", actual.getLast().getType().name());
     }
 
+    @Test
+    void searchByPrefix() throws Exception {
+        // GIVEN
+        eateryController.create(eateryRequest);
+
+        // WHEN
+        MvcResult result = mockMvc.perform(
+                        MockMvcRequestBuilders
+                                .get("/eateries/search")
+                                .param("q", "CAFE blu")
+                                .param("type", "cafe")
+                                .param("size", "5")
+                                .contentType(MediaType.APPLICATION_JSON)
+                )
+                .andExpect(status().isOk())
+                .andReturn();
+
+        List<Eatery> actual = MAPPER.readValue(result.getResponse().getContentAsString(StandardCharsets.UTF_8), new TypeReference<>() {});
+
+        // THEN
+        assertFalse(actual.isEmpty());
+        assertEquals("Café Anna Blume", actual.getFirst().getName());
+        assertTrue(actual.stream().allMatch(eatery -> eatery.getType() == Eatery.Type.CAFE));
+    }
+
+    @Test
+    void searchWithoutWords() throws Exception {
+        // WHEN
+        MvcResult result = mockMvc.perform(
+                        MockMvcRequestBuilders
+                                .get("/eateries/search")
+                                .param("type", "cafe")
+                                .contentType(MediaType.APPLICATION_JSON)
+                )
+                .andExpect(status().isOk())
+                .andReturn();
+
+        List<Eatery> actual = MAPPER.readValue(result.getResponse().getContentAsString(StandardCharsets.UTF_8), new TypeReference<>() {});
+
+        // THEN
+        assertFalse(actual.isEmpty());
+        assertTrue(actual.stream().allMatch(eatery -> eatery.getType() == Eatery.Type.CAFE));
+        for (int i = 1; i < actual.size(); i++) {
+            assertTrue(actual.get(i - 1).getId() < actual.get(i).getId());
+        }
+    }
+
+    @Test
+    void searchPageOutOfRange() throws Exception {
+        // WHEN & THEN
+        mockMvc.perform(
+                        MockMvcRequestBuilders
+                                .get("/eateries/search")
+                                .param("q", "cafe")
+                                .param("page", String.valueOf(Integer.MAX_VALUE))
+                                .param("size", "5")
+                )
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void nearby() throws Exception {
+        // GIVEN
+        eateryController.create(eateryRequest);
+
+        // WHEN
+        MvcResult result = mockMvc.perform(
+                        MockMvcRequestBuilders
+                                .get("/eateries/nearby")
+                                .param("latitude", "53.5503")
+                                .param("longitude", "9.9920")
+                                .param("k", "3")
+                                .param("type", "RESTAURANT")
+                                .contentType(MediaType.APPLICATION_JSON)
+                )
+                .andExpect(status().isOk())
+                .andReturn();
+
+        List<Eatery> actual = MAPPER.readValue(result.getResponse().getContentAsString(StandardCharsets.UTF_8), new TypeReference<>() {});
+
+        // THEN
+        assertFalse(actual.isEmpty());
+        assertTrue(actual.size() <= 3);
+        assertEquals("restaurantName", actual.getFirst().getName());
+        assertTrue(actual.stream().allMatch(eatery -> eatery.getType() == Eatery.Type.RESTAURANT));
+        List<Double> distances = actual.stream()
+                .map(eatery -> EateryGeoIndex.distance(53.5503, 9.9920, eatery.getLatitude(), eatery.getLongitude()))
+                .toList();
+        assertEquals(distances.stream().sorted().toList(), distances);
+    }
+
+    @Test
+    void nearbyInvalidLocation() throws Exception {
+        // WHEN & THEN
+        mockMvc.perform(
+                        MockMvcRequestBuilders
+                                .get("/eateries/nearby")
+                                .param("latitude", "91")
+                                .param("longitude", "9.9920")
+                                .contentType(MediaType.APPLICATION_JSON)
+                )
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void availability() throws Exception {
+        // GIVEN
+        LocalDate date = LocalDate.now().plusWeeks(10).with(TemporalAdjusters.nextOrSame(DayOfWeek.MONDAY));
+        reservationController.create(
+                new CreateReservationRequest(1, 1, LocalDateTime.of(date, LocalTime.of(19, 0)), 76)
+        ).join();
+
+        // WHEN
+        MvcResult result = mockMvc.perform(
+                        MockMvcRequestBuilders
+                                .get("/eateries/{id}/availability", 1)
+                                .param("date", date.toString())
+                                .param("guests", "5")
+                                .contentType(MediaType.APPLICATION_JSON)
+                )
+                .andExpect(status().isOk())
+                .andReturn();
+
+        List<AvailableSlot> actual = MAPPER.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {});
+        List<LocalTime> startTimes = actual.stream().map(slot -> slot.getStartTime().toLocalTime()).toList();
+
+        // THEN
+        assertEquals(LocalTime.of(11, 30), startTimes.getFirst());
+        assertEquals(LocalTime.of(21, 45), startTimes.getLast());
+        assertTrue(startTimes.contains(LocalTime.of(17, 0)));
+        assertFalse(startTimes.contains(LocalTime.of(17, 15)));
+        assertFalse(startTimes.contains(LocalTime.of(20, 45)));
+        assertTrue(startTimes.contains(LocalTime.of(21, 0)));
+        assertEquals(80, actual.getFirst().getRemainingCapacity());
+    }
+
+    @Test
+    void searchAvailability() throws Exception {
+        // GIVEN
+        LocalDateTime dateTime = LocalDateTime.of(
+                LocalDate.now().plusWeeks(11).with(TemporalAdjusters.nextOrSame(DayOfWeek.MONDAY)),
+                LocalTime.of(19, 30)
+        );
+        reservationController.create(new CreateReservationRequest(1, 1, dateTime, 78)).join();
+
+        // WHEN
+        MvcResult result = mockMvc.perform(
+                        MockMvcRequestBuilders
+                                .get("/eateries/availability")
+                                .param("type", "RESTAURANT")
+                                .param("dateTime", dateTime.toString())
+                                .param("guests", "6")
+                                .contentType(MediaType.APPLICATION_JSON)
+                )
+                .andExpect(status().isOk())
+                .andReturn();
+
+        List<EateryAvailability> actual = MAPPER.readValue(result.getResponse().getContentAsString(StandardCharsets.UTF_8), new TypeReference<>() {});
+
+        // THEN
+        EateryAvailability jimBlock = actual.getFirst();
+        assertEquals(1, jimBlock.getEateryId());
+        assertFalse(jimBlock.isAvailable());
+        assertEquals(LocalTime.of(17, 30), jimBlock.getStartTime().toLocalTime());
+    }
+
+    @Test
+    void searchAvailabilityPageOutOfRange() throws Exception {
+        // WHEN & THEN
+        mockMvc.perform(
+                        MockMvcRequestBuilders
+                                .get("/eateries/availability")
+                                .param("dateTime", LocalDateTime.now().plusWeeks(2).toString())
+                                .param("guests", "2")
+                                .param("page", String.valueOf(Integer.MAX_VALUE / 2))
+                                .param("size", "5")
+                )
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     void get() throws Exception {
         // GIVEN
@@ -171,6 +419,145 @@ class EateryIntegrationTest {
 
         // THEN
         assertEquals(savedEatery, actual);
+        assertFalse(result.getResponse().getContentAsString().contains("reservationList"));
+    }
+
+    @Test
+    void getCbor() throws Exception {
+        // GIVEN
+        Eatery savedEatery = eateryController.create(eateryRequest);
+
+        // WHEN
+        MvcResult result = mockMvc.perform(
+                        MockMvcRequestBuilders
+                                .get("/eateries/{id}", savedEatery.getId())
+                                .accept(MediaType.APPLICATION_CBOR)
+                )
+                .andExpect(status().isOk())
+                .andReturn();
+
+        Eatery actual = new ObjectMapper(new CBORFactory()).readValue(result.getResponse().getContentAsByteArray(), Eatery.class);
+
+        // THEN
+        assertEquals(MediaType.APPLICATION_CBOR_VALUE, result.getResponse().getContentType());
+        assertEquals(savedEatery, actual);
+        assertEquals(eateryRequest.getBusinessDayTimes(), actual.getBusinessDayTimes());
+    }
+
+    @Test
+    void getNotModifiedPerFormat() throws Exception {
+        // GIVEN
+        Eatery savedEatery = eateryController.create(eateryRequest);
+        String jsonTag = mockMvc.perform(MockMvcRequestBuilders.get("/eateries/{id}", savedEatery.getId()))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+
+        // WHEN
+        MvcResult cbor = mockMvc.perform(
+                        MockMvcRequestBuilders
+                                .get("/eateries/{id}", savedEatery.getId())
+                                .accept(MediaType.APPLICATION_CBOR)
+                                .header("If-None-Match", jsonTag)
+                )
+                .andReturn();
+        String cborTag = cbor.getResponse().getHeader("ETag");
+        MvcResult notModified = mockMvc.perform(
+                        MockMvcRequestBuilders
+                                .get("/eateries/{id}", savedEatery.getId())
+                                .accept(MediaType.APPLICATION_CBOR)
+                                .header("If-None-Match", cborTag)
+                )
+                .andReturn();
+
+        // THEN
+        assertEquals(200, cbor.getResponse().getStatus());
+        assertEquals(MediaType.APPLICATION_CBOR_VALUE, cbor.getResponse().getContentType());
+        assertNotEquals(jsonTag, cborTag);
+        assertTrue(cbor.getResponse().getHeaders("Vary").contains("Accept"));
+        assertEquals(304, notModified.getResponse().getStatus());
+    }
+
+    @Test
+    void getCached() throws Exception {
+        // GIVEN
+        Eatery savedEatery = eateryController.create(eateryRequest);
+        Long savedEateryId = savedEatery.getId();
+        mockMvc.perform(MockMvcRequestBuilders.get("/eateries/{id}", savedEateryId))
+                .andExpect(status().isOk());
+        double hits = cacheRequests("hit");
+
+        // WHEN
+        mockMvc.perform(MockMvcRequestBuilders.get("/eateries/{id}", savedEateryId))
+                .andExpect(status().isOk());
+        mockMvc.perform(
+                        MockMvcRequestBuilders
+                                .put("/eateries/{id}", savedEateryId)
+                                .content(MAPPER.writeValueAsString(new UpdateEateryRequest(
+                                        "BAR", "cachedName", "cachedAddress", "cachedEmail", "cachedPhoneNumber", 60,
+                                        Set.of(new BusinessDayTime(DayOfWeek.MONDAY, LocalTime.of(9, 0), LocalTime.of(17, 0))),
+                                        null, null
+                                )))
+                                .contentType(MediaType.APPLICATION_JSON)
+                )
+                .andExpect(status().isOk());
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get("/eateries/{id}", savedEateryId))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        Eatery actual = MAPPER.readValue(result.getResponse().getContentAsString(), Eatery.class);
+
+        // THEN
+        assertTrue(cacheRequests("hit") > hits);
+        assertEquals("cachedName", actual.getName());
+        assertEquals(60, actual.getGuestCapacity());
+    }
+
+    private double cacheRequests(String result) {
+        return meterRegistry.find("hibernate.second.level.cache.requests")
+                .tag("region", Eatery.class.getName())
+                .tag("result", result)
+                .functionCounters().stream()
+                .mapToDouble(FunctionCounter::count)
+                .sum();
+    }
+
+    @Test
+    void getNotModified() throws Exception {
+        // GIVEN
+        Eatery savedEatery = eateryController.create(eateryRequest);
+        Long savedEateryId = savedEatery.getId();
+        MvcResult first = mockMvc.perform(MockMvcRequestBuilders.get("/eateries/{id}", savedEateryId))
+                .andExpect(status().isOk())
+                .andReturn();
+        String eTag = first.getResponse().getHeader("ETag");
+
+        // WHEN
+        MvcResult notModified = mockMvc.perform(
+                        MockMvcRequestBuilders
+                                .get("/eateries/{id}", savedEateryId)
+                                .header("If-None-Match", eTag)
+                )
+                .andReturn();
+        eateryController.replace(new UpdateEateryRequest(
+                "BAR", "taggedName", "taggedAddress", "taggedEmail", "taggedPhoneNumber", 60,
+                Set.of(new BusinessDayTime(DayOfWeek.MONDAY, LocalTime.of(9, 0), LocalTime.of(17, 0))),
+                null, null
+        ), savedEateryId);
+        MvcResult modified = mockMvc.perform(
+                        MockMvcRequestBuilders
+                                .get("/eateries/{id}", savedEateryId)
+                                .header("If-None-Match", eTag)
+                )
+                .andReturn();
+
+        // THEN
+        assertNotNull(eTag);
+        assertEquals("no-cache", first.getResponse().getHeader("Cache-Control"));
+        assertEquals(304, notModified.getResponse().getStatus());
+        assertEquals("", notModified.getResponse().getContentAsString());
+        assertEquals(200, modified.getResponse().getStatus());
+        assertNotEquals(eTag, modified.getResponse().getHeader("ETag"));
+        assertEquals("taggedName", MAPPER.readValue(modified.getResponse().getContentAsString(), Eatery.class).getName());
     }
 
     @Test
@@ -191,7 +578,9 @@ class EateryIntegrationTest {
                                 LocalTime.of(15, 0),
                                 LocalTime.of(23, 0)
                         )
-                )
+                ),
+                48.1374,
+                11.5755
         );
 
         // WHEN
@@ -217,6 +606,8 @@ class EateryIntegrationTest {
         assertEquals(updateEateryRequest.getPhoneNumber(), actual.getPhoneNumber());
         assertEquals(updateEateryRequest.getGuestCapacity(), actual.getGuestCapacity());
         assertEquals(updateEateryRequest.getBusinessDayTimes(), actual.getBusinessDayTimes());
+        assertEquals(updateEateryRequest.getLatitude(), actual.getLatitude());
+        assertEquals(updateEateryRequest.getLongitude(), actual.getLongitude());
     }
 
     @Test
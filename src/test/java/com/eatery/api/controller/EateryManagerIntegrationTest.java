@@ -20,9 +20,12 @@ import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import java.time.DayOfWeek;
 import java.time.LocalTime;
 import java.util.List;
+import java.util.UUID;
 import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 /**
@@ -50,7 +53,7 @@ class EateryManagerIntegrationTest {
         managerRequest = new UpdateManagerRequest(
                 "firstName",
                 "lastName",
-                "userName",
+                "userName-" + UUID.randomUUID(),
                 "password",
                 1,
                 "jobTitle",
@@ -71,7 +74,7 @@ class EateryManagerIntegrationTest {
     @Test
     void create() throws Exception {
         // WHEN
-        MvcResult result = mockMvc.perform(
+        MvcResult asyncResult = mockMvc.perform(
                         MockMvcRequestBuilders
                                 .post("/managers")
                                 .content(
@@ -80,6 +83,9 @@ class EateryManagerIntegrationTest {
                                 .contentType(MediaType.APPLICATION_JSON)
                                 .accept(MediaType.APPLICATION_JSON)
                 )
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        MvcResult result = mockMvc.perform(asyncDispatch(asyncResult))
                 .andExpect(status().isCreated())
                 .andReturn();
 
@@ -90,7 +96,7 @@ class EateryManagerIntegrationTest {
         assertEquals(managerRequest.getFirstName(), actual.getFirstName());
         assertEquals(managerRequest.getLastName(), actual.getLastName());
         assertEquals(managerRequest.getUsername(), actual.getUsername());
-        assertEquals(managerRequest.getPassword(), actual.getPassword());
+        assertNull(actual.getPassword());
     }
 
     /**
@@ -100,7 +106,7 @@ class EateryManagerIntegrationTest {
     @Test
     void getAll() throws Exception {
         // GIVEN
-        eateryManagerController.create(managerRequest);
+        eateryManagerController.create(managerRequest).join();
 
         // WHEN
         MvcResult result = mockMvc.perform(
@@ -115,11 +121,11 @@ class EateryManagerIntegrationTest {
 
         // THEN
         assertNotNull(actual);
-        assertNotNull(actual.getLast().getId());
-        assertEquals(managerRequest.getFirstName(), actual.getLast().getFirstName());
-        assertEquals(managerRequest.getLastName(), actual.getLast().getLastName());
-        assertEquals(managerRequest.getUsername(), actual.getLast().getUsername());
-        assertEquals(managerRequest.getPassword(), actual.getLast().getPassword());
+        assertNotNull(actual.getFirst().getId());
+        assertEquals(managerRequest.getFirstName(), actual.getFirst().getFirstName());
+        assertEquals(managerRequest.getLastName(), actual.getFirst().getLastName());
+        assertEquals(managerRequest.getUsername(), actual.getFirst().getUsername());
+        assertNull(actual.getFirst().getPassword());
     }
 
     /**
@@ -129,7 +135,7 @@ class EateryManagerIntegrationTest {
     @Test
     void get() throws Exception {
         // GIVEN
-        EateryManager savedManager = eateryManagerController.create(managerRequest);
+        EateryManager savedManager = eateryManagerController.create(managerRequest).join();
         Long savedManagerId = savedManager.getId();
 
         // WHEN
@@ -148,7 +154,7 @@ class EateryManagerIntegrationTest {
         assertEquals(savedManager.getFirstName(), actual.getFirstName());
         assertEquals(savedManager.getLastName(), actual.getLastName());
         assertEquals(savedManager.getUsername(), actual.getUsername());
-        assertEquals(savedManager.getPassword(), actual.getPassword());
+        assertNull(actual.getPassword());
     }
 
     /**
@@ -158,7 +164,7 @@ class EateryManagerIntegrationTest {
     @Test
     void replace() throws Exception {
         // GIVEN
-        EateryManager savedManager = eateryManagerController.create(managerRequest);
+        EateryManager savedManager = eateryManagerController.create(managerRequest).join();
         Long savedManagerId = savedManager.getId();
         UpdateManagerRequest updateManagerRequest = new UpdateManagerRequest(
                 "updateFirstName",
@@ -177,7 +183,7 @@ class EateryManagerIntegrationTest {
         );
 
         // WHEN
-        MvcResult result = mockMvc.perform(
+        MvcResult asyncResult = mockMvc.perform(
                         MockMvcRequestBuilders
                                 .put("/managers/{id}", savedManagerId)
                                 .content(
@@ -186,6 +192,9 @@ class EateryManagerIntegrationTest {
                                 .contentType(MediaType.APPLICATION_JSON)
                                 .accept(MediaType.APPLICATION_JSON)
                 )
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        MvcResult result = mockMvc.perform(asyncDispatch(asyncResult))
                 .andExpect(status().isOk())
                 .andReturn();
 
@@ -195,7 +204,7 @@ class EateryManagerIntegrationTest {
         assertEquals(updateManagerRequest.getFirstName(), actual.getFirstName());
         assertEquals(updateManagerRequest.getLastName(), actual.getLastName());
         assertEquals(updateManagerRequest.getUsername(), actual.getUsername());
-        assertEquals(updateManagerRequest.getPassword(), actual.getPassword());
+        assertNull(actual.getPassword());
     }
 
     /**
@@ -205,7 +214,7 @@ class EateryManagerIntegrationTest {
     @Test
     void delete() throws Exception {
         // GIVEN
-        EateryManager savedManager = eateryManagerController.create(managerRequest);
+        EateryManager savedManager = eateryManagerController.create(managerRequest).join();
         Long savedManagerId = savedManager.getId();
 
         // WHEN
@@ -228,16 +237,19 @@ class EateryManagerIntegrationTest {
     @Test
     void login() throws Exception {
         // GIVEN
-        EateryManager savedManager = eateryManagerController.create(managerRequest);
+        EateryManager savedManager = eateryManagerController.create(managerRequest).join();
 
         // WHEN
-        MvcResult result = mockMvc.perform(
+        MvcResult asyncResult = mockMvc.perform(
                         MockMvcRequestBuilders
                                 .get("/managers/login")
                                 .param("username", savedManager.getUsername())
-                                .param("password", savedManager.getPassword())
+                                .param("password", managerRequest.getPassword())
                                 .contentType(MediaType.APPLICATION_JSON)
                 )
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        MvcResult result = mockMvc.perform(asyncDispatch(asyncResult))
                 .andExpect(status().isOk())
                 .andReturn();
 
@@ -247,6 +259,6 @@ class EateryManagerIntegrationTest {
         assertEquals(savedManager.getFirstName(), actual.getFirstName());
         assertEquals(savedManager.getLastName(), actual.getLastName());
         assertEquals(savedManager.getUsername(), actual.getUsername());
-        assertEquals(savedManager.getPassword(), actual.getPassword());
+        assertNull(actual.getPassword());
     }
 }
\ No newline at end of file
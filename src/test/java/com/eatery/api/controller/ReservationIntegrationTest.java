@@ -2,40 +2,69 @@ package com.eatery.api.controller;
 
 import com.eatery.api.dto.CreateReservationRequest;
 import com.eatery.api.dto.UpdateReservationRequest;
+import com.eatery.entity.Notification;
 import com.eatery.entity.Reservation;
 import com.eatery.entity.ReservationHistory;
 import com.eatery.exception.ReservationNotFoundException;
+import com.eatery.notification.NotificationDispatcher;
+import com.eatery.notification.ScriptedNotificationCommand;
+import com.eatery.repository.CustomerRepository;
+import com.eatery.repository.NotificationRepository;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
-import java.time.Month;
+import java.time.temporal.TemporalAdjusters;
 import java.util.List;
+import java.util.zip.GZIPInputStream;
 
 import static com.eatery.entity.Reservation.Status.*;
 import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
 @ActiveProfiles("local")
 @AutoConfigureMockMvc
+@AutoConfigureObservability(tracing = false)
 public class ReservationIntegrationTest {
     @Autowired
     private MockMvc mockMvc;
     @Autowired
     private ReservationController reservationController;
+    @Autowired
+    private NotificationDispatcher notificationDispatcher;
+    @Autowired
+    private NotificationRepository notificationRepository;
+    @Autowired
+    private CustomerRepository customerRepository;
+    @Autowired
+    private MeterRegistry meterRegistry;
 
     private static final ObjectMapper MAPPER = new ObjectMapper();
     private CreateReservationRequest createReservationRequest;
@@ -46,7 +75,7 @@ public class ReservationIntegrationTest {
                 1,
                 1,
                 LocalDateTime.of(
-                        LocalDate.of(2025, Month.DECEMBER, 29),
+                        LocalDate.now().plusWeeks(4),
                         LocalTime.of(19, 0)
                 ),
                 4
@@ -56,7 +85,7 @@ public class ReservationIntegrationTest {
     @Test
     void create() throws Exception {
         // WHEN
-        MvcResult result = mockMvc.perform(
+        MvcResult asyncResult = mockMvc.perform(
                         MockMvcRequestBuilders
                                 .post("/reservations")
                                 .content(
@@ -65,6 +94,9 @@ public class ReservationIntegrationTest {
                                 .contentType(MediaType.APPLICATION_JSON)
                                 .accept(MediaType.APPLICATION_JSON)
                 )
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        MvcResult result = mockMvc.perform(asyncDispatch(asyncResult))
                 .andExpect(status().isCreated())
                 .andReturn();
 
@@ -79,10 +111,119 @@ public class ReservationIntegrationTest {
         assertEquals(CONFIRMED, actual.getStatus());
     }
 
+    @Test
+    void createQueuesNotification() {
+        // GIVEN
+        Reservation savedReservation = reservationController.create(createReservationRequest).join();
+
+        // WHEN
+        notificationDispatcher.dispatchPending();
+
+        // THEN
+        List<Notification> actual = notificationRepository.findAll().stream()
+                .filter(notification -> savedReservation.getId().equals(notification.getReservationId()))
+                .toList();
+        assertEquals(1, actual.size());
+        Notification sent = notificationOf(savedReservation);
+        assertEquals(Notification.Status.SENT, sent.getStatus());
+        assertEquals(1, sent.getAttempts());
+        assertTrue(sent.getMessage().endsWith(CONFIRMED.name()));
+    }
+
+    @Test
+    void createRetriesRejectedNotification() {
+        // GIVEN
+        String phoneNumber = customerRepository.findById(2L).orElseThrow().getPhoneNumber();
+        ScriptedNotificationCommand.fail(phoneNumber, 1);
+        try {
+            createReservationRequest.setCustomerId(2);
+            Reservation savedReservation = reservationController.create(createReservationRequest).join();
+
+            // WHEN
+            notificationDispatcher.dispatchPending();
+            Notification rejected = notificationOf(savedReservation);
+            makeDue(rejected);
+            notificationDispatcher.dispatchPending();
+
+            // THEN
+            assertEquals(Notification.Status.PENDING, rejected.getStatus());
+            assertEquals(1, rejected.getAttempts());
+            assertNotNull(rejected.getLastError());
+            assertTrue(rejected.getNextAttemptAt().isAfter(LocalDateTime.now().plusSeconds(3)));
+            Notification actual = notificationOf(savedReservation);
+            assertEquals(Notification.Status.SENT, actual.getStatus());
+            assertEquals(2, actual.getAttempts());
+            assertNull(actual.getLastError());
+            assertNull(actual.getClaimToken());
+        } finally {
+            ScriptedNotificationCommand.reset();
+        }
+    }
+
+    @Test
+    void createFailsNotificationAfterMaxAttempts() {
+        // GIVEN
+        String phoneNumber = customerRepository.findById(2L).orElseThrow().getPhoneNumber();
+        ScriptedNotificationCommand.fail(phoneNumber, -1);
+        try {
+            createReservationRequest.setCustomerId(2);
+            Reservation savedReservation = reservationController.create(createReservationRequest).join();
+
+            // WHEN
+            Notification actual = notificationOf(savedReservation);
+            for (int i = 0; i < 10 && actual.getStatus() != Notification.Status.FAILED; i++) {
+                notificationDispatcher.dispatchPending();
+                actual = notificationOf(savedReservation);
+                if (actual.getStatus() == Notification.Status.PENDING) {
+                    makeDue(actual);
+                }
+            }
+
+            // THEN
+            assertEquals(Notification.Status.FAILED, actual.getStatus());
+            assertEquals(5, actual.getAttempts());
+            assertNull(actual.getSentAt());
+        } finally {
+            ScriptedNotificationCommand.reset();
+        }
+    }
+
+    @Test
+    void claimSkipsClaimedNotification() {
+        // GIVEN
+        LocalDateTime now = LocalDateTime.now().plusDays(1);
+        Notification notification = new Notification(1L, null, "+4915212345678", "claimed");
+        notification.setNextAttemptAt(now.minusMinutes(1));
+        List<Long> ids = List.of(notificationRepository.save(notification).getId());
+
+        // WHEN
+        int claimed = notificationRepository.claim(ids, "first", now, now.plusMinutes(1));
+        int claimedConcurrently = notificationRepository.claim(ids, "second", now, now.plusMinutes(1));
+        int claimedAfterLease = notificationRepository.claim(ids, "third", now.plusMinutes(2), now.plusMinutes(3));
+
+        // THEN
+        assertEquals(1, claimed);
+        assertEquals(0, claimedConcurrently);
+        assertEquals(1, claimedAfterLease);
+        Notification actual = notificationRepository.findById(ids.getFirst()).orElseThrow();
+        assertEquals(Notification.Status.IN_FLIGHT, actual.getStatus());
+        assertEquals("third", actual.getClaimToken());
+        assertTrue(actual.getVersion() > notification.getVersion());
+    }
+
+    @Test
+    void backoffIsCapped() {
+        // THEN
+        assertEquals(Duration.ofSeconds(5), notificationDispatcher.backoff(1));
+        assertEquals(Duration.ofSeconds(20), notificationDispatcher.backoff(3));
+        assertEquals(Duration.ofHours(1), notificationDispatcher.backoff(64));
+        assertEquals(Duration.ofHours(1), notificationDispatcher.backoff(Integer.MAX_VALUE));
+    }
+
     @Test
     void getAll() throws Exception {
         // GIVEN
-        reservationController.create(createReservationRequest);
+        reservationController.create(createReservationRequest).join();
 
         //WHEN
         MvcResult result = mockMvc.perform(
@@ -96,18 +237,41 @@ public class ReservationIntegrationTest {
 
         // THEN
         assertNotNull(actual);
-        assertNotNull(actual.getLast().getId());
-        assertEquals(createReservationRequest.getCustomerId(), actual.getLast().getCustomerId());
-        assertEquals(createReservationRequest.getEateryId(), actual.getLast().getEateryId());
-        assertEquals(createReservationRequest.getGuestNumber(), actual.getLast().getGuestNumber());
-        assertEquals(createReservationRequest.getReservationDateTime(), actual.getLast().getReservationDateTime());
-        assertEquals(CONFIRMED, actual.getLast().getStatus());
+        assertNotNull(actual.getFirst().getId());
+        assertEquals(createReservationRequest.getCustomerId(), actual.getFirst().getCustomerId());
+        assertEquals(createReservationRequest.getEateryId(), actual.getFirst().getEateryId());
+        assertEquals(createReservationRequest.getGuestNumber(), actual.getFirst().getGuestNumber());
+        assertEquals(createReservationRequest.getReservationDateTime(), actual.getFirst().getReservationDateTime());
+        assertEquals(CONFIRMED, actual.getFirst().getStatus());
+    }
+
+    @Test
+    void getAllSmile() throws Exception {
+        // GIVEN
+        Reservation savedReservation = reservationController.create(createReservationRequest).join();
+
+        // WHEN
+        MvcResult result = mockMvc.perform(
+                        MockMvcRequestBuilders
+                                .get("/reservations")
+                                .accept("application/x-jackson-smile")
+                )
+                .andExpect(status().isOk())
+                .andReturn();
+        List<Reservation> actual = new ObjectMapper(new SmileFactory())
+                .readValue(result.getResponse().getContentAsByteArray(), new TypeReference<>() {});
+
+        // THEN
+        assertEquals("application/x-jackson-smile", result.getResponse().getContentType());
+        assertEquals(savedReservation.getId(), actual.getFirst().getId());
+        assertEquals(createReservationRequest.getReservationDateTime(), actual.getFirst().getReservationDateTime());
+        assertEquals(CONFIRMED, actual.getFirst().getStatus());
     }
 
     @Test
     void get() throws Exception {
         // GIVEN
-        Reservation savedReservation = reservationController.create(createReservationRequest);
+        Reservation savedReservation = reservationController.create(createReservationRequest).join();
         Long savedReservationId = savedReservation.getId();
 
         // WHEN
@@ -127,18 +291,18 @@ public class ReservationIntegrationTest {
 
     @Test
     void replace() throws Exception {
-        Reservation savedReservation = reservationController.create(createReservationRequest);
+        Reservation savedReservation = reservationController.create(createReservationRequest).join();
         Long savedReservationId = savedReservation.getId();
         UpdateReservationRequest updateReservationRequest = new UpdateReservationRequest(
                 LocalDateTime.of(
-                        LocalDate.of(2025, Month.DECEMBER, 22),
+                        LocalDate.now().plusWeeks(3),
                         LocalTime.of(19, 30)
                 ),
                 2
         );
 
         // WHEN
-        MvcResult result = mockMvc.perform(
+        MvcResult asyncResult = mockMvc.perform(
                         MockMvcRequestBuilders
                                 .put("/reservations/{id}", savedReservationId)
                                 .content(
@@ -147,6 +311,9 @@ public class ReservationIntegrationTest {
                                 .contentType(MediaType.APPLICATION_JSON)
                                 .accept(MediaType.APPLICATION_JSON)
                 )
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        MvcResult result = mockMvc.perform(asyncDispatch(asyncResult))
                 .andExpect(status().isOk())
                 .andReturn();
 
@@ -161,7 +328,7 @@ public class ReservationIntegrationTest {
     @Test
     void complete() throws Exception {
         // GIVEN
-        Reservation savedReservation = reservationController.create(createReservationRequest);
+        Reservation savedReservation = reservationController.create(createReservationRequest).join();
         Long savedReservationId = savedReservation.getId();
 
         // WHEN
@@ -183,15 +350,18 @@ public class ReservationIntegrationTest {
     @Test
     void cancel() throws Exception {
         // GIVEN
-        Reservation savedReservation = reservationController.create(createReservationRequest);
+        Reservation savedReservation = reservationController.create(createReservationRequest).join();
         Long savedReservationId = savedReservation.getId();
 
         // WHEN
-        MvcResult result = mockMvc.perform(
+        MvcResult asyncResult = mockMvc.perform(
                         MockMvcRequestBuilders
                                 .put("/reservations/{id}/cancel", savedReservationId)
                                 .contentType(MediaType.APPLICATION_JSON)
                 )
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        MvcResult result = mockMvc.perform(asyncDispatch(asyncResult))
                 .andExpect(status().isOk())
                 .andReturn();
 
@@ -205,9 +375,9 @@ public class ReservationIntegrationTest {
     @Test
     void delete() throws Exception {
         // GIVEN
-        Reservation savedReservation = reservationController.create(createReservationRequest);
+        Reservation savedReservation = reservationController.create(createReservationRequest).join();
         Long savedReservationId = savedReservation.getId();
-        reservationController.cancel(savedReservationId);
+        reservationController.cancel(savedReservationId).join();
 
         // WHEN
         mockMvc.perform(
@@ -222,10 +392,197 @@ public class ReservationIntegrationTest {
         assertThrows(ReservationNotFoundException.class, () -> reservationController.delete(savedReservationId));
     }
 
+    @Test
+    void createFullyBooked() throws Exception {
+        // GIVEN
+        LocalDate reservationDate = LocalDate.now().plusWeeks(6);
+        Reservation lunch = reservationController.create(
+                new CreateReservationRequest(1, 1, LocalDateTime.of(reservationDate, LocalTime.of(12, 0)), 50)
+        ).join();
+        reservationController.create(
+                new CreateReservationRequest(1, 1, LocalDateTime.of(reservationDate, LocalTime.of(14, 0)), 30)
+        ).join();
+        CreateReservationRequest overlappingRequest = new CreateReservationRequest(
+                1,
+                1,
+                LocalDateTime.of(reservationDate, LocalTime.of(13, 0)),
+                31
+        );
+
+        // WHEN
+        mockMvc.perform(
+                        MockMvcRequestBuilders
+                                .post("/reservations")
+                                .content(
+                                        MAPPER.writeValueAsString(overlappingRequest)
+                                )
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .accept(MediaType.APPLICATION_JSON)
+                )
+                .andExpect(status().isBadRequest());
+        reservationController.cancel(lunch.getId()).join();
+
+        // THEN
+        Reservation actual = reservationController.create(overlappingRequest).join();
+        assertEquals(CONFIRMED, actual.getStatus());
+    }
+
+    @Test
+    void createAfterMidnight() throws Exception {
+        // GIVEN
+        LocalDate saturday = LocalDate.now().plusWeeks(5).with(TemporalAdjusters.nextOrSame(DayOfWeek.SATURDAY));
+        CreateReservationRequest afterMidnightRequest = new CreateReservationRequest(
+                1,
+                2,
+                LocalDateTime.of(saturday, LocalTime.of(1, 30)),
+                2
+        );
+        CreateReservationRequest closedRequest = new CreateReservationRequest(
+                1,
+                2,
+                LocalDateTime.of(saturday, LocalTime.of(4, 0)),
+                2
+        );
+
+        // WHEN
+        Reservation actual = reservationController.create(afterMidnightRequest).join();
+
+        // THEN
+        assertEquals(CONFIRMED, actual.getStatus());
+        mockMvc.perform(
+                        MockMvcRequestBuilders
+                                .post("/reservations")
+                                .content(
+                                        MAPPER.writeValueAsString(closedRequest)
+                                )
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .accept(MediaType.APPLICATION_JSON)
+                )
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void createRecordsMetrics() throws Exception {
+        // GIVEN
+        long created = operations("create", "success");
+        long accepted = strategyEvaluations("EateryCapacityStrategy", "accepted");
+
+        // WHEN
+        MvcResult asyncResult = mockMvc.perform(
+                        MockMvcRequestBuilders
+                                .post("/reservations")
+                                .content(
+                                        MAPPER.writeValueAsString(createReservationRequest)
+                                )
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .accept(MediaType.APPLICATION_JSON)
+                )
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(asyncResult))
+                .andExpect(status().isCreated());
+
+        // THEN
+        assertEquals(created + 1, operations("create", "success"));
+        assertEquals(accepted + 1, strategyEvaluations("EateryCapacityStrategy", "accepted"));
+        DistributionSummary repositoryCalls = meterRegistry.find("repository.calls")
+                .tag("uri", "/reservations")
+                .tag("method", "POST")
+                .summary();
+        assertNotNull(repositoryCalls);
+        assertTrue(repositoryCalls.max() > 0);
+    }
+
+    @Test
+    void createRejectedRecordsMetrics() throws Exception {
+        // GIVEN
+        CreateReservationRequest closedRequest = new CreateReservationRequest(
+                1,
+                1,
+                LocalDateTime.of(LocalDate.now().plusWeeks(4), LocalTime.of(8, 0)),
+                2
+        );
+        long rejected = operations("create", "rejected");
+        double rejections = rejections("EateryBusinessTimeStrategy");
+
+        // WHEN
+        mockMvc.perform(
+                        MockMvcRequestBuilders
+                                .post("/reservations")
+                                .content(
+                                        MAPPER.writeValueAsString(closedRequest)
+                                )
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .accept(MediaType.APPLICATION_JSON)
+                )
+                .andExpect(status().isBadRequest());
+
+        // THEN
+        assertEquals(rejected + 1, operations("create", "rejected"));
+        assertEquals(rejections + 1, rejections("EateryBusinessTimeStrategy"));
+    }
+
+    @Test
+    void cancelRecordsMetrics() {
+        // GIVEN
+        Reservation savedReservation = reservationController.create(createReservationRequest).join();
+        long cancelled = operations("cancel", "success");
+
+        // WHEN
+        reservationController.cancel(savedReservation.getId()).join();
+
+        // THEN
+        assertEquals(cancelled + 1, operations("cancel", "success"));
+    }
+
+    @Test
+    void prometheus() throws Exception {
+        // GIVEN
+        reservationController.create(createReservationRequest).join();
+
+        // WHEN
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andReturn();
+        String actual = result.getResponse().getContentAsString();
+
+        // THEN
+        assertTrue(actual.contains("reservation_operations_seconds_bucket{"));
+        assertTrue(actual.contains("eatery_type=\"restaurant\""));
+        assertTrue(actual.contains("reservation_strategy_evaluations_seconds_count{"));
+    }
+
+    private long operations(String operation, String outcome) {
+        Timer timer = meterRegistry.find("reservation.operations")
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .tag("eatery.type", "restaurant")
+                .timer();
+        return timer != null ? timer.count() : 0;
+    }
+
+    private long strategyEvaluations(String strategy, String result) {
+        Timer timer = meterRegistry.find("reservation.strategy.evaluations")
+                .tag("strategy", strategy)
+                .tag("result", result)
+                .tag("eatery.type", "restaurant")
+                .timer();
+        return timer != null ? timer.count() : 0;
+    }
+
+    private double rejections(String strategy) {
+        return meterRegistry.find("reservation.rejections")
+                .tag("strategy", strategy)
+                .tag("eatery.type", "restaurant")
+                .counters().stream()
+                .mapToDouble(Counter::count)
+                .sum();
+    }
+
     @Test
     void getHistory() throws Exception {
         // GIVEN
-        Reservation savedReservation = reservationController.create(createReservationRequest);
+        Reservation savedReservation = reservationController.create(createReservationRequest).join();
         Long savedReservationId = savedReservation.getId();
         reservationController.complete(savedReservationId);
 
@@ -246,4 +603,178 @@ public class ReservationIntegrationTest {
         assertNotEquals(0, actual.size());
         assertTrue(actual.getFirst().getTimestamp().before(actual.getLast().getTimestamp()));
     }
+
+    @Test
+    void getHistoryPage() throws Exception {
+        // GIVEN
+        Reservation savedReservation = reservationController.create(createReservationRequest).join();
+        reservationController.cancel(savedReservation.getId()).join();
+
+        // WHEN
+        MvcResult firstPage = mockMvc.perform(
+                        MockMvcRequestBuilders
+                                .get("/reservations/history")
+                                .param("eateryId", "1")
+                                .param("status", "cancelled")
+                                .param("limit", "1")
+                                .contentType(MediaType.APPLICATION_JSON)
+                )
+                .andExpect(status().isOk())
+                .andExpect(header().exists("X-Next-Cursor"))
+                .andReturn();
+        MvcResult nextPage = mockMvc.perform(
+                        MockMvcRequestBuilders
+                                .get("/reservations/history")
+                                .param("eateryId", "1")
+                                .param("status", "cancelled")
+                                .param("after", firstPage.getResponse().getHeader("X-Next-Cursor"))
+                                .param("limit", "1000")
+                                .contentType(MediaType.APPLICATION_JSON)
+                )
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("X-Next-Cursor"))
+                .andReturn();
+
+        List<ReservationHistory> first = MAPPER.readValue(firstPage.getResponse().getContentAsString(), new TypeReference<>() {});
+        List<ReservationHistory> next = MAPPER.readValue(nextPage.getResponse().getContentAsString(), new TypeReference<>() {});
+
+        // THEN
+        assertEquals(1, first.size());
+        assertTrue(next.stream().allMatch(record -> CANCELLED.equals(record.getStatus())));
+        assertTrue(next.stream().noneMatch(record -> record.getId().equals(first.getFirst().getId())));
+        assertTrue(next.stream().anyMatch(record -> savedReservation.getId().equals(record.getReservationId())) ||
+                savedReservation.getId().equals(first.getFirst().getReservationId()));
+        assertTrue(next.stream().noneMatch(record -> record.getTimestamp().before(first.getFirst().getTimestamp())));
+    }
+
+    @Test
+    void getHistoryInvalidCursor() throws Exception {
+        // WHEN & THEN
+        mockMvc.perform(
+                        MockMvcRequestBuilders
+                                .get("/reservations/history")
+                                .param("eateryId", "1")
+                                .param("after", "yesterday")
+                                .contentType(MediaType.APPLICATION_JSON)
+                )
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void exportHistory() throws Exception {
+        // GIVEN
+        Reservation savedReservation = reservationController.create(createReservationRequest).join();
+
+        // WHEN
+        MvcResult asyncResult = mockMvc.perform(
+                        MockMvcRequestBuilders
+                                .get("/reservations/history/export")
+                                .param("eateryId", "1")
+                                .param("format", "ndjson")
+                )
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        MvcResult result = mockMvc.perform(asyncDispatch(asyncResult))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_TYPE, "application/x-ndjson"))
+                .andReturn();
+
+        List<ReservationHistory> actual = result.getResponse().getContentAsString().lines()
+                .map(line -> {
+                    try {
+                        return MAPPER.readValue(line, ReservationHistory.class);
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                })
+                .toList();
+
+        // THEN
+        assertTrue(actual.stream().allMatch(record -> record.getEateryId() == 1));
+        assertTrue(actual.stream().anyMatch(record -> savedReservation.getId().equals(record.getReservationId())));
+    }
+
+    @Test
+    void exportHistoryCsvGzip() throws Exception {
+        // GIVEN
+        reservationController.create(createReservationRequest).join();
+
+        // WHEN
+        MvcResult asyncResult = mockMvc.perform(
+                        MockMvcRequestBuilders
+                                .get("/reservations/history/export")
+                                .param("format", "csv")
+                                .header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+                )
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        MvcResult result = mockMvc.perform(asyncDispatch(asyncResult))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andReturn();
+
+        List<String> actual;
+        try (GZIPInputStream input = new GZIPInputStream(new ByteArrayInputStream(result.getResponse().getContentAsByteArray()))) {
+            actual = new String(input.readAllBytes(), StandardCharsets.UTF_8).lines().toList();
+        }
+
+        // THEN
+        assertTrue(actual.getFirst().startsWith("id,reservationId,customerId,eateryId"));
+        assertTrue(actual.size() > 1);
+    }
+
+    @Test
+    void exportHistoryGzipRejected() throws Exception {
+        // GIVEN
+        reservationController.create(createReservationRequest).join();
+
+        // WHEN
+        MvcResult asyncResult = mockMvc.perform(
+                        MockMvcRequestBuilders
+                                .get("/reservations/history/export")
+                                .param("format", "csv")
+                                .header(HttpHeaders.ACCEPT_ENCODING, "gzip;q=0, identity")
+                )
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        MvcResult result = mockMvc.perform(asyncDispatch(asyncResult))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                .andReturn();
+        List<String> actual = result.getResponse().getContentAsString(StandardCharsets.UTF_8).lines().toList();
+
+        // THEN
+        assertTrue(actual.getFirst().startsWith("id,reservationId,customerId,eateryId"));
+        assertTrue(actual.size() > 1);
+    }
+
+    /**
+     * Returns the notification of a reservation, waiting while a dispatcher of another application context,
+     * which shares the database like another node, has it in flight.
+     */
+    private Notification notificationOf(Reservation reservation) {
+        Notification notification = null;
+        for (int i = 0; i < 100; i++) {
+            notification = notificationRepository.findAll().stream()
+                    .filter(candidate -> reservation.getId().equals(candidate.getReservationId()))
+                    .findFirst()
+                    .orElseThrow();
+            if (notification.getStatus() != Notification.Status.IN_FLIGHT) {
+                return notification;
+            }
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        return notification;
+    }
+
+    private void makeDue(Notification notification) {
+        Notification due = notificationRepository.findById(notification.getId()).orElseThrow();
+        due.setNextAttemptAt(LocalDateTime.now());
+        notificationRepository.save(due);
+    }
 }
@@ -2,8 +2,11 @@ package com.eatery.api.controller;
 
 import com.eatery.api.dto.CreateReviewRequest;
 import com.eatery.api.dto.UpdateReviewRequest;
+import com.eatery.entity.EateryRating;
 import com.eatery.entity.Review;
 import com.eatery.exception.ReviewNotFoundException;
+import com.eatery.repository.EateryRatingRepository;
+import com.eatery.service.EateryRatingService;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
@@ -17,9 +20,15 @@ import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 /**
@@ -34,6 +43,10 @@ public class ReviewIntegrationTest {
     private MockMvc mockMvc;
     @Autowired
     private ReviewController reviewController;
+    @Autowired
+    private EateryRatingRepository eateryRatingRepository;
+    @Autowired
+    private EateryRatingService eateryRatingService;
 
     private static final ObjectMapper MAPPER = new ObjectMapper();
     private CreateReviewRequest reviewRequest;
@@ -90,11 +103,11 @@ public class ReviewIntegrationTest {
         List<Review> actual = MAPPER.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {});
 
         assertNotNull(actual);
-        assertNotNull(actual.getLast().getId());
-        assertEquals(reviewRequest.getCustomerId(), actual.getLast().getCustomerId());
-        assertEquals(reviewRequest.getEateryId(), actual.getLast().getEateryId());
-        assertEquals(reviewRequest.getMessage(), actual.getLast().getMessage());
-        assertEquals(reviewRequest.getRating(), actual.getLast().getRating());
+        assertNotNull(actual.getFirst().getId());
+        assertEquals(reviewRequest.getCustomerId(), actual.getFirst().getCustomerId());
+        assertEquals(reviewRequest.getEateryId(), actual.getFirst().getEateryId());
+        assertEquals(reviewRequest.getMessage(), actual.getFirst().getMessage());
+        assertEquals(reviewRequest.getRating(), actual.getFirst().getRating());
     }
 
     @Test
@@ -112,11 +125,11 @@ public class ReviewIntegrationTest {
         List<Review> actual = MAPPER.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {});
 
         assertNotNull(actual);
-        assertNotNull(actual.getLast().getId());
-        assertEquals(reviewRequest.getCustomerId(), actual.getLast().getCustomerId());
-        assertEquals(reviewRequest.getEateryId(), actual.getLast().getEateryId());
-        assertEquals(reviewRequest.getMessage(), actual.getLast().getMessage());
-        assertEquals(reviewRequest.getRating(), actual.getLast().getRating());
+        assertNotNull(actual.getFirst().getId());
+        assertEquals(reviewRequest.getCustomerId(), actual.getFirst().getCustomerId());
+        assertEquals(reviewRequest.getEateryId(), actual.getFirst().getEateryId());
+        assertEquals(reviewRequest.getMessage(), actual.getFirst().getMessage());
+        assertEquals(reviewRequest.getRating(), actual.getFirst().getRating());
     }
 
     @Test
@@ -134,11 +147,11 @@ public class ReviewIntegrationTest {
         List<Review> actual = MAPPER.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {});
 
         assertNotNull(actual);
-        assertNotNull(actual.getLast().getId());
-        assertEquals(reviewRequest.getCustomerId(), actual.getLast().getCustomerId());
-        assertEquals(reviewRequest.getEateryId(), actual.getLast().getEateryId());
-        assertEquals(reviewRequest.getMessage(), actual.getLast().getMessage());
-        assertEquals(reviewRequest.getRating(), actual.getLast().getRating());
+        assertNotNull(actual.getFirst().getId());
+        assertEquals(reviewRequest.getCustomerId(), actual.getFirst().getCustomerId());
+        assertEquals(reviewRequest.getEateryId(), actual.getFirst().getEateryId());
+        assertEquals(reviewRequest.getMessage(), actual.getFirst().getMessage());
+        assertEquals(reviewRequest.getRating(), actual.getFirst().getRating());
     }
 
     @Test
@@ -205,4 +218,189 @@ public class ReviewIntegrationTest {
 
         assertThrows(ReviewNotFoundException.class, () -> reviewController.get(savedReviewId));
     }
+
+    @Test
+    void ratingAggregate() throws Exception {
+        // GIVEN
+        long eateryId = 2;
+        EateryRating before = eateryRatingRepository.findById(eateryId).orElseThrow();
+
+        // WHEN
+        Review savedReview = reviewController.create(new CreateReviewRequest(eateryId, 1, "Too loud", 1));
+        EateryRating created = eateryRatingRepository.findById(eateryId).orElseThrow();
+        mockMvc.perform(MockMvcRequestBuilders.get("/eateries/{id}", eateryId))
+                .andExpect(jsonPath("$.rating").value(created.average()))
+                .andExpect(jsonPath("$.ratingCount").value(created.getRatingCount()))
+                .andExpect(jsonPath("$.ratingHistogram[0]").value(created.getOneStar()));
+        reviewController.replace(new UpdateReviewRequest("Great drinks", 4), savedReview.getId());
+        EateryRating replaced = eateryRatingRepository.findById(eateryId).orElseThrow();
+        reviewController.delete(savedReview.getId());
+        EateryRating deleted = eateryRatingRepository.findById(eateryId).orElseThrow();
+
+        // THEN
+        assertEquals(before.getRatingCount() + 1, created.getRatingCount());
+        assertEquals(before.getOneStar() + 1, created.getOneStar());
+        assertEquals(before.getRatingSum() + 4, replaced.getRatingSum());
+        assertEquals(before.getOneStar(), replaced.getOneStar());
+        assertEquals(before.getFourStars() + 1, replaced.getFourStars());
+        assertArrayEquals(before.histogram(), deleted.histogram());
+        assertEquals(before.getRatingSum(), deleted.getRatingSum());
+        assertArrayEquals(eateryRatingService.repair(eateryId).histogram(), deleted.histogram());
+    }
+
+    @Test
+    void ratingAggregateConcurrentFirstReviews() throws Exception {
+        // GIVEN
+        long eateryId = 3;
+        long before = eateryRatingService.repair(eateryId).getRatingCount();
+        eateryRatingRepository.deleteById(eateryId);
+        int reviews = 8;
+
+        // WHEN
+        List<Future<Review>> futures = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < reviews; i++) {
+                futures.add(executor.submit(() -> reviewController.create(new CreateReviewRequest(eateryId, 1, "First", 5))));
+            }
+        }
+        for (Future<Review> future : futures) {
+            future.get();
+        }
+        EateryRating actual = eateryRatingRepository.findById(eateryId).orElseThrow();
+
+        // THEN
+        assertEquals(before + reviews, actual.getRatingCount());
+        assertArrayEquals(eateryRatingService.repair(eateryId).histogram(), actual.histogram());
+    }
+
+    @Test
+    void ratingRepairAll() {
+        // GIVEN
+        long eateryId = 1;
+        EateryRating before = eateryRatingRepository.findById(eateryId).orElseThrow();
+        eateryRatingRepository.deleteById(eateryId);
+
+        // WHEN
+        int repaired = eateryRatingService.repairAll();
+        EateryRating actual = eateryRatingRepository.findById(eateryId).orElseThrow();
+
+        // THEN
+        assertTrue(repaired >= 3);
+        assertArrayEquals(before.histogram(), actual.histogram());
+        assertEquals(before.getRatingSum(), actual.getRatingSum());
+    }
+
+    @Test
+    void createRatingOutOfRange() throws Exception {
+        // WHEN & THEN
+        mockMvc.perform(
+                        MockMvcRequestBuilders
+                                .post("/reviews")
+                                .content(
+                                        MAPPER.writeValueAsString(new CreateReviewRequest(1, 1, "Unbelievable", 6))
+                                )
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .accept(MediaType.APPLICATION_JSON)
+                )
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void getAllByEateryIdSortedByRating() throws Exception {
+        // GIVEN
+        long eateryId = 3;
+        for (int rating : new int[]{2, 5, 3}) {
+            reviewController.create(new CreateReviewRequest(eateryId, 2, "Rated " + rating, rating));
+        }
+
+        // WHEN
+        MvcResult firstPage = mockMvc.perform(
+                        MockMvcRequestBuilders
+                                .get("/reviews/eatery/{eateryId}", eateryId)
+                                .param("sort", "rating")
+                                .param("limit", "2")
+                                .contentType(MediaType.APPLICATION_JSON)
+                )
+                .andExpect(status().isOk())
+                .andExpect(header().exists("X-Next-Cursor"))
+                .andReturn();
+        MvcResult nextPage = mockMvc.perform(
+                        MockMvcRequestBuilders
+                                .get("/reviews/eatery/{eateryId}", eateryId)
+                                .param("sort", "rating")
+                                .param("after", firstPage.getResponse().getHeader("X-Next-Cursor"))
+                                .param("limit", "100")
+                                .contentType(MediaType.APPLICATION_JSON)
+                )
+                .andExpect(status().isOk())
+                .andReturn();
+
+        List<Review> first = MAPPER.readValue(firstPage.getResponse().getContentAsString(), new TypeReference<>() {});
+        List<Review> next = MAPPER.readValue(nextPage.getResponse().getContentAsString(), new TypeReference<>() {});
+
+        // THEN
+        List<Review> actual = new ArrayList<>(first);
+        actual.addAll(next);
+        assertEquals(2, first.size());
+        assertEquals(5, first.getFirst().getRating());
+        assertEquals(actual.size(), actual.stream().map(Review::getId).distinct().count());
+        for (int i = 1; i < actual.size(); i++) {
+            Review previous = actual.get(i - 1);
+            Review review = actual.get(i);
+            assertEquals(eateryId, review.getEateryId());
+            assertTrue(previous.getRating() > review.getRating() ||
+                    previous.getRating() == review.getRating() && previous.getId() > review.getId());
+        }
+    }
+
+    @Test
+    void getAllByCustomerIdInvalidSort() throws Exception {
+        // WHEN & THEN
+        mockMvc.perform(
+                        MockMvcRequestBuilders
+                                .get("/reviews/customer/{customerId}", 1)
+                                .param("sort", "funniest")
+                                .contentType(MediaType.APPLICATION_JSON)
+                )
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void getNotModified() throws Exception {
+        // GIVEN
+        Review savedReview = reviewController.create(new CreateReviewRequest(2, 1, "Nice terrace", 4));
+        String reviewTag = mockMvc.perform(MockMvcRequestBuilders.get("/reviews/{id}", savedReview.getId()))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Cache-Control", "no-cache"))
+                .andReturn().getResponse().getHeader("ETag");
+        String eateryTag = mockMvc.perform(MockMvcRequestBuilders.get("/eateries/{id}", 2))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+
+        // WHEN & THEN
+        MvcResult notModified = mockMvc.perform(
+                        MockMvcRequestBuilders
+                                .get("/reviews/{id}", savedReview.getId())
+                                .header("If-None-Match", reviewTag)
+                )
+                .andExpect(status().isNotModified())
+                .andReturn();
+        assertEquals("", notModified.getResponse().getContentAsString());
+        mockMvc.perform(MockMvcRequestBuilders.get("/eateries/{id}", 2).header("If-None-Match", eateryTag))
+                .andExpect(status().isNotModified());
+
+        // a message change keeps the rating, but is part of the review and of the eatery with its reviews
+        reviewController.replace(new UpdateReviewRequest("Nice terrace, slow service", 4), savedReview.getId());
+        String changedTag = mockMvc.perform(
+                        MockMvcRequestBuilders
+                                .get("/reviews/{id}", savedReview.getId())
+                                .header("If-None-Match", reviewTag)
+                )
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+        assertNotEquals(reviewTag, changedTag);
+        mockMvc.perform(MockMvcRequestBuilders.get("/eateries/{id}", 2).header("If-None-Match", eateryTag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.rating").exists());
+    }
 }
@@ -0,0 +1,163 @@
+package com.eatery.booking;
+
+import com.eatery.api.dto.CreateReservationRequest;
+import com.eatery.api.dto.UpdateReservationRequest;
+import com.eatery.entity.BusinessDayTime;
+import com.eatery.entity.Eatery;
+import com.eatery.entity.Reservation;
+import com.eatery.entity.SlotOccupancy;
+import com.eatery.exception.ReservationBadRequestException;
+import com.eatery.index.OccupancyIndex;
+import com.eatery.repository.EateryRepository;
+import com.eatery.service.EateryRatingService;
+import com.eatery.repository.ReservationRepository;
+import com.eatery.repository.SlotOccupancyRepository;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Collectors;
+
+import static com.eatery.entity.Reservation.Status.CANCELLED;
+import static com.eatery.entity.Reservation.Status.CONFIRMED;
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "booking.engine.enabled=true")
+@ActiveProfiles("local")
+class BookingEngineTest {
+    private static final Logger logger = LoggerFactory.getLogger(BookingEngineTest.class);
+    private static final int ATTEMPTS = 400;
+    private static final int CAPACITY = 20;
+
+    @Autowired
+    private BookingEngine bookingEngine;
+    @Autowired
+    private EateryRepository eateryRepository;
+    @Autowired
+    private EateryRatingService eateryRatingService;
+    @Autowired
+    private ReservationRepository reservationRepository;
+    @Autowired
+    private SlotOccupancyRepository slotOccupancyRepository;
+
+    @Test
+    void createKeepsCapacityUnderContention() {
+        // GIVEN
+        Eatery eatery = eateryRepository.save(
+                new Eatery(Eatery.Type.BAR, "engineBar", "engineAddress", alwaysOpen(), CAPACITY, "email", "phoneNumber")
+        );
+        eateryRatingService.initialize(eatery.getId());
+        LocalDateTime evening = LocalDateTime.of(LocalDate.now().plusWeeks(12), LocalTime.of(19, 0));
+        List<LocalDateTime> startTimes = List.of(evening, evening.plusMinutes(15), evening.plusMinutes(30), evening.plusMinutes(45));
+
+        // WHEN
+        long startNanos = System.nanoTime();
+        List<CompletableFuture<Reservation>> futures = new ArrayList<>();
+        for (int attempt = 0; attempt < ATTEMPTS; attempt++) {
+            LocalDateTime startTime = startTimes.get(attempt % startTimes.size());
+            int guests = 1 + attempt % 3;
+            futures.add(bookingEngine.create(new CreateReservationRequest(1, eatery.getId(), startTime, guests)));
+        }
+        int admitted = 0;
+        int rejected = 0;
+        for (CompletableFuture<Reservation> future : futures) {
+            try {
+                assertNotNull(future.join().getId());
+                admitted++;
+            } catch (CompletionException e) {
+                assertInstanceOf(ReservationBadRequestException.class, e.getCause());
+                rejected++;
+            }
+        }
+        long duration = System.nanoTime() - startNanos;
+        logger.info("{} reservation attempts through the booking engine: {} admitted, {} rejected, {} attempts/s",
+                ATTEMPTS, admitted, rejected, String.format("%.0f", ATTEMPTS / (duration / 1e9)));
+
+        // THEN
+        assertTrue(admitted > 0);
+        List<Reservation> confirmed = reservationRepository.findAll().stream()
+                .filter(reservation -> eatery.getId().equals(reservation.getEateryId()) && CONFIRMED.equals(reservation.getStatus()))
+                .toList();
+        assertEquals(admitted, confirmed.size());
+
+        List<SlotOccupancy> slots = slotOccupancyRepository.findAll().stream()
+                .filter(slot -> eatery.getId().equals(slot.getEateryId()))
+                .toList();
+        assertFalse(slots.isEmpty());
+        for (SlotOccupancy slot : slots) {
+            LocalDateTime bucketStart = OccupancyIndex.bucketStart(slot.getBucket());
+            int guests = confirmed.stream()
+                    .filter(reservation -> reservation.getReservationDateTime().isBefore(bucketStart.plusMinutes(OccupancyIndex.BUCKET_MINUTES)) &&
+                            reservation.getReservationDateTime().plus(OccupancyIndex.RESERVATION_DURATION).isAfter(bucketStart))
+                    .mapToInt(Reservation::getGuestNumber)
+                    .sum();
+            assertTrue(guests <= CAPACITY, "bucket " + bucketStart + " has " + guests + " guests");
+            assertEquals(guests, slot.getOccupied());
+        }
+    }
+
+    @Test
+    void replaceAndCancelInOrder() {
+        // GIVEN
+        Eatery eatery = eateryRepository.save(
+                new Eatery(Eatery.Type.CAFE, "engineCafe", "engineAddress", alwaysOpen(), CAPACITY, "email", "phoneNumber")
+        );
+        eateryRatingService.initialize(eatery.getId());
+        LocalDateTime noon = LocalDateTime.of(LocalDate.now().plusWeeks(13), LocalTime.of(12, 0));
+        Reservation reservation = bookingEngine.create(new CreateReservationRequest(1, eatery.getId(), noon, CAPACITY)).join();
+
+        // WHEN
+        CompletableFuture<Reservation> replaced = bookingEngine.replace(new UpdateReservationRequest(noon.plusHours(1), CAPACITY), reservation.getId());
+        CompletableFuture<Reservation> cancelled = bookingEngine.cancel(reservation.getId());
+        Reservation other = bookingEngine.create(new CreateReservationRequest(2, eatery.getId(), noon.plusHours(1), CAPACITY)).join();
+
+        // THEN
+        assertEquals(noon.plusHours(1), replaced.join().getReservationDateTime());
+        assertEquals(CANCELLED, cancelled.join().getStatus());
+        assertEquals(CONFIRMED, other.getStatus());
+        assertEquals(CANCELLED, reservationRepository.findById(reservation.getId()).orElseThrow().getStatus());
+    }
+
+    @Test
+    void idleMailboxesAreRetired() throws InterruptedException {
+        // GIVEN
+        Eatery eatery = eateryRepository.save(
+                new Eatery(Eatery.Type.BAR, "idleBar", "engineAddress", alwaysOpen(), CAPACITY, "email", "phoneNumber")
+        );
+        eateryRatingService.initialize(eatery.getId());
+        LocalDateTime evening = LocalDateTime.of(LocalDate.now().plusWeeks(14), LocalTime.of(19, 0));
+
+        // WHEN
+        Reservation reservation = bookingEngine.create(new CreateReservationRequest(1, eatery.getId(), evening, 2)).join();
+        Reservation cancelled = bookingEngine.cancel(reservation.getId()).join();
+        for (int i = 0; i < 100 && bookingEngine.mailboxCount() > 0; i++) {
+            Thread.sleep(50);
+        }
+
+        // THEN
+        assertEquals(CANCELLED, cancelled.getStatus());
+        assertEquals(0, bookingEngine.mailboxCount());
+        assertThrows(ReservationBadRequestException.class,
+                () -> bookingEngine.create(new CreateReservationRequest(1, -1, evening, 2)));
+        assertEquals(0, bookingEngine.mailboxCount());
+    }
+
+    private static Set<BusinessDayTime> alwaysOpen() {
+        return Arrays.stream(DayOfWeek.values())
+                .map(day -> new BusinessDayTime(day, LocalTime.MIDNIGHT, LocalTime.MAX))
+                .collect(Collectors.toSet());
+    }
+}
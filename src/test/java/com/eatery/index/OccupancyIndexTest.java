@@ -0,0 +1,72 @@
+package com.eatery.index;
+
+import com.eatery.entity.BusinessDayTime;
+import com.eatery.entity.Eatery;
+import com.eatery.entity.Reservation;
+import com.eatery.repository.EateryRepository;
+import com.eatery.repository.ReservationRepository;
+import com.eatery.service.EateryRatingService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static com.eatery.entity.Reservation.Status.CONFIRMED;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ActiveProfiles("local")
+class OccupancyIndexTest {
+    @Autowired
+    private OccupancyIndex occupancyIndex;
+    @Autowired
+    private EateryRepository eateryRepository;
+    @Autowired
+    private EateryRatingService eateryRatingService;
+    @Autowired
+    private ReservationRepository reservationRepository;
+
+    @Test
+    void removeOfReservationBeforeRebuildIsIgnored() {
+        // GIVEN
+        Eatery eatery = eateryRepository.save(
+                new Eatery(Eatery.Type.BAR, "indexBar", "indexAddress", alwaysOpen(), 20, "email", "phoneNumber")
+        );
+        eateryRatingService.initialize(eatery.getId());
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MINUTES);
+        Reservation stale = reservation(eatery, now.minusHours(3), 4);
+        Reservation live = reservation(eatery, now.plusMinutes(30), 6);
+        occupancyIndex.rebuild();
+
+        // WHEN
+        stale.setStatus(Reservation.Status.COMPLETED);
+        reservationRepository.save(stale);
+        occupancyIndex.remove(stale);
+
+        // THEN
+        assertEquals(6, occupancyIndex.peakOccupancy(eatery.getId(), live.getReservationDateTime(), live.getReservationDateTime().plusHours(2)));
+        int[] staleOccupancy = occupancyIndex.occupancy(eatery.getId(), stale.getReservationDateTime(), stale.getReservationDateTime().plusHours(2));
+        assertTrue(Arrays.stream(staleOccupancy).allMatch(guests -> guests == 0));
+    }
+
+    private Reservation reservation(Eatery eatery, LocalDateTime dateTime, int guests) {
+        Reservation reservation = new Reservation(1L, eatery.getId(), dateTime, guests);
+        reservation.setStatus(CONFIRMED);
+        return reservationRepository.save(reservation);
+    }
+
+    private static Set<BusinessDayTime> alwaysOpen() {
+        return Arrays.stream(DayOfWeek.values())
+                .map(day -> new BusinessDayTime(day, LocalTime.MIDNIGHT, LocalTime.MAX))
+                .collect(Collectors.toSet());
+    }
+}
@@ -0,0 +1,153 @@
+package com.eatery.loadtest;
+
+import com.eatery.EateryBackendApplication;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares the platform and virtual thread execution modes on the same closed-loop workload.
+ * Each mode starts its own instance on a random port and a fresh in-memory database,
+ * then more clients than Tomcat has platform threads read eateries, search, check availability and book.
+ * Run with: mvn test -Ploadtest
+ */
+@Tag("loadtest")
+class ExecutionModeLoadTest {
+    private static final Logger logger = LoggerFactory.getLogger(ExecutionModeLoadTest.class);
+    private static final int CLIENTS = 400;
+    private static final Duration WARMUP = Duration.ofSeconds(5);
+    private static final Duration MEASUREMENT = Duration.ofSeconds(20);
+
+    @Test
+    void compareExecutionModes() throws Exception {
+        // GIVEN
+        Map<String, Result> results = new LinkedHashMap<>();
+
+        // WHEN
+        results.put("platform", run(false));
+        results.put("virtual", run(true));
+
+        // THEN
+        StringBuilder report = new StringBuilder(String.format("%n%-9s %10s %10s %9s %9s %9s %9s%n",
+                "mode", "requests", "req/s", "errors", "p50 ms", "p99 ms", "p999 ms"));
+        results.forEach((mode, result) -> report.append(String.format("%-9s %10d %10.0f %9d %9.2f %9.2f %9.2f%n",
+                mode,
+                result.latencies().getTotalCount(),
+                result.latencies().getTotalCount() / (double) MEASUREMENT.toSeconds(),
+                result.errors(),
+                result.latencies().getValueAtPercentile(50) / 1e3,
+                result.latencies().getValueAtPercentile(99) / 1e3,
+                result.latencies().getValueAtPercentile(99.9) / 1e3)));
+        logger.info("Execution modes under a closed-loop load of {} clients:{}", CLIENTS, report);
+        for (Result result : results.values()) {
+            assertTrue(result.latencies().getTotalCount() > 0);
+            assertTrue(result.errors() < result.latencies().getTotalCount() / 100);
+        }
+    }
+
+    private Result run(boolean virtualThreads) throws Exception {
+        String mode = virtualThreads ? "virtual" : "platform";
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(EateryBackendApplication.class)
+                .profiles("local")
+                .properties(
+                        "server.port=0",
+                        "spring.threads.virtual.enabled=" + virtualThreads,
+                        "spring.datasource.url=jdbc:h2:mem:loadtest-" + mode + ";DB_CLOSE_DELAY=-1",
+                        "logging.level.com.eatery=WARN",
+                        "logging.level.com.eatery.loadtest=INFO"
+                )
+                .run()) {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            URI base = URI.create("http://localhost:" + port + "/api");
+            Histogram latencies = new ConcurrentHistogram(3);
+            AtomicLong errors = new AtomicLong();
+            long measureFrom = System.nanoTime() + WARMUP.toNanos();
+            long end = measureFrom + MEASUREMENT.toNanos();
+
+            try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor();
+                 HttpClient httpClient = HttpClient.newBuilder().executor(clients).build()) {
+                List<Future<?>> futures = new ArrayList<>(CLIENTS);
+                for (int client = 0; client < CLIENTS; client++) {
+                    futures.add(clients.submit(() -> {
+                        while (System.nanoTime() < end) {
+                            long start = System.nanoTime();
+                            boolean failed;
+                            try {
+                                HttpResponse<Void> response = httpClient.send(nextRequest(base), HttpResponse.BodyHandlers.discarding());
+                                // rejected bookings of a full eatery are part of the workload
+                                failed = response.statusCode() >= 500;
+                            } catch (Exception e) {
+                                failed = true;
+                            }
+                            long finished = System.nanoTime();
+                            if (start >= measureFrom && finished < end) {
+                                latencies.recordValue((finished - start) / 1000);
+                                if (failed) {
+                                    errors.incrementAndGet();
+                                }
+                            }
+                        }
+                        return null;
+                    }));
+                }
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            }
+            return new Result(latencies, errors.get());
+        }
+    }
+
+    /**
+     * Picks the next request of the mix: 50% eatery reads, 20% searches, 20% availability checks and 10% bookings.
+     */
+    private static HttpRequest nextRequest(URI base) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int kind = random.nextInt(100);
+        if (kind < 50) {
+            return HttpRequest.newBuilder(base.resolve("/api/eateries/" + (1 + random.nextInt(3)))).GET().build();
+        }
+        if (kind < 70) {
+            return HttpRequest.newBuilder(base.resolve("/api/eateries/search?q=" + (random.nextBoolean() ? "jim" : "hamburg"))).GET().build();
+        }
+        LocalDate date = LocalDate.now().plusDays(2 + random.nextInt(60));
+        if (kind < 90) {
+            return HttpRequest.newBuilder(base.resolve("/api/eateries/1/availability?date=" + date + "&guests=2")).GET().build();
+        }
+        LocalTime time = LocalTime.of(12, 0).plusMinutes(15L * random.nextInt(32));
+        String body = "{\"customerId\":" + (1 + random.nextInt(2)) + ",\"eateryId\":1,\"reservationDateTime\":\"" +
+                date + " " + time + ":00\",\"guestNumber\":2}";
+        return HttpRequest.newBuilder(base.resolve("/api/reservations"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    private record Result(Histogram latencies, long errors) {
+    }
+}
@@ -0,0 +1,340 @@
+package com.eatery.loadtest;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import com.eatery.EateryBackendApplication;
+import com.eatery.entity.SlotOccupancy;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.slf4j.LoggerFactory;
+import org.slf4j.Marker;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.support.GenericApplicationContext;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-loop load generator against an embedded instance on H2 with a large synthetic dataset.
+ * Requests are started at a fixed rate whether or not earlier requests have completed, and latencies are measured
+ * from the time a request was due, so a slow server shows up in the tail instead of lowering the offered load.
+ * Prints latency percentiles, rejections and errors per endpoint and writes the full percentile distributions
+ * of every endpoint to the output directory.
+ * Arguments are key=value pairs, see {@link #DEFAULTS}, e.g.
+ * mvn test-compile exec:exec -Ploadtest -Dloadtest.args="rate=500 duration=PT2M"
+ */
+public class LoadTestRunner {
+    static final Map<String, String> DEFAULTS = Map.of(
+            "rate", "200",                  // requests started per second
+            "warmup", "PT15S",              // load before measuring, not reported
+            "duration", "PT60S",            // measured load
+            "eateries", "2000",
+            "customers", "20000",
+            "reservations", "100000",
+            "reviews", "50000",
+            "virtual", "false",             // run request handling on virtual threads
+            "maxErrorRate", "0.01",         // exits with 1 if an endpoint exceeds it
+            "out", "target/loadtest"
+    );
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final String SQL_EXCEPTION_HELPER = "org.hibernate.engine.jdbc.spi.SqlExceptionHelper";
+
+    /**
+     * Endpoints of the traffic mix with their share of the requests in percent.
+     */
+    enum Endpoint {
+        SEARCH("GET /eateries/search", 30),
+        AVAILABILITY("GET /eateries/{id}/availability", 25),
+        BOOK("POST /reservations", 20),
+        CANCEL("PUT /reservations/{id}/cancel", 10),
+        REVIEW("POST /reviews", 15);
+
+        private final String label;
+        private final int weight;
+
+        Endpoint(String label, int weight) {
+            this.label = label;
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * Latencies in microseconds and outcome counts of one endpoint.
+     * Rejections are 4xx answers, e.g. a fully booked eatery, errors are 5xx answers, timeouts and I/O failures.
+     */
+    private static class Stats {
+        private final Histogram latencies = new ConcurrentHistogram(TimeUnit.MINUTES.toMicros(1), 3);
+        private final AtomicLong rejections = new AtomicLong();
+        private final AtomicLong errors = new AtomicLong();
+    }
+
+    private final Map<String, String> options;
+    private final Map<Endpoint, Stats> stats = new EnumMap<>(Endpoint.class);
+    private final Queue<Long> cancellable = new ConcurrentLinkedQueue<>();
+    private final AtomicLong lateStarts = new AtomicLong();
+    private HttpClient httpClient;
+    private URI base;
+    private List<Long> eateryIds;
+    private List<Long> customerIds;
+
+    LoadTestRunner(Map<String, String> options) {
+        this.options = options;
+        for (Endpoint endpoint : Endpoint.values()) {
+            stats.put(endpoint, new Stats());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>(DEFAULTS);
+        for (String arg : args) {
+            String[] keyValue = arg.split("=", 2);
+            if (keyValue.length != 2 || !DEFAULTS.containsKey(keyValue[0])) {
+                throw new IllegalArgumentException("Unknown argument " + arg + ", expected key=value with a key of " + DEFAULTS.keySet());
+            }
+            options.put(keyValue[0], keyValue[1]);
+        }
+        boolean passed = new LoadTestRunner(options).run();
+        System.exit(passed ? 0 : 1);
+    }
+
+    /**
+     * Starts the instance, drives the load and reports the results.
+     * @return true if no endpoint exceeded the maximum error rate
+     */
+    boolean run() throws Exception {
+        SyntheticDataset dataset = new SyntheticDataset(
+                intOption("eateries"), intOption("customers"), intOption("reservations"), intOption("reviews")
+        );
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(EateryBackendApplication.class)
+                .profiles("local")
+                .properties(
+                        "server.port=0",
+                        "spring.threads.virtual.enabled=" + options.get("virtual"),
+                        "spring.datasource.url=jdbc:h2:mem:loadtest;DB_CLOSE_DELAY=-1",
+                        "spring.jpa.properties.hibernate.jdbc.batch_size=100",
+                        "logging.level.com.eatery=WARN",
+                        "logging.level.com.eatery.loadtest=INFO",
+                        // the SQL state warnings repeat the logged errors, see ignoreExpectedSqlErrors
+                        "logging.level." + SQL_EXCEPTION_HELPER + "=ERROR"
+                )
+                .initializers(applicationContext -> ((GenericApplicationContext) applicationContext)
+                        .registerBean(SyntheticDataset.class, () -> dataset))
+                .run();
+             ExecutorService requests = Executors.newVirtualThreadPerTaskExecutor()) {
+            ignoreExpectedSqlErrors();
+            base = URI.create("http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort() + "/api/");
+            eateryIds = List.copyOf(dataset.getEateryIds());
+            customerIds = List.copyOf(dataset.getCustomerIds());
+            List<Long> seeded = new ArrayList<>(dataset.getReservationIds());
+            Collections.shuffle(seeded, new Random(42));
+            cancellable.addAll(seeded);
+            // the client keeps its own executor, the request executor is shut down while responses are still arriving
+            httpClient = HttpClient.newBuilder().connectTimeout(REQUEST_TIMEOUT).build();
+
+            drive(requests, Duration.parse(options.get("warmup")), false);
+            drive(requests, Duration.parse(options.get("duration")), true);
+        }
+        return report(System.out, Path.of(options.get("out")));
+    }
+
+    /**
+     * Starts requests at the configured rate for the given time.
+     * The schedule is fixed up front, a request started late because the generator fell behind still counts from its due time.
+     */
+    private void drive(ExecutorService requests, Duration duration, boolean measured) {
+        long interval = TimeUnit.SECONDS.toNanos(1) / intOption("rate");
+        long start = System.nanoTime();
+        long count = duration.toNanos() / interval;
+        for (long i = 0; i < count; i++) {
+            long due = start + i * interval;
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            } else if (-wait > interval && measured) {
+                lateStarts.incrementAndGet();
+            }
+            Endpoint endpoint = nextEndpoint();
+            requests.execute(() -> send(endpoint, due, measured));
+        }
+    }
+
+    private void send(Endpoint endpoint, long due, boolean measured) {
+        Stats endpointStats = stats.get(endpoint);
+        try {
+            HttpResponse<String> response = httpClient.send(request(endpoint), HttpResponse.BodyHandlers.ofString());
+            if (endpoint == Endpoint.BOOK && response.statusCode() == 201) {
+                cancellable.add(MAPPER.readTree(response.body()).get("id").asLong());
+            }
+            if (measured && response.statusCode() >= 500) {
+                endpointStats.errors.incrementAndGet();
+            } else if (measured && response.statusCode() >= 400) {
+                endpointStats.rejections.incrementAndGet();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        } catch (IOException e) {
+            if (measured) {
+                endpointStats.errors.incrementAndGet();
+            }
+        }
+        if (measured) {
+            endpointStats.latencies.recordValue(Math.min(
+                    TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - due), endpointStats.latencies.getHighestTrackableValue()
+            ));
+        }
+    }
+
+    private Endpoint nextEndpoint() {
+        int roll = ThreadLocalRandom.current().nextInt(100);
+        for (Endpoint endpoint : Endpoint.values()) {
+            roll -= endpoint.weight;
+            if (roll < 0) {
+                // nothing left to cancel early in a short run, book instead
+                return endpoint == Endpoint.CANCEL && cancellable.isEmpty() ? Endpoint.BOOK : endpoint;
+            }
+        }
+        return Endpoint.SEARCH;
+    }
+
+    private HttpRequest request(Endpoint endpoint) throws IOException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        LocalDate date = LocalDate.now().plusDays(2 + random.nextInt(60));
+        return switch (endpoint) {
+            case SEARCH -> {
+                String word = SyntheticDataset.NAME_WORDS[random.nextInt(SyntheticDataset.NAME_WORDS.length)];
+                // word prefixes as typed into a search box
+                String prefix = word.substring(0, 3 + random.nextInt(word.length() - 2)).toLowerCase(Locale.ROOT);
+                yield get("eateries/search?q=" + URLEncoder.encode(prefix, StandardCharsets.UTF_8) + "&size=20");
+            }
+            case AVAILABILITY -> get("eateries/" + pick(eateryIds) + "/availability?date=" + date + "&guests=" + (1 + random.nextInt(6)));
+            case BOOK -> send("POST", "reservations", Map.of(
+                    "customerId", pick(customerIds),
+                    "eateryId", pick(eateryIds),
+                    "reservationDateTime", date + " " + LocalTime.of(12, 0).plusMinutes(15L * random.nextInt(32)) + ":00",
+                    "guestNumber", 1 + random.nextInt(6)
+            ));
+            case CANCEL -> {
+                Long id = cancellable.poll();
+                yield id == null ? request(Endpoint.BOOK) : send("PUT", "reservations/" + id + "/cancel", null);
+            }
+            case REVIEW -> send("POST", "reviews", Map.of(
+                    "eateryId", pick(eateryIds),
+                    "customerId", pick(customerIds),
+                    "message", "Load test review",
+                    "rating", 1 + random.nextInt(5)
+            ));
+        };
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(base.resolve(path)).timeout(REQUEST_TIMEOUT).GET().build();
+    }
+
+    private HttpRequest send(String method, String path, Map<String, Object> body) throws IOException {
+        return HttpRequest.newBuilder(base.resolve(path))
+                .timeout(REQUEST_TIMEOUT)
+                .header("Content-Type", "application/json")
+                .method(method, body == null
+                        ? HttpRequest.BodyPublishers.noBody()
+                        : HttpRequest.BodyPublishers.ofByteArray(MAPPER.writeValueAsBytes(body)))
+                .build();
+    }
+
+    /**
+     * Drops the errors logged for unique key violations of concurrently seeded slot occupancy rows,
+     * which are expected and retried, while every other SQL error is still logged.
+     * Added once the application has initialized the logging system, which resets the filters.
+     */
+    private static void ignoreExpectedSqlErrors() {
+        LoggerContext loggerContext = (LoggerContext) LoggerFactory.getILoggerFactory();
+        loggerContext.addTurboFilter(new TurboFilter() {
+            @Override
+            public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+                boolean expected = SQL_EXCEPTION_HELPER.equals(logger.getName()) && format != null &&
+                        format.toLowerCase(Locale.ROOT).contains(SlotOccupancy.UNIQUE_BUCKET);
+                return expected ? FilterReply.DENY : FilterReply.NEUTRAL;
+            }
+        });
+    }
+
+    private static long pick(List<Long> ids) {
+        return ids.get(ThreadLocalRandom.current().nextInt(ids.size()));
+    }
+
+    private int intOption(String key) {
+        return Integer.parseInt(options.get(key));
+    }
+
+    /**
+     * Prints the summary table and writes one percentile distribution file per endpoint.
+     * @return true if no endpoint exceeded the maximum error rate
+     */
+    private boolean report(PrintStream out, Path directory) throws IOException {
+        double maxErrorRate = Double.parseDouble(options.get("maxErrorRate"));
+        double seconds = Duration.parse(options.get("duration")).toMillis() / 1e3;
+        boolean passed = true;
+        Files.createDirectories(directory);
+
+        out.printf("%nOpen-loop load at %s req/s for %s, virtual threads %s%n", options.get("rate"), options.get("duration"), options.get("virtual"));
+        out.printf("%-32s %8s %8s %8s %8s %9s %9s %9s %9s %9s%n",
+                "endpoint", "requests", "req/s", "rejected", "errors", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (Map.Entry<Endpoint, Stats> entry : stats.entrySet()) {
+            Histogram latencies = entry.getValue().latencies;
+            long requests = latencies.getTotalCount();
+            long errors = entry.getValue().errors.get();
+            out.printf("%-32s %8d %8.1f %8d %8d %9.1f %9.1f %9.1f %9.1f %9.1f%n",
+                    entry.getKey().label, requests, requests / seconds, entry.getValue().rejections.get(), errors,
+                    latencies.getValueAtPercentile(50) / 1e3,
+                    latencies.getValueAtPercentile(90) / 1e3,
+                    latencies.getValueAtPercentile(99) / 1e3,
+                    latencies.getValueAtPercentile(99.9) / 1e3,
+                    latencies.getMaxValue() / 1e3);
+            if (requests > 0 && (double) errors / requests > maxErrorRate) {
+                passed = false;
+            }
+            try (PrintStream distribution = new PrintStream(Files.newOutputStream(directory.resolve(entry.getKey().name().toLowerCase() + ".hgrm")))) {
+                latencies.outputPercentileDistribution(distribution, 1000.0);
+            }
+        }
+        if (lateStarts.get() > 0) {
+            out.printf("The generator started %d requests more than one interval late, the offered rate was not reached%n", lateStarts.get());
+        }
+        out.printf("Percentile distributions in milliseconds written to %s%n", directory.toAbsolutePath());
+        return passed;
+    }
+}
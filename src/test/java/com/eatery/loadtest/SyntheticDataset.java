@@ -0,0 +1,148 @@
+package com.eatery.loadtest;
+
+import com.eatery.entity.BusinessDayTime;
+import com.eatery.entity.Customer;
+import com.eatery.entity.Eatery;
+import com.eatery.entity.Reservation;
+import com.eatery.entity.Review;
+import com.eatery.repository.CustomerRepository;
+import com.eatery.repository.EateryRepository;
+import com.eatery.repository.ReservationRepository;
+import com.eatery.repository.ReviewRepository;
+import com.eatery.security.PasswordHasher;
+import com.eatery.service.EateryRatingService;
+import lombok.Getter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.CommandLineRunner;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
+
+import static com.eatery.entity.Reservation.Status.CONFIRMED;
+
+/**
+ * Loads a large deterministic dataset before the application is ready, so the search, geo and occupancy indexes
+ * are built from it at startup, just like from a production database. The rating aggregates are repaired afterwards,
+ * as after an import of reviews.
+ * Deliberately not a component, it is only registered by the {@link LoadTestRunner}.
+ */
+@Getter
+class SyntheticDataset implements CommandLineRunner {
+    static final String[] NAME_WORDS = {
+            "Trattoria", "Bella", "Vista", "Goldener", "Hirsch", "Café", "Anna", "Blume", "Sushi", "Garden",
+            "Brauhaus", "Zum", "Löwen", "Bistro", "Marché", "Taverna", "Olympia", "Curry", "Corner", "Bäckerei"
+    };
+    private static final String[] STREETS = {
+            "Marienplatz", "Leopoldstraße", "Sendlinger Straße", "Kaufingerstraße", "Maximilianstraße",
+            "Schellingstraße", "Türkenstraße", "Rosenheimer Straße", "Lindwurmstraße", "Dachauer Straße"
+    };
+    private static final String[] CITIES = {"80331 München", "10115 Berlin", "20095 Hamburg", "50667 Köln", "60311 Frankfurt"};
+    private static final int BATCH_SIZE = 1000;
+    private static final int DAYS = 90;
+
+    private static final Logger logger = LoggerFactory.getLogger(SyntheticDataset.class);
+
+    @Autowired
+    private EateryRepository eateryRepository;
+    @Autowired
+    private CustomerRepository customerRepository;
+    @Autowired
+    private ReservationRepository reservationRepository;
+    @Autowired
+    private ReviewRepository reviewRepository;
+    @Autowired
+    private PasswordHasher passwordHasher;
+    @Autowired
+    private EateryRatingService eateryRatingService;
+
+    private final int eateries;
+    private final int customers;
+    private final int reservations;
+    private final int reviews;
+    private final SplittableRandom random = new SplittableRandom(42);
+
+    private final List<Long> eateryIds = new ArrayList<>();
+    private final List<Long> customerIds = new ArrayList<>();
+    private final List<Long> reservationIds = new ArrayList<>();
+
+    SyntheticDataset(int eateries, int customers, int reservations, int reviews) {
+        this.eateries = eateries;
+        this.customers = customers;
+        this.reservations = reservations;
+        this.reviews = reviews;
+    }
+
+    @Override
+    public void run(String... args) {
+        long start = System.nanoTime();
+        Set<BusinessDayTime> businessDayTimes = Arrays.stream(DayOfWeek.values())
+                .map(day -> new BusinessDayTime(day, LocalTime.of(11, 0), LocalTime.of(23, 0)))
+                .collect(Collectors.toSet());
+        save(eateries, i -> eatery(i, businessDayTimes), eateryRepository::saveAll, Eatery::getId, eateryIds);
+
+        // all customers share one password, hashing it per customer would dominate the load time
+        String password = passwordHasher.hash("loadtest");
+        save(customers, i -> new Customer("Load", "Test " + i, "loadtest-" + i, password, "+49151" + (10000000 + i)),
+                customerRepository::saveAll, Customer::getId, customerIds);
+
+        // confirmed reservations over the coming days, a few per eatery and day, far below the capacities
+        LocalDate firstDay = LocalDate.now().plusDays(2);
+        save(reservations, i -> {
+            Reservation reservation = new Reservation(
+                    pick(customerIds), pick(eateryIds),
+                    firstDay.plusDays(random.nextInt(DAYS)).atTime(12, 0).plusMinutes(15L * random.nextInt(32)),
+                    1 + random.nextInt(6)
+            );
+            reservation.setStatus(CONFIRMED);
+            return reservation;
+        }, reservationRepository::saveAll, Reservation::getId, reservationIds);
+
+        save(reviews, i -> new Review(pick(eateryIds), pick(customerIds), "Review " + i, 1 + random.nextInt(5)),
+                reviewRepository::saveAll, Review::getId, new ArrayList<>());
+        eateryRatingService.repairAll();
+
+        logger.info("Loaded {} eateries, {} customers, {} reservations and {} reviews in {} s",
+                eateries, customers, reservations, reviews, (System.nanoTime() - start) / 1_000_000_000);
+    }
+
+    private Eatery eatery(int i, Set<BusinessDayTime> businessDayTimes) {
+        Eatery eatery = new Eatery(
+                Eatery.Type.values()[i % Eatery.Type.values().length],
+                NAME_WORDS[random.nextInt(NAME_WORDS.length)] + " " + NAME_WORDS[random.nextInt(NAME_WORDS.length)] + " " + i,
+                STREETS[random.nextInt(STREETS.length)] + " " + (1 + random.nextInt(200)) + ", " + CITIES[random.nextInt(CITIES.length)],
+                businessDayTimes,
+                40 + random.nextInt(160),
+                "eatery" + i + "@example.com",
+                "+49 89 " + (1000000 + i)
+        );
+        eatery.setLatitude(47.5 + random.nextDouble() * 7);
+        eatery.setLongitude(6.0 + random.nextDouble() * 9);
+        return eatery;
+    }
+
+    private <T> void save(int count, IntFunction<T> factory, Function<List<T>, List<T>> saveAll,
+                          Function<T, Long> id, List<Long> ids) {
+        for (int from = 0; from < count; from += BATCH_SIZE) {
+            List<T> batch = new ArrayList<>(BATCH_SIZE);
+            for (int i = from; i < Math.min(count, from + BATCH_SIZE); i++) {
+                batch.add(factory.apply(i));
+            }
+            saveAll.apply(batch).forEach(saved -> ids.add(id.apply(saved)));
+        }
+    }
+
+    private long pick(List<Long> ids) {
+        return ids.get(random.nextInt(ids.size()));
+    }
+}
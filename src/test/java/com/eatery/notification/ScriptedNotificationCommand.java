@@ -0,0 +1,59 @@
+package com.eatery.notification;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Test-only notification command which rejects the messages to phone numbers marked as failing,
+ * so the retries, the backoff and the FAILED status of the outbox can be tested.
+ * Every other message is passed to the NotificationHandler.
+ * It is scanned into every application context of the tests, as the dispatchers of all cached contexts
+ * claim from the same outbox, and the failures are shared by all of them like the state of a real provider.
+ */
+@Primary
+@Component
+public class ScriptedNotificationCommand implements NotificationCommand {
+    /**
+     * Remaining rejections per phone number, a negative count rejects every message.
+     */
+    private static final Map<String, AtomicInteger> FAILURES = new ConcurrentHashMap<>();
+
+    @Autowired
+    private NotificationHandler notificationHandler;
+
+    /**
+     * Rejects the next messages to a phone number.
+     * @param customerPhoneNumber customer phone number
+     * @param times number of rejected messages, negative to reject every message
+     */
+    public static void fail(String customerPhoneNumber, int times) {
+        FAILURES.put(customerPhoneNumber, new AtomicInteger(times));
+    }
+
+    /**
+     * Accepts all messages again.
+     */
+    public static void reset() {
+        FAILURES.clear();
+    }
+
+    @Override
+    public boolean sendSMS(String customerPhoneNumber, String text) {
+        return !rejects(customerPhoneNumber) && notificationHandler.sendSMS(customerPhoneNumber, text);
+    }
+
+    @Override
+    public boolean sendMMS(String customerPhoneNumber, String text, String mediaURL) {
+        return !rejects(customerPhoneNumber) && notificationHandler.sendMMS(customerPhoneNumber, text, mediaURL);
+    }
+
+    private static boolean rejects(String customerPhoneNumber) {
+        AtomicInteger remaining = FAILURES.get(customerPhoneNumber);
+        return remaining != null && remaining.getAndDecrement() != 0;
+    }
+}
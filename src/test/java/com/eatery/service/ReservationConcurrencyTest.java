@@ -0,0 +1,275 @@
+package com.eatery.service;
+
+import com.eatery.api.dto.CreateReservationRequest;
+import com.eatery.api.dto.UpdateReservationRequest;
+import com.eatery.entity.BusinessDayTime;
+import com.eatery.entity.Eatery;
+import com.eatery.entity.Reservation;
+import com.eatery.entity.SlotOccupancy;
+import com.eatery.exception.ReservationBadRequestException;
+import com.eatery.exception.ReservationConflictException;
+import com.eatery.index.OccupancyIndex;
+import com.eatery.repository.EateryRepository;
+import com.eatery.repository.ReservationHistoryRepository;
+import com.eatery.repository.ReservationRepository;
+import com.eatery.repository.SlotOccupancyRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static com.eatery.entity.Reservation.Status.CONFIRMED;
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("local")
+class ReservationConcurrencyTest {
+    private static final Logger logger = LoggerFactory.getLogger(ReservationConcurrencyTest.class);
+    private static final int THREADS = 16;
+    private static final int ATTEMPTS = 400;
+    private static final int CAPACITY = 20;
+
+    @Autowired
+    private ReservationService reservationService;
+    @Autowired
+    private EateryRepository eateryRepository;
+    @Autowired
+    private EateryRatingService eateryRatingService;
+    @Autowired
+    private ReservationRepository reservationRepository;
+    @Autowired
+    private SlotOccupancyRepository slotOccupancyRepository;
+    @Autowired
+    private ReservationHistoryRepository historyRepository;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @Autowired
+    private SlotOccupancyService slotOccupancyService;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void createKeepsCapacityUnderContention() throws Exception {
+        // GIVEN
+        Eatery eatery = eateryRepository.save(
+                new Eatery(Eatery.Type.BAR, "stressBar", "stressAddress", alwaysOpen(), CAPACITY, "email", "phoneNumber")
+        );
+        eateryRatingService.initialize(eatery.getId());
+        LocalDateTime evening = LocalDateTime.of(LocalDate.now().plusWeeks(12), LocalTime.of(19, 0));
+        List<LocalDateTime> startTimes = List.of(evening, evening.plusMinutes(15), evening.plusMinutes(30), evening.plusMinutes(45));
+
+        AtomicInteger admitted = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+
+        // WHEN
+        long duration;
+        try (ExecutorService executor = Executors.newFixedThreadPool(THREADS)) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int attempt = 0; attempt < ATTEMPTS; attempt++) {
+                LocalDateTime startTime = startTimes.get(attempt % startTimes.size());
+                int guests = 1 + attempt % 3;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    try {
+                        reservationService.create(new CreateReservationRequest(1, eatery.getId(), startTime, guests));
+                        admitted.incrementAndGet();
+                    } catch (ReservationBadRequestException e) {
+                        rejected.incrementAndGet();
+                    } catch (RuntimeException e) {
+                        logger.warn("Reservation failed", e);
+                        failed.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            long startNanos = System.nanoTime();
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            duration = System.nanoTime() - startNanos;
+        }
+        logger.info("{} reservation attempts on {} threads: {} admitted, {} rejected, {} failed, {} attempts/s",
+                ATTEMPTS, THREADS, admitted.get(), rejected.get(), failed.get(),
+                String.format("%.0f", ATTEMPTS / (duration / 1e9)));
+
+        // THEN
+        assertEquals(0, failed.get());
+        assertTrue(admitted.get() > 0);
+        List<Reservation> confirmed = reservationRepository.findAll().stream()
+                .filter(reservation -> eatery.getId().equals(reservation.getEateryId()) && CONFIRMED.equals(reservation.getStatus()))
+                .toList();
+        assertEquals(admitted.get(), confirmed.size());
+
+        long fromBucket = OccupancyIndex.firstBucket(evening);
+        long toBucket = OccupancyIndex.endBucket(startTimes.getLast().plus(OccupancyIndex.RESERVATION_DURATION));
+        List<SlotOccupancy> slots = slotOccupancyRepository.findAll().stream()
+                .filter(slot -> eatery.getId().equals(slot.getEateryId()))
+                .toList();
+        assertEquals(toBucket - fromBucket, slots.size());
+        for (SlotOccupancy slot : slots) {
+            LocalDateTime bucketStart = OccupancyIndex.bucketStart(slot.getBucket());
+            int guests = confirmed.stream()
+                    .filter(reservation -> reservation.getReservationDateTime().isBefore(bucketStart.plusMinutes(OccupancyIndex.BUCKET_MINUTES)) &&
+                            reservation.getReservationDateTime().plus(OccupancyIndex.RESERVATION_DURATION).isAfter(bucketStart))
+                    .mapToInt(Reservation::getGuestNumber)
+                    .sum();
+            assertTrue(guests <= CAPACITY, "bucket " + bucketStart + " has " + guests + " guests");
+            assertEquals(guests, slot.getOccupied());
+        }
+    }
+
+    @Test
+    void replaceRetriesConcurrentChanges() throws Exception {
+        // GIVEN
+        Eatery eatery = eateryRepository.save(
+                new Eatery(Eatery.Type.CAFE, "retryCafe", "retryAddress", alwaysOpen(), CAPACITY, "email", "phoneNumber")
+        );
+        eateryRatingService.initialize(eatery.getId());
+        LocalDateTime evening = LocalDateTime.of(LocalDate.now().plusWeeks(14), LocalTime.of(19, 0));
+        Reservation reservation = reservationService.create(new CreateReservationRequest(2, eatery.getId(), evening.withHour(12), 2));
+        AtomicInteger replaced = new AtomicInteger();
+        AtomicInteger conflicted = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+
+        // WHEN
+        try (ExecutorService executor = Executors.newFixedThreadPool(THREADS)) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int attempt = 0; attempt < THREADS; attempt++) {
+                int guests = 1 + attempt;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    try {
+                        reservationService.replace(new UpdateReservationRequest(evening.withHour(13), guests), reservation.getId());
+                        replaced.incrementAndGet();
+                    } catch (ReservationConflictException e) {
+                        conflicted.incrementAndGet();
+                    } catch (ReservationBadRequestException e) {
+                        // in-flight changes of the other threads still occupy the eatery
+                        rejected.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+
+        // THEN
+        assertEquals(THREADS, replaced.get() + conflicted.get() + rejected.get());
+        assertTrue(replaced.get() > 0);
+        Reservation actual = reservationRepository.findById(reservation.getId()).orElseThrow();
+        assertEquals(replaced.get(), actual.getVersion());
+        long history = historyRepository.findAll().stream()
+                .filter(record -> reservation.getId().equals(record.getReservationId()))
+                .count();
+        assertEquals(1 + replaced.get(), history);
+        double conflicts = meterRegistry.find("reservation.conflicts").tag("eatery", String.valueOf(eatery.getId())).counters().stream()
+                .mapToDouble(Counter::count)
+                .sum();
+        assertTrue(conflicts >= conflicted.get());
+    }
+
+    @Test
+    void seedWaitsForConcurrentCancel() throws Exception {
+        // GIVEN
+        Eatery eatery = eateryRepository.save(
+                new Eatery(Eatery.Type.BAR, "seedBar", "seedAddress", alwaysOpen(), CAPACITY, "email", "phoneNumber")
+        );
+        eateryRatingService.initialize(eatery.getId());
+        LocalDateTime evening = LocalDateTime.of(LocalDate.now().plusWeeks(16), LocalTime.of(19, 0));
+        Reservation reservation = reservationService.create(new CreateReservationRequest(1, eatery.getId(), evening, 4));
+        long fromBucket = OccupancyIndex.firstBucket(evening);
+        long toBucket = OccupancyIndex.endBucket(evening.plus(OccupancyIndex.RESERVATION_DURATION));
+        slotOccupancyService.evict(eatery.getId());
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        CountDownLatch released = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+
+        // WHEN
+        try (ExecutorService executor = Executors.newFixedThreadPool(2)) {
+            Future<?> cancel = executor.submit(() -> transactionTemplate.executeWithoutResult(status -> {
+                Reservation cancelled = reservationRepository.findById(reservation.getId()).orElseThrow();
+                cancelled.setStatus(Reservation.Status.CANCELLED);
+                reservationRepository.saveAndFlush(cancelled);
+                slotOccupancyService.release(cancelled);
+                released.countDown();
+                try {
+                    commit.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+            released.await();
+            Future<?> seed = executor.submit(() -> slotOccupancyService.prepare(
+                    new SlotOccupancyService.MissingSlotsException(eatery.getId(), fromBucket, toBucket)
+            ));
+            Thread.sleep(200);
+            boolean seededBeforeCommit = seed.isDone();
+            commit.countDown();
+            cancel.get();
+            seed.get();
+
+            // THEN
+            assertFalse(seededBeforeCommit);
+        }
+        List<SlotOccupancy> slots = slotOccupancyRepository.findAll().stream()
+                .filter(slot -> eatery.getId().equals(slot.getEateryId()))
+                .toList();
+        assertEquals(toBucket - fromBucket, slots.size());
+        assertTrue(slots.stream().allMatch(slot -> slot.getOccupied() == 0));
+    }
+
+    @Test
+    void prunePastBuckets() {
+        // GIVEN
+        Eatery eatery = eateryRepository.save(
+                new Eatery(Eatery.Type.BAR, "pruneBar", "pruneAddress", alwaysOpen(), CAPACITY, "email", "phoneNumber")
+        );
+        eateryRatingService.initialize(eatery.getId());
+        long pastBucket = OccupancyIndex.firstBucket(LocalDateTime.now().minusDays(3));
+        long futureBucket = OccupancyIndex.firstBucket(LocalDateTime.now().plusDays(3));
+        slotOccupancyRepository.save(new SlotOccupancy(eatery.getId(), pastBucket, 2));
+        slotOccupancyRepository.save(new SlotOccupancy(eatery.getId(), futureBucket, 2));
+
+        // WHEN
+        int pruned = slotOccupancyService.prunePast();
+
+        // THEN
+        assertTrue(pruned >= 1);
+        List<Long> buckets = slotOccupancyRepository.findAll().stream()
+                .filter(slot -> eatery.getId().equals(slot.getEateryId()))
+                .map(SlotOccupancy::getBucket)
+                .toList();
+        assertEquals(List.of(futureBucket), buckets);
+    }
+
+    private static Set<BusinessDayTime> alwaysOpen() {
+        return Arrays.stream(DayOfWeek.values())
+                .map(day -> new BusinessDayTime(day, LocalTime.MIDNIGHT, LocalTime.MAX))
+                .collect(Collectors.toSet());
+    }
+}